@@ -0,0 +1,130 @@
+package org.haic.often.util;
+
+import org.apache.commons.codec.binary.Base32;
+import org.apache.commons.codec.binary.Hex;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base16/Base32/Base64 编解码基准测试,与 {@link Base64} 和 commons-codec 比较
+ * <p>
+ * 运行: mvn -P jmh test-compile exec:exec -D jmh.include=CodecBenchmark
+ *
+ * @author haicdust
+ * @version 1.0
+ * @since 2026/10/20 11:40
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+	@Param({"64", "65536", "16777216"})
+	private int size;
+
+	private byte[] data;
+	private ByteBuffer direct;
+	private byte[] base16;
+	private byte[] base32;
+	private byte[] base64;
+	private final Base32 commonsBase32 = new Base32();
+
+	@Setup
+	public void setup() {
+		data = new byte[size];
+		new Random(size).nextBytes(data);
+		direct = ByteBuffer.allocateDirect(size).put(data).flip();
+		base16 = Base16Util.encode(data);
+		base32 = Base32Util.encode(data);
+		base64 = Base64Util.encode(data);
+	}
+
+	@Benchmark
+	public byte[] base16Encode() {
+		return Base16Util.encode(data);
+	}
+
+	@Benchmark
+	public ByteBuffer base16EncodeDirect() {
+		return Base16Util.encode(direct.duplicate());
+	}
+
+	@Benchmark
+	public char[] base16EncodeCommons() {
+		return Hex.encodeHex(data, false);
+	}
+
+	@Benchmark
+	public byte[] base16Decode() {
+		return Base16Util.decode(base16);
+	}
+
+	@Benchmark
+	public byte[] base16DecodeCommons() throws Exception {
+		return Hex.decodeHex(new String(base16, StandardCharsets.ISO_8859_1));
+	}
+
+	@Benchmark
+	public byte[] base32Encode() {
+		return Base32Util.encode(data);
+	}
+
+	@Benchmark
+	public ByteBuffer base32EncodeDirect() {
+		return Base32Util.encode(direct.duplicate());
+	}
+
+	@Benchmark
+	public byte[] base32EncodeCommons() {
+		return commonsBase32.encode(data);
+	}
+
+	@Benchmark
+	public byte[] base32Decode() {
+		return Base32Util.decode(base32);
+	}
+
+	@Benchmark
+	public byte[] base32DecodeCommons() {
+		return commonsBase32.decode(base32);
+	}
+
+	@Benchmark
+	public byte[] base64Encode() {
+		return Base64Util.encode(data);
+	}
+
+	@Benchmark
+	public byte[] base64EncodeJdk() {
+		return Base64.getEncoder().encode(data);
+	}
+
+	@Benchmark
+	public byte[] base64EncodeCommons() {
+		return org.apache.commons.codec.binary.Base64.encodeBase64(data);
+	}
+
+	@Benchmark
+	public byte[] base64Decode() {
+		return Base64Util.decode(base64);
+	}
+
+	@Benchmark
+	public byte[] base64DecodeJdk() {
+		return Base64.getDecoder().decode(base64);
+	}
+
+	@Benchmark
+	public byte[] base64DecodeCommons() {
+		return org.apache.commons.codec.binary.Base64.decodeBase64(base64);
+	}
+
+}
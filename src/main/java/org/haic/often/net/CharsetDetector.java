@@ -0,0 +1,268 @@
+package org.haic.often.net;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 字符集检测
+ * <p>
+ * 按照 BOM, Content-Type 响应头, 文档开头的 meta 或 XML 声明, 字节统计 的顺序判断字符集,只读取数据开头的固定长度,不解析文档
+ * <p>
+ * 字节统计在 UTF-8, GBK, Big5, Shift_JIS 中选择编码错误最少且常用字符比例最高的字符集,均不符合时为 ISO-8859-1
+ *
+ * @author haicdust
+ * @version 1.0
+ * @since 2026/10/19 23:30
+ */
+public class CharsetDetector {
+
+	/**
+	 * 查找 meta 和 XML 声明的最大长度
+	 */
+	public static final int SNIFF_SIZE = 4096;
+	/**
+	 * 字节统计的最大长度
+	 */
+	public static final int GUESS_SIZE = 65536;
+
+	private static final int MAX_SAMPLES = 2048; // 统计足够的多字节字符后提前结束
+
+	private static final Charset GBK = Charset.forName("GBK");
+	private static final Charset BIG5 = Charset.forName("Big5");
+	private static final Charset SHIFT_JIS = Charset.forName("Shift_JIS");
+
+	/**
+	 * 检测数据的字符集
+	 *
+	 * @param data        数据
+	 * @param contentType Content-Type 响应头,可以为null
+	 * @return 字符集
+	 */
+	@NotNull
+	public static Charset detect(byte[] data, @Nullable String contentType) {
+		var bom = bom(data);
+		if (bom != null) return bom;
+		var header = fromContentType(contentType);
+		if (header != null) return header;
+		var declared = sniff(data);
+		return declared != null ? declared : guess(data);
+	}
+
+	/**
+	 * 检测数据的字符集,不使用响应头
+	 *
+	 * @param data 数据
+	 * @return 字符集
+	 */
+	@NotNull
+	public static Charset detect(byte[] data) {
+		return detect(data, null);
+	}
+
+	/**
+	 * 通过 BOM 判断字符集
+	 *
+	 * @param data 数据
+	 * @return 字符集,没有 BOM 返回null
+	 */
+	@Nullable
+	public static Charset bom(byte[] data) {
+		if (data.length >= 3 && (data[0] & 0xff) == 0xEF && (data[1] & 0xff) == 0xBB && (data[2] & 0xff) == 0xBF) return StandardCharsets.UTF_8;
+		if (data.length >= 2 && (data[0] & 0xff) == 0xFE && (data[1] & 0xff) == 0xFF) return StandardCharsets.UTF_16BE;
+		if (data.length >= 2 && (data[0] & 0xff) == 0xFF && (data[1] & 0xff) == 0xFE) return StandardCharsets.UTF_16LE;
+		return null;
+	}
+
+	/**
+	 * 获取 Content-Type 中 charset 参数指定的字符集
+	 *
+	 * @param contentType Content-Type,例如 text/html; charset=utf-8
+	 * @return 字符集,未指定或不支持返回null
+	 */
+	@Nullable
+	public static Charset fromContentType(@Nullable String contentType) {
+		if (contentType == null) return null;
+		int index = indexOfIgnoreCase(contentType, "charset", 0, contentType.length());
+		while (index != -1) {
+			int i = index + 7;
+			while (i < contentType.length() && contentType.charAt(i) == ' ') i++;
+			if (i < contentType.length() && contentType.charAt(i) == '=') {
+				int start = i + 1, end = start;
+				while (end < contentType.length() && contentType.charAt(end) != ';') end++;
+				return forName(contentType.substring(start, end));
+			}
+			index = indexOfIgnoreCase(contentType, "charset", index + 7, contentType.length());
+		}
+		return null;
+	}
+
+	/**
+	 * 在数据开头查找 meta charset, meta http-equiv 或 XML 声明中的字符集
+	 *
+	 * @param data 数据
+	 * @return 字符集,未找到或不支持返回null
+	 */
+	@Nullable
+	public static Charset sniff(byte[] data) {
+		int limit = Math.min(data.length, SNIFF_SIZE);
+		if (startsWith(data, "<?xml")) {
+			int end = indexOf(data, '>', 0, limit);
+			int index = indexOfIgnoreCase(data, "encoding", 0, end == -1 ? limit : end);
+			if (index != -1) {
+				var charset = value(data, index + 8, limit);
+				if (charset != null) return charset;
+			}
+		}
+		for (int i = indexOfIgnoreCase(data, "<meta", 0, limit); i != -1; i = indexOfIgnoreCase(data, "<meta", i + 5, limit)) {
+			int end = indexOf(data, '>', i, limit);
+			if (end == -1) break;
+			int index = indexOfIgnoreCase(data, "charset", i + 5, end); // meta[charset] 和 content="text/html; charset=..." 均适用
+			if (index != -1) {
+				var charset = value(data, index + 7, end);
+				if (charset != null) return charset;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 通过字节统计判断字符集,只统计数据开头的 {@link #GUESS_SIZE} 字节,统计到足够的多字节字符后提前结束
+	 *
+	 * @param data 数据
+	 * @return 字符集,纯ASCII为UTF-8
+	 */
+	@NotNull
+	public static Charset guess(byte[] data) {
+		int limit = Math.min(data.length, GUESS_SIZE);
+		if (utf8(data, limit)) return StandardCharsets.UTF_8;
+		var best = StandardCharsets.ISO_8859_1;
+		double max = Double.NEGATIVE_INFINITY;
+		for (var charset : new Charset[]{GBK, BIG5, SHIFT_JIS}) {
+			var score = score(charset, data, limit);
+			if (score > max) {
+				max = score;
+				best = charset;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * 校验UTF-8编码,结尾被截断的字符视为有效
+	 */
+	private static boolean utf8(byte[] data, int limit) {
+		for (int i = 0, samples = 0; i < limit && samples < MAX_SAMPLES; ) {
+			int b = data[i] & 0xff;
+			if (b < 0x80) {
+				i++;
+				continue;
+			}
+			int n = b >= 0xC2 && b <= 0xDF ? 1 : b >= 0xE0 && b <= 0xEF ? 2 : b >= 0xF0 && b <= 0xF4 ? 3 : -1;
+			if (n == -1) return false;
+			samples++;
+			for (int k = 1; k <= n; k++) {
+				if (i + k >= limit) return true;
+				if ((data[i + k] & 0xC0) != 0x80) return false;
+			}
+			i += n + 1;
+		}
+		return true;
+	}
+
+	/**
+	 * 双字节字符集评分,常用字符比例减去错误比例;错误超过2%时不可用
+	 */
+	private static double score(Charset charset, byte[] data, int limit) {
+		int pairs = 0, common = 0, errors = 0;
+		for (int i = 0; i < limit && pairs < MAX_SAMPLES; i++) {
+			int lead = data[i] & 0xff;
+			if (lead < 0x80) continue;
+			if (charset == SHIFT_JIS && lead >= 0xA1 && lead <= 0xDF) { // 半角片假名
+				pairs++;
+				continue;
+			}
+			if (i + 1 >= limit) break; // 结尾被截断
+			int trail = data[++i] & 0xff;
+			pairs++;
+			if (charset == GBK) {
+				if (lead < 0x81 || lead > 0xFE || trail < 0x40 || trail == 0x7F || trail == 0xFF) errors++;
+				else if (lead >= 0xB0 && lead <= 0xD7 && trail >= 0xA1) common++; // GB2312一级汉字
+			} else if (charset == BIG5) {
+				if (lead < 0xA1 || lead > 0xF9 || trail < 0x40 || trail > 0x7E && trail < 0xA1 || trail == 0xFF) errors++;
+				else if (lead >= 0xA4 && lead <= 0xC6) common++; // 常用汉字
+			} else {
+				if (lead < 0x81 || lead > 0x9F && lead < 0xE0 || lead > 0xEF || trail < 0x40 || trail == 0x7F || trail > 0xFC) errors++;
+				else if (lead == 0x82 && trail >= 0x9F || lead == 0x83 && trail <= 0x96 || lead >= 0x88 && lead <= 0x9F) common++; // 平假名,片假名,一级汉字
+			}
+		}
+		if (pairs == 0) return 0;
+		if (errors * 50 > pairs) return Double.NEGATIVE_INFINITY;
+		return (common - 4.0 * errors) / pairs;
+	}
+
+	/**
+	 * 读取 = 后的字符集名称,可以带引号
+	 */
+	private static Charset value(byte[] data, int from, int limit) {
+		int i = from;
+		while (i < limit && data[i] == ' ') i++;
+		if (i >= limit || data[i] != '=') return null;
+		i++;
+		while (i < limit && (data[i] == ' ' || data[i] == '"' || data[i] == '\'')) i++;
+		int start = i;
+		while (i < limit && (Character.isLetterOrDigit(data[i]) || data[i] == '-' || data[i] == '_' || data[i] == '.' || data[i] == ':')) i++;
+		return start == i ? null : forName(new String(data, start, i - start, StandardCharsets.ISO_8859_1));
+	}
+
+	/**
+	 * 获取字符集,GB2312按照GBK解码以兼容扩展字符
+	 */
+	private static Charset forName(String name) {
+		name = name.strip();
+		if (name.length() > 1 && (name.charAt(0) == '"' || name.charAt(0) == '\'')) name = name.substring(1, name.length() - 1).strip();
+		if (name.equalsIgnoreCase("gb2312") || name.equalsIgnoreCase("gb_2312-80")) return GBK;
+		try {
+			return Charset.isSupported(name) ? Charset.forName(name) : null;
+		} catch (IllegalCharsetNameException e) {
+			return null;
+		}
+	}
+
+	private static boolean startsWith(byte[] data, String prefix) {
+		if (data.length < prefix.length()) return false;
+		for (int i = 0; i < prefix.length(); i++) {
+			if (data[i] != prefix.charAt(i)) return false;
+		}
+		return true;
+	}
+
+	private static int indexOf(byte[] data, char c, int from, int limit) {
+		for (int i = from; i < limit; i++) {
+			if (data[i] == c) return i;
+		}
+		return -1;
+	}
+
+	private static int indexOfIgnoreCase(byte[] data, String target, int from, int limit) {
+		outer:
+		for (int i = from, end = limit - target.length(); i <= end; i++) {
+			for (int k = 0; k < target.length(); k++) {
+				if ((data[i + k] | 0x20) != target.charAt(k)) continue outer; // target 为小写字母和符号
+			}
+			return i;
+		}
+		return -1;
+	}
+
+	private static int indexOfIgnoreCase(String s, String target, int from, int limit) {
+		for (int i = from, end = limit - target.length(); i <= end; i++) {
+			if (s.regionMatches(true, i, target, 0, target.length())) return i;
+		}
+		return -1;
+	}
+
+}
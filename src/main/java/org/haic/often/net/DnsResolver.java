@@ -0,0 +1,342 @@
+package org.haic.often.net;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 域名解析器
+ * <p>
+ * 在内存中缓存解析结果,支持静态主机映射、自定义上游解析器,以及 IPv4/IPv6 并行连接(Happy Eyeballs)
+ * <p>
+ * 解析器只作用于本库自身的连接: OKHttpUtil 通过 OkHttp 的 Dns 接口使用全局解析器,HttpsUtil 在直连时使用全局解析器解析主机后连接到IP地址,不会修改 JVM 的域名解析
+ *
+ * @author haicdust
+ * @version 1.0
+ * @since 2026/10/19 13:40
+ */
+public class DnsResolver {
+
+	private static final DnsResolver GLOBAL = new DnsResolver();
+	private static final long ATTEMPT_DELAY = 250; // 并行连接的启动间隔(毫秒)
+
+	private long ttl = 60000; // 缓存时长
+	private long negativeTtl = 5000; // 解析失败的缓存时长
+	private volatile int maxSize = 1024; // 最大缓存主机数
+	private volatile Resolver upstream; // 上游解析器
+	private final Map<String, Entry> cache = lru();
+	private final Map<String, List<InetAddress>> overrides = new ConcurrentHashMap<>();
+	private final Map<String, InetAddress> preferred = lru(); // 最近一次连接成功的地址
+
+	/**
+	 * 创建一个新的解析器,默认缓存60秒,最多缓存1024个主机
+	 */
+	public DnsResolver() {
+	}
+
+	/**
+	 * 获取全局解析器
+	 *
+	 * @return 全局解析器
+	 */
+	public static DnsResolver global() {
+		return GLOBAL;
+	}
+
+	/**
+	 * 设置解析结果的缓存时长
+	 * <p>
+	 * JDK 无法获取DNS记录的真实TTL,请按照目标域名的记录设置
+	 *
+	 * @param millis 缓存时长(毫秒)
+	 * @return 此解析器，用于链接
+	 */
+	public DnsResolver ttl(long millis) {
+		this.ttl = millis;
+		return this;
+	}
+
+	/**
+	 * 设置解析失败时的缓存时长,防止不存在的域名反复解析
+	 *
+	 * @param millis 缓存时长(毫秒)
+	 * @return 此解析器，用于链接
+	 */
+	public DnsResolver negativeTtl(long millis) {
+		this.negativeTtl = millis;
+		return this;
+	}
+
+	/**
+	 * 设置上游解析器,默认使用JDK解析
+	 *
+	 * @param upstream 上游解析器
+	 * @return 此解析器，用于链接
+	 */
+	public DnsResolver upstream(@NotNull Resolver upstream) {
+		this.upstream = upstream;
+		synchronized (cache) {
+			cache.clear();
+		}
+		return this;
+	}
+
+	/**
+	 * 设置最大缓存主机数,超出时淘汰最久未使用的主机
+	 *
+	 * @param maxSize 最大缓存主机数
+	 * @return 此解析器，用于链接
+	 */
+	public DnsResolver maxSize(int maxSize) {
+		if (maxSize <= 0) throw new IllegalArgumentException("最大缓存数必须大于0: " + maxSize);
+		this.maxSize = maxSize;
+		synchronized (cache) {
+			cache.clear();
+		}
+		synchronized (preferred) {
+			preferred.clear();
+		}
+		return this;
+	}
+
+	/**
+	 * 添加静态主机映射,类似 hosts 文件,优先级高于缓存和上游解析器
+	 *
+	 * @param host 主机名
+	 * @param ips  IP地址
+	 * @return 此解析器，用于链接
+	 */
+	public DnsResolver override(@NotNull String host, @NotNull String... ips) {
+		var addresses = new ArrayList<InetAddress>();
+		for (var ip : ips) {
+			if (!URIUtil.isIPAddress(ip)) throw new IllegalArgumentException("Not is IP address: " + ip);
+			try {
+				addresses.add(InetAddress.getByAddress(host, InetAddress.getByName(ip).getAddress()));
+			} catch (UnknownHostException e) {
+				throw new IllegalArgumentException(e);
+			}
+		}
+		overrides.put(host.toLowerCase(), List.copyOf(addresses));
+		return this;
+	}
+
+	/**
+	 * 删除静态主机映射
+	 *
+	 * @param host 主机名
+	 * @return 此解析器，用于链接
+	 */
+	public DnsResolver removeOverride(@NotNull String host) {
+		overrides.remove(host.toLowerCase());
+		return this;
+	}
+
+	/**
+	 * 清空解析缓存
+	 */
+	public void clear() {
+		synchronized (cache) {
+			cache.clear();
+		}
+		synchronized (preferred) {
+			preferred.clear();
+		}
+	}
+
+	/**
+	 * 解析域名,返回的地址按照 IPv6/IPv4 交替排列,最近一次连接成功的地址排在首位
+	 *
+	 * @param host 主机名
+	 * @return 地址列表
+	 * @throws UnknownHostException 解析失败
+	 */
+	public List<InetAddress> lookup(@NotNull String host) throws UnknownHostException {
+		return resolve(host, h -> InetAddress.getAllByName(h));
+	}
+
+	/**
+	 * 解析域名,缓存未命中时使用指定的解析器
+	 *
+	 * @param host     主机名
+	 * @param fallback 未设置上游解析器时使用的解析器
+	 * @return 地址列表
+	 * @throws UnknownHostException 解析失败
+	 */
+	List<InetAddress> resolve(@NotNull String host, @NotNull Resolver fallback) throws UnknownHostException {
+		var key = host.toLowerCase();
+		var override = overrides.get(key);
+		if (override != null) return override;
+		if (URIUtil.isIPAddress(host)) return List.of(InetAddress.getByName(host));
+		Entry entry;
+		synchronized (cache) {
+			entry = cache.get(key);
+		}
+		if (entry == null || entry.expires < System.currentTimeMillis()) {
+			var resolver = upstream == null ? fallback : upstream;
+			try {
+				entry = new Entry(interleave(Arrays.asList(resolver.lookup(host))), System.currentTimeMillis() + ttl);
+			} catch (UnknownHostException e) {
+				entry = new Entry(List.of(), System.currentTimeMillis() + negativeTtl);
+			}
+			synchronized (cache) {
+				cache.put(key, entry);
+			}
+		}
+		if (entry.addresses.isEmpty()) throw new UnknownHostException(host);
+		InetAddress first;
+		synchronized (preferred) {
+			first = preferred.get(key);
+		}
+		if (first == null || entry.addresses.get(0).equals(first) || !entry.addresses.contains(first)) return entry.addresses;
+		var addresses = new ArrayList<InetAddress>(entry.addresses.size());
+		addresses.add(first);
+		for (var address : entry.addresses) if (!address.equals(first)) addresses.add(address);
+		return addresses;
+	}
+
+	/**
+	 * 使用 Happy Eyeballs 方式建立连接
+	 * <p>
+	 * 按照解析顺序依次发起连接,已发起的连接全部失败时立即尝试下一个地址,否则每等待 250 毫秒仍无连接完成时再尝试下一个地址;第一个成功的连接将被返回,其余连接被关闭
+	 *
+	 * @param host    主机名
+	 * @param port    端口
+	 * @param timeout 单个地址的连接超时(毫秒)
+	 * @return 已连接的Socket
+	 * @throws IOException 所有地址连接失败
+	 */
+	public Socket connect(@NotNull String host, int port, int timeout) throws IOException {
+		var addresses = lookup(host);
+		if (addresses.size() == 1) {
+			var socket = new Socket();
+			try {
+				socket.connect(new InetSocketAddress(addresses.get(0), port), timeout);
+			} catch (IOException e) {
+				socket.close();
+				throw e;
+			}
+			return socket;
+		}
+		var done = new AtomicBoolean();
+		var sockets = new ConcurrentLinkedQueue<Socket>();
+		var executor = Executors.newVirtualThreadPerTaskExecutor();
+		var service = new ExecutorCompletionService<InetAddress>(executor);
+		var connected = new ConcurrentHashMap<InetAddress, Socket>();
+		IOException error = null;
+		InetAddress winner = null;
+		try {
+			int started = 0, finished = 0;
+			do {
+				if (started < addresses.size() && finished == started) {
+					submit(service, addresses.get(started++), port, timeout, done, sockets, connected);
+				}
+				Future<InetAddress> future = started < addresses.size() ? service.poll(ATTEMPT_DELAY, TimeUnit.MILLISECONDS) : service.take();
+				if (future == null) {
+					submit(service, addresses.get(started++), port, timeout, done, sockets, connected);
+					continue;
+				}
+				finished++;
+				try {
+					winner = future.get();
+					done.set(true);
+					synchronized (preferred) {
+						preferred.put(host.toLowerCase(), winner);
+					}
+					return connected.get(winner);
+				} catch (ExecutionException e) {
+					error = e.getCause() instanceof IOException ex ? ex : new IOException(e.getCause());
+				}
+			} while (finished < addresses.size());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			error = new InterruptedIOException("connect interrupted: " + host);
+		} finally {
+			done.set(true);
+			executor.shutdownNow();
+			for (var socket : sockets) { // 关闭落选的连接
+				if (winner == null || connected.get(winner) != socket) closeQuietly(socket);
+			}
+		}
+		throw error == null ? new ConnectException("connect failed: " + host) : error;
+	}
+
+	private static void submit(CompletionService<InetAddress> service, InetAddress address, int port, int timeout, AtomicBoolean done, Queue<Socket> sockets, Map<InetAddress, Socket> connected) {
+		service.submit(() -> {
+			var socket = new Socket();
+			sockets.add(socket);
+			try {
+				socket.connect(new InetSocketAddress(address, port), timeout);
+			} catch (IOException e) {
+				closeQuietly(socket);
+				throw e;
+			}
+			if (done.get() || connected.putIfAbsent(address, socket) != null) {
+				closeQuietly(socket);
+				throw new ConnectException("connection discarded: " + address);
+			}
+			return address;
+		});
+	}
+
+	/**
+	 * 创建按照访问顺序淘汰的缓存,访问时需要同步
+	 */
+	private <V> Map<String, V> lru() {
+		return new LinkedHashMap<>(16, 0.75f, true) {
+			protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	private static void closeQuietly(Socket socket) {
+		try {
+			socket.close();
+		} catch (IOException ignored) {
+		}
+	}
+
+	/**
+	 * 将地址按照 IPv6/IPv4 交替排列,首个地址的协议族优先
+	 *
+	 * @param addresses 地址列表
+	 * @return 交替排列的地址列表
+	 */
+	private static List<InetAddress> interleave(List<InetAddress> addresses) {
+		if (addresses.size() < 2) return List.copyOf(addresses);
+		var first = addresses.get(0) instanceof Inet6Address;
+		var primary = addresses.stream().filter(l -> (l instanceof Inet6Address) == first).iterator();
+		var secondary = addresses.stream().filter(l -> (l instanceof Inet6Address) != first).iterator();
+		var result = new ArrayList<InetAddress>(addresses.size());
+		while (primary.hasNext() || secondary.hasNext()) {
+			if (primary.hasNext()) result.add(primary.next());
+			if (secondary.hasNext()) result.add(secondary.next());
+		}
+		return List.copyOf(result);
+	}
+
+	/**
+	 * 上游解析器
+	 */
+	@FunctionalInterface
+	public interface Resolver {
+
+		/**
+		 * 解析域名
+		 *
+		 * @param host 主机名
+		 * @return 地址数组
+		 * @throws UnknownHostException 解析失败
+		 */
+		InetAddress[] lookup(@NotNull String host) throws UnknownHostException;
+
+	}
+
+	private record Entry(List<InetAddress> addresses, long expires) {}
+
+}
@@ -0,0 +1,360 @@
+package org.haic.often.net;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * 已解析的URL,不可变
+ * <p>
+ * 只扫描一次字符串记录各部分的位置,路径分段和查询参数在首次获取时解析并缓存;同一页面中的大量链接可以先解析页面URL,再通过 {@link #resolve(String)} 按照 RFC 3986 解析相对网址
+ *
+ * @author haicdust
+ * @version 1.0
+ * @since 2026/10/19 23:50
+ */
+public final class ParsedURL {
+
+	private final String url;
+	private final String scheme;
+	private final int authorityStart; // 无权限部分时为-1
+	private final int hostStart;
+	private final int hostEnd;
+	private final int port;
+	private final int pathStart;
+	private final int queryStart; // '?'的位置,无查询部分时为-1
+	private final int fragmentStart; // '#'的位置,无片段时为-1
+	private List<String> segments;
+	private Map<String, List<String>> params;
+
+	private ParsedURL(String url, String scheme, int authorityStart, int hostStart, int hostEnd, int port, int pathStart, int queryStart, int fragmentStart) {
+		this.url = url;
+		this.scheme = scheme;
+		this.authorityStart = authorityStart;
+		this.hostStart = hostStart;
+		this.hostEnd = hostEnd;
+		this.port = port;
+		this.pathStart = pathStart;
+		this.queryStart = queryStart;
+		this.fragmentStart = fragmentStart;
+	}
+
+	/**
+	 * 解析绝对网址
+	 *
+	 * @param url 绝对网址
+	 * @return 已解析的URL
+	 * @throws IllegalArgumentException 缺少协议或端口不正确
+	 */
+	@NotNull
+	public static ParsedURL parse(@NotNull String url) {
+		int len = url.length(), i = 0;
+		while (i < len) {
+			char c = url.charAt(i);
+			if (c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || i > 0 && (c >= '0' && c <= '9' || c == '+' || c == '-' || c == '.')) i++;
+			else break;
+		}
+		if (i == 0 || i == len || url.charAt(i) != ':') throw new IllegalArgumentException("不是绝对网址: " + url);
+		var scheme = url.substring(0, i).toLowerCase();
+		int authorityStart = -1, hostStart = -1, hostEnd = -1, port = -1, pathStart = i + 1;
+		if (url.startsWith("//", i + 1)) {
+			authorityStart = i + 3;
+			int end = authorityStart;
+			while (end < len && "/?#\\".indexOf(url.charAt(end)) == -1) end++;
+			hostStart = url.lastIndexOf('@', end - 1) + 1;
+			if (hostStart < authorityStart) hostStart = authorityStart;
+			hostEnd = end;
+			if (hostStart < end && url.charAt(hostStart) == '[') { // IPv6
+				int close = url.indexOf(']', hostStart);
+				if (close != -1 && close < end) hostEnd = close + 1;
+			} else {
+				int colon = url.lastIndexOf(':', end - 1);
+				if (colon >= hostStart) hostEnd = colon;
+			}
+			if (hostEnd < end && url.charAt(hostEnd) == ':' && hostEnd + 1 < end) {
+				try {
+					port = Integer.parseInt(url, hostEnd + 1, end, 10);
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("端口不正确: " + url);
+				}
+			}
+			pathStart = end;
+		}
+		int fragmentStart = url.indexOf('#', pathStart);
+		int queryStart = url.indexOf('?', pathStart);
+		if (fragmentStart != -1 && queryStart > fragmentStart) queryStart = -1;
+		return new ParsedURL(url, scheme, authorityStart, hostStart, hostEnd, port, pathStart, queryStart, fragmentStart);
+	}
+
+	/**
+	 * 获取网络协议
+	 *
+	 * @return 小写协议名称 例: https
+	 */
+	@NotNull
+	public String scheme() {
+		return scheme;
+	}
+
+	/**
+	 * 获取权限部分,包括用户信息和端口
+	 *
+	 * @return 权限部分,没有为null
+	 */
+	@Nullable
+	public String authority() {
+		return authorityStart == -1 ? null : url.substring(authorityStart, pathStart);
+	}
+
+	/**
+	 * 获取主机名
+	 *
+	 * @return 小写主机名,IPv6地址带有方括号,没有为null
+	 */
+	@Nullable
+	public String host() {
+		return authorityStart == -1 ? null : url.substring(hostStart, hostEnd).toLowerCase();
+	}
+
+	/**
+	 * 获取网址中指定的端口
+	 *
+	 * @return 端口,未指定为-1
+	 */
+	public int port() {
+		return port;
+	}
+
+	/**
+	 * 获取端口,未指定时为协议默认端口
+	 *
+	 * @return 端口,未知协议且未指定时为-1
+	 */
+	public int effectivePort() {
+		return port != -1 ? port : defaultPort(scheme);
+	}
+
+	/**
+	 * 获取协议和权限部分,与 {@link URIUtil#getDomain(String)} 相同
+	 *
+	 * @return 例: https://www.example.com:8080
+	 */
+	@NotNull
+	public String origin() {
+		return url.substring(0, pathStart);
+	}
+
+	/**
+	 * 获取路径
+	 *
+	 * @return 原始路径,未解码
+	 */
+	@NotNull
+	public String path() {
+		return url.substring(pathStart, queryStart != -1 ? queryStart : fragmentStart != -1 ? fragmentStart : url.length());
+	}
+
+	/**
+	 * 获取已解码的路径分段
+	 *
+	 * @return 路径分段,不包括开头的空分段
+	 */
+	@NotNull
+	public List<String> pathSegments() {
+		var segments = this.segments;
+		if (segments == null) {
+			var path = path();
+			var list = new ArrayList<String>();
+			for (int i = path.startsWith("/") ? 1 : 0, end; i <= path.length() && !path.isEmpty(); i = end + 1) {
+				end = path.indexOf('/', i);
+				if (end == -1) end = path.length();
+				list.add(URLCodec.decode(path.substring(i, end)));
+			}
+			this.segments = segments = Collections.unmodifiableList(list);
+		}
+		return segments;
+	}
+
+	/**
+	 * 获取查询部分
+	 *
+	 * @return 原始查询字符串,不包括'?',没有为null
+	 */
+	@Nullable
+	public String query() {
+		return queryStart == -1 ? null : url.substring(queryStart + 1, fragmentStart != -1 ? fragmentStart : url.length());
+	}
+
+	/**
+	 * 获取已解码的查询参数,同名参数按照出现顺序保存
+	 *
+	 * @return 查询参数
+	 */
+	@NotNull
+	public Map<String, List<String>> queryParams() {
+		var params = this.params;
+		if (params == null) {
+			var map = new LinkedHashMap<String, List<String>>();
+			var query = query();
+			if (query != null) {
+				for (int i = 0, end; i < query.length(); i = end + 1) {
+					end = query.indexOf('&', i);
+					if (end == -1) end = query.length();
+					if (end == i) continue;
+					int eq = query.indexOf('=', i);
+					var name = URLCodec.decode(query.substring(i, eq == -1 || eq > end ? end : eq));
+					var value = eq == -1 || eq > end ? "" : URLCodec.decode(query.substring(eq + 1, end));
+					map.computeIfAbsent(name, l -> new ArrayList<>(1)).add(value);
+				}
+			}
+			map.replaceAll((k, v) -> Collections.unmodifiableList(v));
+			this.params = params = Collections.unmodifiableMap(map);
+		}
+		return params;
+	}
+
+	/**
+	 * 获取第一个同名查询参数
+	 *
+	 * @param name 参数名
+	 * @return 已解码的参数值,不存在为null
+	 */
+	@Nullable
+	public String queryParam(@NotNull String name) {
+		var values = queryParams().get(name);
+		return values == null ? null : values.get(0);
+	}
+
+	/**
+	 * 获取片段
+	 *
+	 * @return 片段,不包括'#',没有为null
+	 */
+	@Nullable
+	public String fragment() {
+		return fragmentStart == -1 ? null : url.substring(fragmentStart + 1);
+	}
+
+	/**
+	 * 按照 RFC 3986 将相对网址解析为绝对网址
+	 *
+	 * @param relative 相对网址或绝对网址
+	 * @return 已解析的绝对网址
+	 */
+	@NotNull
+	public ParsedURL resolve(@NotNull String relative) {
+		relative = relative.strip();
+		int len = relative.length();
+		if (len == 0) return fragmentStart == -1 ? this : parse(url.substring(0, fragmentStart));
+		char first = relative.charAt(0);
+		if (first == '#') return parse(url.substring(0, fragmentStart == -1 ? url.length() : fragmentStart) + relative);
+		if (hasScheme(relative)) return parse(relative);
+		if (relative.startsWith("//")) return parse(scheme + ":" + relative);
+		var base = url.substring(0, pathStart);
+		if (first == '?') return parse(base + path() + relative);
+		int end = 0; // 相对路径的结束位置
+		while (end < len && relative.charAt(end) != '?' && relative.charAt(end) != '#') end++;
+		String path;
+		if (first == '/') {
+			path = relative.substring(0, end);
+		} else {
+			var basePath = path();
+			if (authorityStart != -1 && basePath.isEmpty()) basePath = "/";
+			path = basePath.substring(0, basePath.lastIndexOf('/') + 1) + relative.substring(0, end);
+		}
+		return parse(base + removeDotSegments(path) + relative.substring(end));
+	}
+
+	/**
+	 * 规范化网址,用于判断网址是否重复
+	 * <p>
+	 * 协议和主机名转为小写,移除默认端口, 片段和空查询,移除路径中的 . 和 .. 分段,有权限部分时空路径补全为'/'
+	 *
+	 * @return 规范化的网址,已经是规范形式时返回自身
+	 */
+	@NotNull
+	public ParsedURL normalize() {
+		var path = path();
+		if (authorityStart == -1) {
+			var sb = new StringBuilder(url.length()).append(scheme).append(':').append(path);
+			var query = query();
+			if (query != null && !query.isEmpty()) sb.append('?').append(query);
+			return url.contentEquals(sb) ? this : parse(sb.toString());
+		}
+		var sb = new StringBuilder(url.length() + 1).append(scheme).append("://").append(url, authorityStart, hostStart).append(host());
+		if (port != -1 && port != defaultPort(scheme)) sb.append(':').append(port);
+		path = removeDotSegments(path);
+		sb.append(path.isEmpty() ? "/" : path);
+		var query = query();
+		if (query != null && !query.isEmpty()) sb.append('?').append(query);
+		return url.contentEquals(sb) ? this : parse(sb.toString());
+	}
+
+	private static int defaultPort(String scheme) {
+		return switch (scheme) {
+			case "http", "ws" -> 80;
+			case "https", "wss" -> 443;
+			case "ftp" -> 21;
+			default -> -1;
+		};
+	}
+
+	/**
+	 * 移除路径中的 . 和 .. 分段
+	 */
+	private static String removeDotSegments(String path) {
+		if (!path.contains(".")) return path;
+		var output = new ArrayDeque<String>();
+		int i = path.startsWith("/") ? 1 : 0;
+		boolean directory = false; // 结果是否以'/'结尾
+		while (i <= path.length()) {
+			int end = path.indexOf('/', i);
+			if (end == -1) end = path.length();
+			var segment = path.substring(i, end);
+			directory = end < path.length();
+			if (segment.equals("..")) {
+				output.pollLast();
+				directory = true;
+			} else if (segment.equals(".")) {
+				directory = true;
+			} else {
+				output.addLast(segment);
+			}
+			i = end + 1;
+		}
+		var sb = new StringBuilder(path.length());
+		if (path.startsWith("/")) sb.append('/');
+		for (var iterator = output.iterator(); iterator.hasNext(); ) {
+			sb.append(iterator.next());
+			if (iterator.hasNext()) sb.append('/');
+		}
+		if (directory && !output.isEmpty() && !output.peekLast().isEmpty()) sb.append('/');
+		return sb.toString();
+	}
+
+	private static boolean hasScheme(String s) {
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == ':') return i > 0;
+			if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || i > 0 && (c >= '0' && c <= '9' || c == '+' || c == '-' || c == '.'))) return false;
+		}
+		return false;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return this == o || o instanceof ParsedURL other && url.equals(other.url);
+	}
+
+	@Override
+	public int hashCode() {
+		return url.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return url;
+	}
+
+}
@@ -8,7 +8,6 @@ import org.haic.often.util.ListUtil;
 import org.haic.often.util.StringUtil;
 import org.jetbrains.annotations.NotNull;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.*;
 import java.nio.charset.Charset;
@@ -29,7 +28,6 @@ import java.util.function.Predicate;
 @SuppressWarnings("DuplicatedCode")
 public class URIUtil {
 
-	private static final Predicate<Character> specialSimpleSafetyChar = c -> "!$'()*+,:;=@-._~".contains(String.valueOf(c));
 	private static final Predicate<Character> specialSafetyChar = c -> "!#$&'()*+,/:;=?@-._~".contains(String.valueOf(c));
 	private static final Predicate<Character> safetyChar = c -> (c >= 'A' && c <= 'z') || (c >= '0' && c <= '9');
 
@@ -45,14 +43,22 @@ public class URIUtil {
 	}
 
 	/**
-	 * 获取相对网址的绝对网址链接
+	 * 获取相对网址的绝对网址链接,按照 RFC 3986 解析 . 和 .. 路径
+	 * <p>
+	 * 同一页面的大量链接可以使用 {@link ParsedURL#resolve(String)},避免重复解析源网址
 	 *
 	 * @param url      源网址(绝对地址)
 	 * @param relative 相对网址
-	 * @return 绝对网址
+	 * @return 绝对网址,源网址不是绝对网址时返回相对网址
 	 */
 	public static String toAbsoluteUrl(@NotNull String url, @NotNull String relative) {
-		return relative.isEmpty() ? "" : (relative.startsWith("http") ? relative : relative.startsWith("/") ? relative.charAt(1) == '/' ? getProtocol(url) + relative : getDomain(url) + relative : url.substring(0, url.lastIndexOf("/") + 1) + relative).replaceAll("&amp;", "&");
+		if (relative.isEmpty()) return "";
+		relative = relative.replace("&amp;", "&");
+		try {
+			return ParsedURL.parse(url).resolve(relative).toString();
+		} catch (IllegalArgumentException e) {
+			return relative;
+		}
 	}
 
 	/**
@@ -166,7 +172,8 @@ public class URIUtil {
 	 * @return 网络协议名称 例: http
 	 */
 	public static String getProtocol(@NotNull String url) {
-		return url.split("/")[0];
+		int index = url.indexOf('/');
+		return index == -1 ? url : url.substring(0, index);
 	}
 
 	/**
@@ -176,8 +183,7 @@ public class URIUtil {
 	 * @return 域名网址
 	 */
 	public static String getDomain(@NotNull String url) {
-		String[] info = url.split("/");
-		return info[0] + "//" + info[2];
+		return url.substring(0, authorityEnd(url, authorityStart(url)));
 	}
 
 	/**
@@ -191,17 +197,16 @@ public class URIUtil {
 	}
 
 	/**
-	 * 常用网页字符集编码格式为GB2312,GBK,UTF-8
+	 * 通过字节统计判断网页的字符集编码,只统计数据开头部分
 	 * <p>
 	 * GBK编码兼容GB2312编码
-	 * <p>
-	 * 通过判断编码是否为UTF-8确定网页的字符集编码
 	 *
 	 * @param bytes 网页数据
-	 * @return UTF-8 or GBK
+	 * @return UTF-8, GBK, Big5, Shift_JIS 或 ISO-8859-1
+	 * @see CharsetDetector#guess(byte[])
 	 */
 	public static Charset encoding(byte[] bytes) {
-		return StringUtil.isUTF8(bytes) ? StandardCharsets.UTF_8 : Charset.forName("GBK");
+		return CharsetDetector.guess(bytes);
 	}
 
 	/**
@@ -244,7 +249,20 @@ public class URIUtil {
 	 */
 	@NotNull
 	public static String getHost(@NotNull String url) {
-		return url.split("/")[2];
+		int start = authorityStart(url);
+		return url.substring(start, authorityEnd(url, start));
+	}
+
+	private static int authorityStart(String url) {
+		int index = url.indexOf("//");
+		if (index == -1) throw new IllegalArgumentException("不是绝对网址: " + url);
+		return index + 2;
+	}
+
+	private static int authorityEnd(String url, int start) {
+		int end = start;
+		while (end < url.length() && url.charAt(end) != '/' && url.charAt(end) != '?' && url.charAt(end) != '#') end++;
+		return end;
 	}
 
 	/**
@@ -386,15 +404,11 @@ public class URIUtil {
 	 * @return 连接状态
 	 */
 	public static boolean pingHost(@NotNull String host, int port) {
-		boolean isReachable;
-		try (Socket socket = new Socket()) {
-			InetSocketAddress endpointSocketAddr = new InetSocketAddress(host, port);
-			socket.connect(endpointSocketAddr, 5000);
-			isReachable = socket.isConnected();
+		try (Socket socket = DnsResolver.global().connect(host, port, 5000)) { // 使用缓存解析并行连接IPv4/IPv6
+			return socket.isConnected();
 		} catch (IOException e) {
-			isReachable = false;
+			return false;
 		}
-		return isReachable;
 	}
 
 	/**
@@ -405,7 +419,7 @@ public class URIUtil {
 	 */
 	public static String hostIP(@NotNull String host) {
 		try {
-			return InetAddress.getByName(URIUtil.getDomain(host)).getHostAddress();
+			return DnsResolver.global().lookup(host.contains("://") ? URIUtil.getHost(host) : host).get(0).getHostAddress();
 		} catch (UnknownHostException e) {
 			return null;
 		}
@@ -498,22 +512,7 @@ public class URIUtil {
 	 */
 	@NotNull
 	public static String decode(@NotNull String s, @NotNull Charset charset) {
-		var bytes = new ByteArrayOutputStream();
-		for (int i = 0; i < s.length(); i++) {
-			char c = s.charAt(i);
-			boolean isByte = false;
-			while (c == '%' && i + 2 < s.length() && safetyChar.test(s.charAt(i + 1)) && safetyChar.test(s.charAt(i + 2))) {
-				c = (char) Integer.parseInt(s, i + 1, i + 3, 16);
-				isByte = true;
-				i += 2;
-			}
-			if (isByte) {
-				bytes.write(c);
-			} else {
-				bytes.writeBytes(String.valueOf(c).getBytes());
-			}
-		}
-		return bytes.toString(charset);
+		return URLCodec.decode(s, charset);
 	}
 
 	/**
@@ -524,29 +523,7 @@ public class URIUtil {
 	 */
 	@NotNull
 	public static String encode(@NotNull String s) {
-		var sb = new StringBuilder(s.length());
-		for (int i = 0; i < s.length(); i++) {
-			char c = s.charAt(i);
-			if (c == '%' && i + 2 < s.length() && safetyChar.test(s.charAt(i + 1)) && safetyChar.test(s.charAt(i + 2))) {
-				sb.append(s, i, i + 3);
-				i += 2;
-			} else if (safetyChar.test(c) || specialSafetyChar.test(c)) {
-				sb.append(c);
-			} else {
-				var bytes = String.valueOf(c).getBytes();
-				if (bytes.length == 1) {
-					sb.append("%");
-					var hex = Integer.toHexString(bytes[0]).toUpperCase();
-					if (hex.length() == 1) sb.append("0");
-					sb.append(hex);
-				} else {
-					for (var b : bytes) {
-						sb.append("%").append(Integer.toHexString((char) b).substring(2).toUpperCase());
-					}
-				}
-			}
-		}
-		return sb.toString();
+		return URLCodec.encode(s);
 	}
 
 	/**
@@ -559,31 +536,7 @@ public class URIUtil {
 	 */
 	@NotNull
 	public static String encodeValue(@NotNull String s) {
-		var sb = new StringBuilder(s.length());
-		for (int i = 0; i < s.length(); i++) {
-			char c = s.charAt(i);
-			if (c == '%' && i + 2 < s.length() && safetyChar.test(s.charAt(i + 1)) && safetyChar.test(s.charAt(i + 2))) {
-				sb.append(s, i, i + 3);
-				i += 2;
-			} else if (safetyChar.test(c)) {
-				sb.append(c);
-			} else if (specialSimpleSafetyChar.test(c)) {
-				sb.append(c);
-			} else {
-				var bytes = String.valueOf(c).getBytes();
-				if (bytes.length == 1) {
-					sb.append("%");
-					var hex = Integer.toHexString(bytes[0]).toUpperCase();
-					if (hex.length() == 1) sb.append("0");
-					sb.append(hex);
-				} else {
-					for (var b : bytes) {
-						sb.append("%").append(Integer.toHexString((char) b).substring(2).toUpperCase());
-					}
-				}
-			}
-		}
-		return sb.toString();
+		return URLCodec.encodeValue(s);
 	}
 
 }
@@ -0,0 +1,233 @@
+package org.haic.often.net;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * URL百分号编码和解码
+ * <p>
+ * 安全字符和十六进制字符均通过查表判断,非ASCII字符直接按照UTF-8编码写入,不为每个字符创建字符串或数组;不需要编码或解码时直接返回原字符串
+ *
+ * @author haicdust
+ * @version 1.0
+ * @since 2026/10/19 23:50
+ */
+public class URLCodec {
+
+	private static final char[] DIGITS = "0123456789ABCDEF".toCharArray();
+	private static final byte[] HEX = new byte[128]; // 十六进制字符对应的值,-1为非十六进制字符
+	private static final boolean[] SAFE = new boolean[128]; // URL中无需编码的字符
+	private static final boolean[] SAFE_VALUE = new boolean[128]; // 参数值中无需编码的字符
+
+	static {
+		Arrays.fill(HEX, (byte) -1);
+		for (int i = 0; i < 10; i++) HEX['0' + i] = (byte) i;
+		for (int i = 0; i < 6; i++) HEX['a' + i] = HEX['A' + i] = (byte) (10 + i);
+		for (char c = 'A'; c <= 'z'; c++) SAFE[c] = SAFE_VALUE[c] = true;
+		for (char c = '0'; c <= '9'; c++) SAFE[c] = SAFE_VALUE[c] = true;
+		for (char c : "!#$&'()*+,/:;=?@-._~".toCharArray()) SAFE[c] = true;
+		for (char c : "!$'()*+,:;=@-._~".toCharArray()) SAFE_VALUE[c] = true;
+	}
+
+	/**
+	 * UrlEncode编码,已编码的部分保持不变
+	 *
+	 * @param s 待编码的字符串
+	 * @return 编码后的字符串
+	 */
+	@NotNull
+	public static String encode(@NotNull CharSequence s) {
+		return encode(s, SAFE);
+	}
+
+	/**
+	 * UrlEncode编码,已编码的部分保持不变,用于参数值
+	 * <p>
+	 * 不跳过特殊安全字符 -> !#$&'()*+,/:;=?@-._~
+	 *
+	 * @param s 待编码的字符串
+	 * @return 编码后的字符串
+	 */
+	@NotNull
+	public static String encodeValue(@NotNull CharSequence s) {
+		return encode(s, SAFE_VALUE);
+	}
+
+	/**
+	 * UrlEncode编码并追加到指定的字符串构建器,可以复用构建器避免分配
+	 *
+	 * @param s     待编码的字符串
+	 * @param value 是否按照参数值编码
+	 * @param out   输出
+	 * @return 输出
+	 */
+	@NotNull
+	public static StringBuilder encode(@NotNull CharSequence s, boolean value, @NotNull StringBuilder out) {
+		encode(s, 0, value ? SAFE_VALUE : SAFE, out);
+		return out;
+	}
+
+	/**
+	 * 将字节数据编码并追加到指定的字符串构建器,用于已按照指定字符集编码的数据
+	 *
+	 * @param data  数据
+	 * @param off   起始位置
+	 * @param len   长度
+	 * @param value 是否按照参数值编码
+	 * @param out   输出
+	 * @return 输出
+	 */
+	@NotNull
+	public static StringBuilder encode(byte[] data, int off, int len, boolean value, @NotNull StringBuilder out) {
+		var safe = value ? SAFE_VALUE : SAFE;
+		for (int i = off, end = off + len; i < end; i++) {
+			int b = data[i] & 0xff;
+			if (b < 0x80 && safe[b]) out.append((char) b);
+			else escape(b, out);
+		}
+		return out;
+	}
+
+	/**
+	 * UrlEncode解码,可解码被多次编码的字符,直至获得最终解码的字符串
+	 *
+	 * @param s 待解码的字符串
+	 * @return 解码后的字符串
+	 */
+	@NotNull
+	public static String decode(@NotNull CharSequence s) {
+		return decode(s, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * UrlEncode解码,可解码被多次编码的字符,直至获得最终解码的字符串
+	 *
+	 * @param s       待解码的字符串
+	 * @param charset 字符集编码
+	 * @return 解码后的字符串
+	 */
+	@NotNull
+	public static String decode(@NotNull CharSequence s, @NotNull Charset charset) {
+		int len = s.length(), i = 0;
+		while (i < len && !escaped(s, i)) i++;
+		if (i == len) return s.toString();
+		var bytes = new byte[len * 3]; // 未编码的字符按照UTF-8最多3字节
+		int n = 0;
+		for (i = 0; i < len; i++) {
+			char c = s.charAt(i);
+			if (escaped(s, i)) {
+				int b = HEX[s.charAt(i + 1)] << 4 | HEX[s.charAt(i + 2)];
+				i += 2;
+				while (b == '%' && i + 2 < len && hex(s.charAt(i + 1)) && hex(s.charAt(i + 2))) { // 多次编码,解码得到的'%'与后两位组成新的编码
+					b = HEX[s.charAt(i + 1)] << 4 | HEX[s.charAt(i + 2)];
+					i += 2;
+				}
+				bytes[n++] = (byte) b;
+			} else if (c < 0x80) {
+				bytes[n++] = (byte) c;
+			} else if (c < 0x800) {
+				bytes[n++] = (byte) (0xC0 | c >> 6);
+				bytes[n++] = (byte) (0x80 | c & 0x3F);
+			} else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+				int cp = Character.toCodePoint(c, s.charAt(++i));
+				bytes[n++] = (byte) (0xF0 | cp >> 18);
+				bytes[n++] = (byte) (0x80 | cp >> 12 & 0x3F);
+				bytes[n++] = (byte) (0x80 | cp >> 6 & 0x3F);
+				bytes[n++] = (byte) (0x80 | cp & 0x3F);
+			} else if (Character.isSurrogate(c)) {
+				bytes[n++] = '?';
+			} else {
+				bytes[n++] = (byte) (0xE0 | c >> 12);
+				bytes[n++] = (byte) (0x80 | c >> 6 & 0x3F);
+				bytes[n++] = (byte) (0x80 | c & 0x3F);
+			}
+		}
+		return new String(bytes, 0, n, charset);
+	}
+
+	/**
+	 * 在原数组中解码百分号编码的字节数据,不分配新的数组
+	 *
+	 * @param data 数据
+	 * @param off  起始位置
+	 * @param len  长度
+	 * @return 解码后的长度,结果从起始位置开始写入
+	 */
+	public static int decode(byte[] data, int off, int len) {
+		int end = off + len, n = off;
+		for (int i = off; i < end; i++) {
+			int b = data[i];
+			while (b == '%' && i + 2 < end && hex(data[i + 1]) && hex(data[i + 2])) {
+				b = HEX[data[i + 1]] << 4 | HEX[data[i + 2]];
+				i += 2;
+			}
+			data[n++] = (byte) b;
+		}
+		return n - off;
+	}
+
+	/**
+	 * 判断指定位置是否为有效的百分号编码
+	 *
+	 * @param s     字符串
+	 * @param index 位置
+	 * @return 判断结果
+	 */
+	public static boolean escaped(@NotNull CharSequence s, int index) {
+		return s.charAt(index) == '%' && index + 2 < s.length() && hex(s.charAt(index + 1)) && hex(s.charAt(index + 2));
+	}
+
+	private static String encode(CharSequence s, boolean[] safe) {
+		int len = s.length(), i = 0;
+		for (char c; i < len; i++) {
+			if ((c = s.charAt(i)) >= 0x80 || !safe[c] && !escaped(s, i)) break;
+		}
+		if (i == len) return s.toString();
+		var sb = new StringBuilder(len + 16).append(s, 0, i);
+		encode(s, i, safe, sb);
+		return sb.toString();
+	}
+
+	private static void encode(CharSequence s, int from, boolean[] safe, StringBuilder sb) {
+		for (int i = from, len = s.length(); i < len; i++) {
+			char c = s.charAt(i);
+			if (c < 0x80) {
+				if (safe[c]) {
+					sb.append(c);
+				} else if (escaped(s, i)) {
+					sb.append(s, i, i + 3);
+					i += 2;
+				} else {
+					escape(c, sb);
+				}
+			} else if (c < 0x800) {
+				escape(0xC0 | c >> 6, sb);
+				escape(0x80 | c & 0x3F, sb);
+			} else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+				int cp = Character.toCodePoint(c, s.charAt(++i));
+				escape(0xF0 | cp >> 18, sb);
+				escape(0x80 | cp >> 12 & 0x3F, sb);
+				escape(0x80 | cp >> 6 & 0x3F, sb);
+				escape(0x80 | cp & 0x3F, sb);
+			} else if (Character.isSurrogate(c)) {
+				escape('?', sb); // 单独的代理字符无法编码
+			} else {
+				escape(0xE0 | c >> 12, sb);
+				escape(0x80 | c >> 6 & 0x3F, sb);
+				escape(0x80 | c & 0x3F, sb);
+			}
+		}
+	}
+
+	private static void escape(int b, StringBuilder sb) {
+		sb.append('%').append(DIGITS[b >> 4 & 15]).append(DIGITS[b & 15]);
+	}
+
+	private static boolean hex(int c) {
+		return c >= 0 && c < 128 && HEX[c] >= 0;
+	}
+
+}
@@ -0,0 +1,505 @@
+package org.haic.often.net;
+
+import org.haic.often.net.http.Connection;
+import org.haic.often.net.http.HttpsUtil;
+import org.haic.often.util.BloomFilter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * 爬虫网址队列
+ * <p>
+ * 网址规范化后按照64位指纹记录在 {@link BloomFilter} 中去重,去重占用的内存与网址长度无关;待访问的网址按照主机分组,同一主机两次取出之间至少间隔指定的延迟,不同主机之间互不影响
+ * <p>
+ * 设置溢出文件后,内存中待访问的网址超过限制时写入文件,内存中的网址不足一半时再从文件读取
+ *
+ * @author haicdust
+ * @version 1.0
+ * @since 2026/10/20 00:10
+ */
+public class URLFrontier implements Closeable {
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition changed = lock.newCondition();
+	private final Map<String, Host> hosts = new HashMap<>();
+	private final PriorityQueue<Host> schedule = new PriorityQueue<>(Comparator.comparingLong(h -> h.next)); // 有待访问网址的主机,按照可以访问的时间排序
+	private final Map<String, Long> delays = new HashMap<>();
+	private final ArrayDeque<Host> idle = new ArrayDeque<>(); // 没有待访问网址的主机,到达访问间隔后移除
+	private BloomFilter seen;
+	private long delay = 1000;
+	private int memoryLimit = 1_000_000;
+	private Predicate<ParsedURL> filter = url -> url.scheme().equals("http") || url.scheme().equals("https");
+	private Spill spill;
+	private long queued; // 内存中待访问的网址数量
+
+	/**
+	 * 调用构造实例对象,预计一千万个网址,误判率0.1%
+	 */
+	public URLFrontier() {
+		this(10_000_000, 0.001);
+	}
+
+	/**
+	 * 调用构造实例对象,超出预计数量时去重过滤器自动扩展
+	 *
+	 * @param expected 预计网址数量
+	 * @param fpp      误判率,误判的网址不会被访问
+	 */
+	public URLFrontier(long expected, double fpp) {
+		seen = new BloomFilter(expected, fpp);
+	}
+
+	/**
+	 * 设置同一主机两次访问的最小间隔,默认1000毫秒
+	 *
+	 * @param millis 间隔,单位毫秒
+	 * @return 此连接，用于链接
+	 */
+	public URLFrontier delay(long millis) {
+		lock.lock();
+		try {
+			this.delay = millis;
+			return this;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 设置指定主机两次访问的最小间隔,例如 robots.txt 中的 Crawl-delay
+	 *
+	 * @param host   主机名
+	 * @param millis 间隔,单位毫秒
+	 * @return 此连接，用于链接
+	 */
+	public URLFrontier delay(@NotNull String host, long millis) {
+		lock.lock();
+		try {
+			delays.put(host.toLowerCase(), millis);
+			return this;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 设置网址过滤器,不符合条件的网址不会加入队列,默认只接受 http 和 https 网址
+	 *
+	 * @param filter 过滤器,参数为规范化的网址
+	 * @return 此连接，用于链接
+	 */
+	public URLFrontier filter(@NotNull Predicate<ParsedURL> filter) {
+		this.filter = filter;
+		return this;
+	}
+
+	/**
+	 * 设置使用已有的去重过滤器,例如通过 {@link BloomFilter#readFrom(java.io.InputStream)} 恢复上次爬取的记录
+	 *
+	 * @param seen 去重过滤器
+	 * @return 此连接，用于链接
+	 */
+	public URLFrontier seen(@NotNull BloomFilter seen) {
+		lock.lock();
+		try {
+			this.seen = seen;
+			return this;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 设置溢出文件,内存中待访问的网址超过限制时写入文件,文件已存在时会被清空
+	 *
+	 * @param file        溢出文件
+	 * @param memoryLimit 内存中待访问网址的数量限制
+	 * @return 此连接，用于链接
+	 */
+	public URLFrontier spill(@NotNull File file, int memoryLimit) {
+		if (memoryLimit < 2) throw new IllegalArgumentException("数量限制必须大于1: " + memoryLimit);
+		lock.lock();
+		try {
+			if (spill != null) throw new IllegalStateException("已设置溢出文件");
+			this.spill = new Spill(file);
+			this.memoryLimit = memoryLimit;
+			return this;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 添加网址,已添加过, 格式错误或不符合过滤条件的网址被忽略
+	 *
+	 * @param url 网址
+	 * @return 是否加入队列
+	 */
+	public boolean add(@NotNull String url) {
+		ParsedURL parsed;
+		try {
+			parsed = ParsedURL.parse(url.strip()).normalize();
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+		return add(parsed);
+	}
+
+	/**
+	 * 添加网址,已添加过或不符合过滤条件的网址被忽略
+	 *
+	 * @param url 网址
+	 * @return 是否加入队列
+	 */
+	public boolean add(@NotNull ParsedURL url) {
+		url = url.normalize();
+		if (url.host() == null || !filter.test(url)) return false;
+		long fingerprint = BloomFilter.fingerprint(url.toString()); // 在锁外计算指纹
+		lock.lock();
+		try {
+			if (!seen.add(fingerprint)) return false;
+			enqueue(url.host(), url.toString());
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 添加多个网址
+	 *
+	 * @param urls 网址
+	 * @return 加入队列的数量
+	 */
+	public int addAll(@NotNull Collection<String> urls) {
+		int count = 0;
+		for (var url : urls) {
+			if (add(url)) count++;
+		}
+		return count;
+	}
+
+	/**
+	 * 添加页面中的链接,相对网址按照页面网址解析,例如 {@link URIUtil#extractURL(String)} 或 a 标签 href 属性的结果
+	 *
+	 * @param baseUrl 页面网址
+	 * @param links   链接
+	 * @return 加入队列的数量
+	 */
+	public int addLinks(@NotNull String baseUrl, @NotNull Collection<String> links) {
+		var base = ParsedURL.parse(baseUrl);
+		int count = 0;
+		for (var link : links) {
+			try {
+				if (add(base.resolve(link.replace("&amp;", "&")))) count++;
+			} catch (IllegalArgumentException ignored) {
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * 判断网址是否已经添加过
+	 *
+	 * @param url 网址
+	 * @return 判断结果,有小概率将未添加的网址判断为已添加
+	 */
+	public boolean contains(@NotNull String url) {
+		try {
+			return seen.mightContain(ParsedURL.parse(url.strip()).normalize().toString());
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * 取出一个可以访问的网址,不等待
+	 *
+	 * @return 网址,没有可以访问的网址返回null
+	 */
+	@Nullable
+	public String poll() {
+		lock.lock();
+		try {
+			refill();
+			var host = schedule.peek();
+			return host == null || host.next > System.currentTimeMillis() ? null : take(host);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 取出一个可以访问的网址,没有时等待直到有主机到达访问间隔或加入新网址
+	 *
+	 * @param timeout 最长等待时间
+	 * @param unit    时间单位
+	 * @return 网址,超时返回null
+	 * @throws InterruptedException 等待时被中断
+	 */
+	@Nullable
+	public String poll(long timeout, @NotNull TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			while (true) {
+				refill();
+				var host = schedule.peek();
+				long now = System.currentTimeMillis();
+				if (host != null && host.next <= now) return take(host);
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0) return null;
+				changed.awaitNanos(host == null ? remaining : Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(host.next - now)));
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 取出一个可以访问的网址并创建连接
+	 *
+	 * @param timeout 最长等待时间
+	 * @param unit    时间单位
+	 * @return 连接,超时返回null
+	 * @throws InterruptedException 等待时被中断
+	 */
+	@Nullable
+	public Connection connect(long timeout, @NotNull TimeUnit unit) throws InterruptedException {
+		var url = poll(timeout, unit);
+		return url == null ? null : HttpsUtil.connect(url);
+	}
+
+	/**
+	 * 获取待访问的网址数量,包括溢出文件中的网址
+	 *
+	 * @return 网址数量
+	 */
+	public long size() {
+		lock.lock();
+		try {
+			return queued + (spill == null ? 0 : spill.count);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 判断是否没有待访问的网址
+	 *
+	 * @return 判断结果
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * 获取添加过的网址数量
+	 *
+	 * @return 网址数量
+	 */
+	public long seenCount() {
+		return seen.size();
+	}
+
+	/**
+	 * 获取去重过滤器,可以通过 {@link BloomFilter#writeTo(java.io.OutputStream)} 保存
+	 *
+	 * @return 去重过滤器
+	 */
+	@NotNull
+	public BloomFilter seen() {
+		return seen;
+	}
+
+	/**
+	 * 关闭并删除溢出文件,待访问的网址不再保留
+	 *
+	 * @throws IOException 关闭异常
+	 */
+	@Override
+	public void close() throws IOException {
+		lock.lock();
+		try {
+			if (spill != null) spill.close();
+			spill = null;
+			hosts.clear();
+			schedule.clear();
+			idle.clear();
+			queued = 0;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 加入主机队列或溢出文件
+	 */
+	private void enqueue(String name, String url) {
+		if (spill != null && (queued >= memoryLimit || spill.count > 0)) { // 溢出文件中还有网址时继续写入文件,保持先进先出
+			try {
+				spill.append(url);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return;
+		}
+		purge();
+		var host = hosts.computeIfAbsent(name, Host::new);
+		host.urls.add(url);
+		queued++;
+		if (!host.scheduled) {
+			host.scheduled = true;
+			schedule.add(host);
+			changed.signalAll();
+		}
+	}
+
+	/**
+	 * 从主机队列取出网址并更新下次访问时间
+	 */
+	private String take(Host host) {
+		schedule.poll();
+		var url = host.urls.poll();
+		queued--;
+		host.next = System.currentTimeMillis() + delays.getOrDefault(host.name, delay);
+		if (host.urls.isEmpty()) {
+			host.scheduled = false;
+			idle.add(host);
+		} else {
+			schedule.add(host);
+		}
+		return url;
+	}
+
+	/**
+	 * 移除已到达访问间隔的空闲主机,限制主机记录占用的内存
+	 */
+	private void purge() {
+		long now = System.currentTimeMillis();
+		for (Host host; (host = idle.peek()) != null && host.next <= now; ) {
+			idle.poll();
+			if (!host.scheduled && hosts.get(host.name) == host) hosts.remove(host.name);
+		}
+	}
+
+	/**
+	 * 内存中的网址不足一半时从溢出文件读取
+	 */
+	private void refill() {
+		if (spill == null || spill.count == 0 || queued >= memoryLimit / 2) return;
+		List<String> urls;
+		try {
+			urls = spill.read((int) (memoryLimit - queued));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		var spilling = spill;
+		spill = null; // 读取的网址直接加入主机队列
+		try {
+			for (var url : urls) enqueue(ParsedURL.parse(url).host(), url);
+		} finally {
+			spill = spilling;
+		}
+	}
+
+	/**
+	 * 主机的待访问网址
+	 */
+	private static class Host {
+
+		private final String name;
+		private final ArrayDeque<String> urls = new ArrayDeque<>();
+		private long next;
+		private boolean scheduled;
+
+		private Host(String name) {
+			this.name = name;
+		}
+
+	}
+
+	/**
+	 * 溢出文件,按行保存网址,从记录的位置顺序读取,读取完后清空文件
+	 */
+	private static class Spill implements Closeable {
+
+		private final File file;
+		private final FileChannel channel;
+		private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		private long readPosition;
+		private long writePosition;
+		private long count;
+
+		private Spill(File file) throws IOException {
+			this.file = file;
+			var parent = file.getAbsoluteFile().getParentFile();
+			if (parent != null && !parent.exists() && !parent.mkdirs()) throw new IOException("无法创建文件夹: " + parent);
+			this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		}
+
+		private void append(String url) throws IOException {
+			buffer.writeBytes(url.getBytes(StandardCharsets.UTF_8));
+			buffer.write('\n');
+			count++;
+			if (buffer.size() >= 65536) flush();
+		}
+
+		private void flush() throws IOException {
+			if (buffer.size() == 0) return;
+			var data = ByteBuffer.wrap(buffer.toByteArray());
+			while (data.hasRemaining()) writePosition += channel.write(data, writePosition);
+			buffer.reset();
+		}
+
+		private List<String> read(int max) throws IOException {
+			flush();
+			var urls = new ArrayList<String>(Math.min(max, 65536));
+			var chunk = ByteBuffer.allocate(1 << 20);
+			while (urls.size() < max && readPosition < writePosition) {
+				chunk.clear().limit((int) Math.min(chunk.capacity(), writePosition - readPosition));
+				while (chunk.hasRemaining() && channel.read(chunk, readPosition + chunk.position()) > 0) ;
+				var data = chunk.array();
+				int start = 0;
+				for (int i = 0; i < chunk.position() && urls.size() < max; i++) {
+					if (data[i] != '\n') continue;
+					urls.add(new String(data, start, i - start, StandardCharsets.UTF_8));
+					start = i + 1;
+				}
+				if (start == 0) throw new IOException("溢出文件中的网址过长: " + file);
+				readPosition += start;
+			}
+			count -= urls.size();
+			if (readPosition == writePosition) { // 已全部读取,清空文件
+				channel.truncate(0);
+				readPosition = writePosition = 0;
+			}
+			return urls;
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+			if (file.exists() && !file.delete()) throw new IOException("无法删除文件: " + file);
+		}
+
+	}
+
+}
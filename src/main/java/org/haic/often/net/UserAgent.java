@@ -99,7 +99,7 @@ public class UserAgent {
 	 * @return Random UserAgent
 	 */
 	public static String safari() {
-		return mozilla + " (" + macPlatform() + ")" + appleWebKitTail() + chromiumTail() + versionTail() + safari();
+		return mozilla + " (" + macPlatform() + ")" + appleWebKitTail() + chromiumTail() + versionTail() + safariTail();
 	}
 
 	/**
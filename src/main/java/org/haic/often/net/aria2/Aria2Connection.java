@@ -7,6 +7,7 @@ import java.io.File;
 import java.net.Proxy;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author haicdust
@@ -299,4 +300,12 @@ public abstract class Aria2Connection {
 	 */
 	public abstract String post();
 
+	/**
+	 * 通过 WebSocket 连接发送,所有会话合并为一次 system.multicall,使用连接的密钥
+	 *
+	 * @param socket WebSocket 连接
+	 * @return 按照添加顺序排列的结果,链接为gid
+	 */
+	public abstract CompletableFuture<List<Object>> execute(@NotNull Aria2Socket socket);
+
 }
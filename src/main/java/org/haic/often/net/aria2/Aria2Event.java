@@ -0,0 +1,46 @@
+package org.haic.often.net.aria2;
+
+/**
+ * Aria2通知名常量,仅通过WebSocket推送
+ *
+ * @author haicdust
+ * @version 1.0
+ * @since 2026/10/19 21:50
+ */
+public enum Aria2Event {
+	/**
+	 * This notification will be sent when a download is started. The event is of type struct and it contains following keys. The value type is string. gid: GID of the download.
+	 */
+	ON_DOWNLOAD_START("aria2.onDownloadStart"),
+	/**
+	 * This notification will be sent when a download is paused. The event is the same struct as the event argument of aria2.onDownloadStart() method.
+	 */
+	ON_DOWNLOAD_PAUSE("aria2.onDownloadPause"),
+	/**
+	 * This notification will be sent when a download is stopped by the user. The event is the same struct as the event argument of aria2.onDownloadStart() method.
+	 */
+	ON_DOWNLOAD_STOP("aria2.onDownloadStop"),
+	/**
+	 * This notification will be sent when a download is complete. For BitTorrent downloads, this notification is sent when the download is complete and seeding is over. The event is the same
+	 * struct of the event argument of aria2.onDownloadStart() method.
+	 */
+	ON_DOWNLOAD_COMPLETE("aria2.onDownloadComplete"),
+	/**
+	 * This notification will be sent when a download is stopped due to an error. The event is the same struct as the event argument of aria2.onDownloadStart() method.
+	 */
+	ON_DOWNLOAD_ERROR("aria2.onDownloadError"),
+	/**
+	 * This notification will be sent when a torrent download is complete but seeding is still going on. The event is the same struct as the event argument of aria2.onDownloadStart() method.
+	 */
+	ON_BT_DOWNLOAD_COMPLETE("aria2.onBtDownloadComplete");
+
+	private final String value;
+
+	Aria2Event(String value) {
+		this.value = value;
+	}
+
+	public String getValue() {
+		return value;
+	}
+}
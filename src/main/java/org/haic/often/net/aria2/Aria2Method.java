@@ -385,7 +385,7 @@ public enum Aria2Method {
 	 * call and params is array containing parameters to the method call. This method returns an array of responses. The elements will be either a one-item array containing the return value of the
 	 * method call or a struct of fault element if an encapsulated method call fails.
 	 */
-	MULTICALL("aria2.multicall"),
+	MULTICALL("system.multicall"),
 	/**
 	 * This method returns all the available RPC methods in an array of string. Unlike other methods, this method does not require secret token. This is safe because this method just returns the
 	 * available method names.
@@ -395,7 +395,7 @@ public enum Aria2Method {
 	 * This method returns all the available RPC notifications in an array of string. Unlike other methods, this method does not require secret token. This is safe because this method just returns
 	 * the available notifications names.
 	 */
-	LISTNOTIFICATIONS("aria2.listNotifications");
+	LISTNOTIFICATIONS("system.listNotifications");
 
 	private final String value;
 
@@ -0,0 +1,378 @@
+package org.haic.often.net.aria2;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import org.haic.often.exception.Aria2Exception;
+import org.haic.often.net.http.OKHttpUtil;
+import org.haic.often.parser.json.JSONArray;
+import org.haic.often.parser.json.JSONObject;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Aria2 WebSocket 连接
+ * <p>
+ * 保持一个WebSocket连接,调用先进入队列,由发送线程将同一时刻排队的调用合并为一次 system.multicall 发送,每个调用单独返回结果
+ * <p>
+ * 通过订阅 aria2 推送的通知获取下载状态变化,无需轮询 aria2.tellStatus;连接断开时进行中的调用失败,存在订阅时自动重连
+ *
+ * @author haicdust
+ * @version 1.0
+ * @since 2026/10/19 21:50
+ */
+public class Aria2Socket implements Closeable {
+
+	private static final int MAX_BATCH = 512; // 单次批量调用的最大数量
+	private static final long RECONNECT_MILLIS = 1000; // 重连等待时间
+	private static final Set<String> PUBLIC_METHODS = Set.of(Aria2Method.LISTMETHODS.getValue(), Aria2Method.LISTNOTIFICATIONS.getValue()); // 不需要密钥的方法
+	private static final ScheduledExecutorService SENDER = Executors.newSingleThreadScheduledExecutor(r -> {
+		var thread = new Thread(r, "Aria2Socket");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final String url;
+	private final OkHttpClient client;
+	private String token = ""; // 密钥
+	private final AtomicLong ids = new AtomicLong();
+	private final Queue<Call> pending = new ConcurrentLinkedQueue<>();
+	private final AtomicBoolean flushing = new AtomicBoolean();
+	private final Map<String, List<Call>> inflight = new ConcurrentHashMap<>(); // 请求ID对应的调用
+	private final Map<String, List<Consumer<String>>> listeners = new ConcurrentHashMap<>(); // 通知名对应的监听器
+	private final Map<String, CompletableFuture<String>> waiting = new ConcurrentHashMap<>(); // 等待结束的下载
+	private WebSocket socket;
+	private volatile boolean closed;
+
+	/**
+	 * 创建连接,首次调用时建立WebSocket连接
+	 *
+	 * @param url aria2 WebSocket 地址,例如 ws://localhost:6800/jsonrpc
+	 */
+	public Aria2Socket(@NotNull String url) {
+		this(url, OKHttpUtil.client());
+	}
+
+	/**
+	 * 使用指定的 OkHttpClient 创建连接
+	 *
+	 * @param url    aria2 WebSocket 地址
+	 * @param client 客户端,共享连接池和调度器
+	 */
+	public Aria2Socket(@NotNull String url, @NotNull OkHttpClient client) {
+		this.url = url;
+		this.client = client.newBuilder().pingInterval(30, TimeUnit.SECONDS).build();
+	}
+
+	/**
+	 * 设置rpc密钥
+	 *
+	 * @param token 密钥
+	 * @return 此连接，用于链接
+	 */
+	public Aria2Socket token(@NotNull String token) {
+		this.token = token;
+		return this;
+	}
+
+	/**
+	 * 调用aria2方法,自动添加密钥
+	 * <p>
+	 * 调用不会立即发送,同一时刻的调用将被合并为一次 system.multicall
+	 *
+	 * @param method 方法
+	 * @param params 参数,不包含密钥
+	 * @return 调用结果,调用失败时为 {@link Aria2Exception}
+	 */
+	public CompletableFuture<Object> call(@NotNull Aria2Method method, @NotNull Object... params) {
+		return call(method.getValue(), new JSONArray().fluentAddAll(Arrays.asList(params)));
+	}
+
+	/**
+	 * 调用aria2方法,自动添加密钥
+	 *
+	 * @param method 方法名
+	 * @param params 参数,不包含密钥
+	 * @return 调用结果,调用失败时为 {@link Aria2Exception}
+	 */
+	public CompletableFuture<Object> call(@NotNull String method, @NotNull JSONArray params) {
+		var future = new CompletableFuture<Object>();
+		if (closed) {
+			future.completeExceptionally(new Aria2Exception("连接已关闭"));
+			return future;
+		}
+		pending.add(new Call(method, params, future));
+		if (flushing.compareAndSet(false, true)) SENDER.execute(this::flush);
+		return future;
+	}
+
+	/**
+	 * 添加下载链接
+	 *
+	 * @param url    链接
+	 * @param option 下载配置
+	 * @return 下载的gid
+	 */
+	public CompletableFuture<String> addUri(@NotNull String url, @NotNull Map<String, ?> option) {
+		return call(Aria2Method.ADDURI, List.of(url), option).thenApply(String::valueOf);
+	}
+
+	/**
+	 * 获取由gid表示的下载状态
+	 *
+	 * @param gid  gid
+	 * @param keys 需要获取的键,为空时获取全部
+	 * @return 下载状态
+	 */
+	public CompletableFuture<JSONObject> tellStatus(@NotNull String gid, @NotNull String... keys) {
+		var future = keys.length == 0 ? call(Aria2Method.TELLSTATUS, gid) : call(Aria2Method.TELLSTATUS, gid, List.of(keys));
+		return future.thenApply(l -> (JSONObject) l);
+	}
+
+	/**
+	 * 订阅通知,监听器在接收线程中调用,不应执行耗时操作
+	 *
+	 * @param event    通知
+	 * @param listener 监听器,参数为下载的gid
+	 * @return 此连接，用于链接
+	 */
+	public Aria2Socket on(@NotNull Aria2Event event, @NotNull Consumer<String> listener) {
+		listeners.computeIfAbsent(event.getValue(), l -> new CopyOnWriteArrayList<>()).add(listener);
+		socket(); // 订阅需要保持连接
+		return this;
+	}
+
+	/**
+	 * 订阅下载完成通知
+	 *
+	 * @param listener 监听器,参数为下载的gid
+	 * @return 此连接，用于链接
+	 */
+	public Aria2Socket onDownloadComplete(@NotNull Consumer<String> listener) {
+		return on(Aria2Event.ON_DOWNLOAD_COMPLETE, listener);
+	}
+
+	/**
+	 * 订阅下载错误通知
+	 *
+	 * @param listener 监听器,参数为下载的gid
+	 * @return 此连接，用于链接
+	 */
+	public Aria2Socket onDownloadError(@NotNull Consumer<String> listener) {
+		return on(Aria2Event.ON_DOWNLOAD_ERROR, listener);
+	}
+
+	/**
+	 * 等待由gid表示的下载结束
+	 * <p>
+	 * 由通知驱动,注册后查询一次状态,防止下载在注册前已经结束;断线重连后重新查询,防止错过断开期间的通知
+	 *
+	 * @param gid gid
+	 * @return 下载完成时返回gid;下载错误时为 {@link Aria2Exception},被删除时为 {@link CancellationException}
+	 */
+	public CompletableFuture<String> await(@NotNull String gid) {
+		var future = waiting.computeIfAbsent(gid, l -> new CompletableFuture<>());
+		socket();
+		check(gid, true);
+		return future;
+	}
+
+	/**
+	 * 关闭连接,进行中的调用和等待的下载将失败
+	 */
+	public void close() {
+		closed = true;
+		WebSocket socket;
+		synchronized (this) {
+			socket = this.socket;
+			this.socket = null;
+		}
+		if (socket != null) socket.close(1000, null);
+		disconnected(new Aria2Exception("连接已关闭"));
+		waiting.values().forEach(l -> l.completeExceptionally(new Aria2Exception("连接已关闭")));
+		waiting.clear();
+	}
+
+	/**
+	 * 发送排队的调用,每次最多合并 MAX_BATCH 个
+	 */
+	private void flush() {
+		do {
+			for (List<Call> batch; !(batch = drain()).isEmpty(); ) send(batch);
+			flushing.set(false);
+		} while (!pending.isEmpty() && flushing.compareAndSet(false, true));
+	}
+
+	private List<Call> drain() {
+		var batch = new ArrayList<Call>();
+		for (Call call; batch.size() < MAX_BATCH && (call = pending.poll()) != null; ) batch.add(call);
+		return batch;
+	}
+
+	private void send(List<Call> batch) {
+		var id = String.valueOf(ids.incrementAndGet());
+		var request = new JSONObject().fluentPut("id", id).fluentPut("jsonrpc", "2.0");
+		if (batch.size() == 1) {
+			request.fluentPut("method", batch.get(0).method).fluentPut("params", params(batch.get(0)));
+		} else {
+			var calls = JSONArray.parseArray(batch.stream().map(l -> new JSONObject().fluentPut("methodName", l.method).fluentPut("params", params(l))).toList());
+			request.fluentPut("method", Aria2Method.MULTICALL.getValue()).fluentPut("params", new JSONArray().fluentAdd(calls));
+		}
+		inflight.put(id, batch);
+		var socket = socket();
+		if (socket == null || !socket.send(request.toString())) { // 连接已关闭或发送队列已关闭
+			inflight.remove(id);
+			batch.forEach(l -> l.future.completeExceptionally(new Aria2Exception("WebSocket发送失败: " + url)));
+		}
+	}
+
+	private JSONArray params(Call call) {
+		if (token.isEmpty() || PUBLIC_METHODS.contains(call.method)) return call.params;
+		return new JSONArray().fluentAdd("token:" + token).fluentAddAll(call.params);
+	}
+
+	/**
+	 * 获取WebSocket连接,未连接时建立连接;连接建立前发送的消息由OkHttp排队
+	 */
+	private synchronized WebSocket socket() {
+		if (socket == null && !closed) socket = client.newWebSocket(new Request.Builder().url(url).build(), new Listener());
+		return socket;
+	}
+
+	private void receive(String text) {
+		var message = JSONObject.parseObject(text);
+		var id = message.getString("id");
+		if (id == null) { // 通知
+			var method = message.getString("method");
+			var params = message.getJSONArray("params");
+			for (int i = 0; params != null && i < params.size(); i++) {
+				var gid = params.getJSONObject(i).getString("gid");
+				listeners.getOrDefault(method, List.of()).forEach(l -> l.accept(gid));
+				if (method.equals(Aria2Event.ON_DOWNLOAD_COMPLETE.getValue())) {
+					finish(gid, gid, null);
+				} else if (method.equals(Aria2Event.ON_DOWNLOAD_ERROR.getValue())) {
+					finish(gid, null, new Aria2Exception("下载失败: " + gid));
+				} else if (method.equals(Aria2Event.ON_DOWNLOAD_STOP.getValue())) {
+					finish(gid, null, new CancellationException("下载已删除: " + gid));
+				}
+			}
+			return;
+		}
+		var batch = inflight.remove(id);
+		if (batch == null) return;
+		var error = message.getJSONObject("error");
+		if (error != null) {
+			batch.forEach(l -> l.future.completeExceptionally(new Aria2Exception(error.getStringValue("message", error.toString()))));
+		} else if (batch.size() == 1) {
+			batch.get(0).future.complete(message.get("result"));
+		} else { // 每个元素为只包含返回值的数组,或包含 faultCode 和 faultString 的错误
+			var results = message.getJSONArray("result");
+			for (int i = 0; i < batch.size(); i++) {
+				var result = results == null || i >= results.size() ? null : results.get(i);
+				var future = batch.get(i).future;
+				if (result instanceof JSONArray array && !array.isEmpty()) {
+					future.complete(array.get(0));
+				} else if (result instanceof JSONObject fault) {
+					future.completeExceptionally(new Aria2Exception(fault.getStringValue("faultString", fault.toString())));
+				} else {
+					future.completeExceptionally(new Aria2Exception("缺少调用结果: " + batch.get(i).method));
+				}
+			}
+		}
+	}
+
+	/**
+	 * 查询下载状态,下载已经结束时完成等待
+	 *
+	 * @param gid  gid
+	 * @param fail 连接失败时是否结束等待,为false时由下一次重连重新查询
+	 */
+	private void check(String gid, boolean fail) {
+		tellStatus(gid, "status", "errorMessage").whenComplete((status, e) -> {
+			if (e != null) {
+				if (fail || connected()) finish(gid, null, e instanceof CompletionException ? e.getCause() : e); // 连接正常时为aria2返回的错误
+				return;
+			}
+			switch (status.getStringValue("status", "")) {
+				case "complete" -> finish(gid, gid, null);
+				case "error" -> finish(gid, null, new Aria2Exception("下载失败: " + gid + " " + status.getStringValue("errorMessage", "")));
+				case "removed" -> finish(gid, null, new CancellationException("下载已删除: " + gid));
+			}
+		});
+	}
+
+	/**
+	 * 重新建立连接,并重新查询所有等待中的下载
+	 */
+	private void reconnect() {
+		if (socket() == null) return;
+		waiting.keySet().forEach(gid -> check(gid, false));
+	}
+
+	private synchronized boolean connected() {
+		return socket != null;
+	}
+
+	private void finish(String gid, String result, Throwable e) {
+		var future = waiting.remove(gid);
+		if (future == null) return;
+		if (e == null) {
+			future.complete(result);
+		} else {
+			future.completeExceptionally(e);
+		}
+	}
+
+	private void disconnected(Throwable e) {
+		for (var id : List.copyOf(inflight.keySet())) {
+			var batch = inflight.remove(id);
+			if (batch != null) batch.forEach(l -> l.future.completeExceptionally(e));
+		}
+	}
+
+	private class Listener extends WebSocketListener {
+
+		public void onMessage(@NotNull WebSocket webSocket, @NotNull String text) {
+			try {
+				receive(text);
+			} catch (RuntimeException e) {
+				e.printStackTrace(); // 无法解析的消息不影响后续消息
+			}
+		}
+
+		public void onClosing(@NotNull WebSocket webSocket, int code, @NotNull String reason) {
+			webSocket.close(1000, null);
+		}
+
+		public void onClosed(@NotNull WebSocket webSocket, int code, @NotNull String reason) {
+			closed(webSocket, new Aria2Exception("连接已关闭: " + code + " " + reason));
+		}
+
+		public void onFailure(@NotNull WebSocket webSocket, @NotNull Throwable t, Response response) {
+			closed(webSocket, new Aria2Exception("连接失败: " + url, t));
+		}
+
+		private void closed(WebSocket webSocket, Throwable e) {
+			synchronized (Aria2Socket.this) {
+				if (socket != webSocket) return; // 已被替换的连接
+				socket = null;
+			}
+			disconnected(e);
+			if (!closed && (!listeners.isEmpty() || !waiting.isEmpty())) { // 存在订阅时重连,避免错过通知
+				SENDER.schedule(Aria2Socket.this::reconnect, RECONNECT_MILLIS, TimeUnit.MILLISECONDS);
+			}
+		}
+
+	}
+
+	private record Call(String method, JSONArray params, CompletableFuture<Object> future) {}
+
+}
@@ -13,6 +13,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -48,6 +49,26 @@ public class Aria2Util {
 		return new AriaConnection("http://" + host + ":" + port + "/jsonrpc");
 	}
 
+	/**
+	 * 创建 WebSocket 连接: <a href="ws://localhost:6800/jsonrpc">ws://localhost:6800/jsonrpc</a>
+	 *
+	 * @return WebSocket 连接
+	 */
+	public static Aria2Socket socket() {
+		return socket("localhost", 6800);
+	}
+
+	/**
+	 * 创建 WebSocket 连接,保持一个连接批量发送调用并接收下载通知
+	 *
+	 * @param host 域名
+	 * @param port 端口
+	 * @return WebSocket 连接
+	 */
+	public static Aria2Socket socket(@NotNull String host, int port) {
+		return new Aria2Socket("ws://" + host + ":" + port + "/jsonrpc");
+	}
+
 	private static class AriaConnection extends Aria2Connection {
 
 		private final String aria2RpcUrl;
@@ -223,6 +244,14 @@ public class Aria2Util {
 			return HttpsUtil.connect(aria2RpcUrl).requestBody(rpcSessionBody()).proxy(proxy).post().body();
 		}
 
+		public CompletableFuture<List<Object>> execute(@NotNull Aria2Socket socket) {
+			var futures = Stream.concat(rpcUrlSession().stream(), rpcSession().stream()).map(l -> (JSONObject) l).map(l -> {
+				var params = JSONArray.parseArray(l.getJSONArray("params").stream().filter(p -> !(p instanceof String s && s.startsWith("token:"))).toList());
+				return socket.call(l.getString("method"), params);
+			}).toList();
+			return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).thenApply(v -> futures.stream().map(CompletableFuture::join).toList());
+		}
+
 		private String rpcSessionBody() {
 			var sessionsJson = JSONArray.parseArray(Stream.concat(rpcUrlSession().stream(), rpcSession().stream()).toList());
 			return sessionsJson.size() == 1 ? sessionsJson.getJSONObject(0).toString() : sessionsJson.toString();
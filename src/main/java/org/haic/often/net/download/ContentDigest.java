@@ -0,0 +1,154 @@
+package org.haic.often.net.download;
+
+import org.haic.often.net.http.HttpStatus;
+import org.haic.often.net.http.Response;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * 响应内容摘要校验
+ * <p>
+ * 根据响应头 Content-Digest(RFC 9530)、Content-MD5(RFC 1864) 以及完整响应的 Digest(RFC 3230) 在写入数据的同时计算摘要,用于逐块校验,校验失败时只需重新获取该块
+ *
+ * @author haicdust
+ * @version 1.0
+ * @since 2026/10/19 18:50
+ */
+class ContentDigest {
+
+	/**
+	 * 摘要算法名称,按照优先级排列
+	 */
+	private static final Map<String, String> ALGORITHMS = Map.of("sha-512", "SHA-512", "sha-256", "SHA-256", "sha", "SHA-1", "md5", "MD5");
+
+	private final MessageDigest digest;
+	private final byte[] expected;
+
+	private ContentDigest(MessageDigest digest, byte[] expected) {
+		this.digest = digest;
+		this.expected = expected;
+	}
+
+	/**
+	 * 根据响应头创建校验器
+	 *
+	 * @param res 响应
+	 * @return 校验器,响应未提供可用的摘要时返回null
+	 */
+	@Nullable
+	static ContentDigest of(@NotNull Response res) {
+		var value = res.header("content-digest");
+		ContentDigest result;
+		if (value != null && (result = parse(value, true)) != null) return result;
+		if ((value = res.header("content-md5")) != null && value.length() == 24) { // 32位十六进制为非标准的完整文件摘要,不能用于分块
+			try {
+				return new ContentDigest(MessageDigest.getInstance("MD5"), Base64.getDecoder().decode(value.strip()));
+			} catch (NoSuchAlgorithmException | IllegalArgumentException e) {
+				return null;
+			}
+		}
+		if (res.statusCode() == HttpStatus.SC_OK && (value = res.header("digest")) != null) { // 实例摘要仅在完整响应中与内容一致
+			return parse(value, false);
+		}
+		return null;
+	}
+
+	/**
+	 * 解析摘要响应头,选择支持的最强算法
+	 *
+	 * @param value      响应头的值
+	 * @param structured 是否为结构化字段格式(值被冒号包围)
+	 * @return 校验器,没有支持的算法返回null
+	 */
+	@Nullable
+	private static ContentDigest parse(@NotNull String value, boolean structured) {
+		String algorithm = null;
+		byte[] expected = null;
+		int priority = Integer.MAX_VALUE;
+		for (var item : value.split(",")) {
+			int index = item.indexOf('=');
+			if (index == -1) continue;
+			var name = ALGORITHMS.get(item.substring(0, index).strip().toLowerCase());
+			if (name == null) continue;
+			int rank = name.equals("SHA-512") ? 0 : name.equals("SHA-256") ? 1 : name.equals("SHA-1") ? 2 : 3;
+			if (rank >= priority) continue;
+			var encoded = item.substring(index + 1).strip();
+			if (structured) {
+				if (encoded.length() < 2 || encoded.charAt(0) != ':' || encoded.charAt(encoded.length() - 1) != ':') continue;
+				encoded = encoded.substring(1, encoded.length() - 1);
+			}
+			try {
+				expected = Base64.getDecoder().decode(encoded);
+			} catch (IllegalArgumentException e) {
+				continue;
+			}
+			algorithm = name;
+			priority = rank;
+		}
+		try {
+			return algorithm == null ? null : new ContentDigest(MessageDigest.getInstance(algorithm), expected);
+		} catch (NoSuchAlgorithmException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * 根据hash位数创建相应类型的摘要,与 {@link org.haic.often.util.FileUtil#hashGet(java.io.File, String)} 一致
+	 *
+	 * @param hash hash值
+	 * @return 摘要,位数不正确时返回null
+	 */
+	@Nullable
+	static MessageDigest forHash(@NotNull String hash) {
+		var algorithm = switch (hash.length()) {
+			case 32 -> "MD5";
+			case 40 -> "SHA-1";
+			case 64 -> "SHA-256";
+			case 96 -> "SHA-384";
+			case 128 -> "SHA-512";
+			default -> null;
+		};
+		try {
+			return algorithm == null ? null : MessageDigest.getInstance(algorithm);
+		} catch (NoSuchAlgorithmException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * 获取摘要的十六进制字符串
+	 *
+	 * @param digest 摘要
+	 * @return 小写十六进制字符串
+	 */
+	static String hex(@NotNull MessageDigest digest) {
+		return HexFormat.of().formatHex(digest.digest());
+	}
+
+	/**
+	 * 写入数据
+	 *
+	 * @param b   数据
+	 * @param off 起始位置
+	 * @param len 长度
+	 */
+	void update(byte[] b, int off, int len) {
+		digest.update(b, off, len);
+	}
+
+	/**
+	 * 校验已写入的数据
+	 *
+	 * @return 摘要是否一致
+	 */
+	boolean verify() {
+		return MessageDigest.isEqual(digest.digest(), expected);
+	}
+
+}
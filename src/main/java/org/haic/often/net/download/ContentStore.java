@@ -0,0 +1,341 @@
+package org.haic.often.net.download;
+
+import org.haic.often.net.ParsedURL;
+import org.haic.often.util.FileUtil;
+import org.haic.often.util.ReadWriteUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 内容寻址存储
+ * <p>
+ * 按照文件hash值保存文件内容,目录结构为 objects/前两位/三四位/hash;相同内容只保存一份,通过硬链接放置到目标位置,不支持硬链接时复制
+ * <p>
+ * 每个对象记录引用它的文件路径,引用全部失效(文件被删除或内容被替换)后可以被回收;ETag 索引用于在没有hash值时通过响应头判断内容是否已存在
+ * <p>
+ * 注意:硬链接的文件与存储对象共享内容,原地修改文件会同时修改存储对象
+ *
+ * @author haicdust
+ * @version 1.0
+ * @since 2026/10/19 22:40
+ */
+public class ContentStore {
+
+	private static final String DEFAULT_ALGORITHM = "SHA-256"; // 未提供hash值时使用的算法
+	private final File root;
+
+	/**
+	 * 创建或打开存储
+	 *
+	 * @param root 存储目录
+	 */
+	public ContentStore(@NotNull String root) {
+		this(new File(root));
+	}
+
+	/**
+	 * 创建或打开存储
+	 *
+	 * @param root 存储目录
+	 */
+	public ContentStore(@NotNull File root) {
+		this.root = root;
+	}
+
+	/**
+	 * 获取存储目录
+	 *
+	 * @return 存储目录
+	 */
+	public File root() {
+		return root;
+	}
+
+	/**
+	 * 获取hash值对应的对象文件,文件可能不存在
+	 *
+	 * @param hash hash值
+	 * @return 对象文件
+	 */
+	public File object(@NotNull String hash) {
+		if (!isHash(hash)) throw new IllegalArgumentException("hash值格式不正确: " + hash);
+		var key = hash.toLowerCase();
+		return new File(root, "objects" + File.separator + key.substring(0, 2) + File.separator + key.substring(2, 4) + File.separator + key);
+	}
+
+	/**
+	 * 是否存在hash值对应的内容
+	 *
+	 * @param hash hash值
+	 * @return 是否存在
+	 */
+	public boolean contains(@Nullable String hash) {
+		return isHash(hash) && object(hash).isFile();
+	}
+
+	/**
+	 * 判断是否可以作为存储的hash值,必须为十六进制字符串
+	 *
+	 * @param hash hash值
+	 * @return 判断结果
+	 */
+	public static boolean isHash(@Nullable String hash) {
+		return hash != null && hash.length() >= 4 && hash.chars().allMatch(c -> c >= '0' && c <= '9' || c >= 'a' && c <= 'f' || c >= 'A' && c <= 'F');
+	}
+
+	/**
+	 * 通过 ETag 查询内容的hash值,弱 ETag 不能保证内容一致,将被忽略
+	 *
+	 * @param url  资源URL,ETag 只在同一资源内有效,使用规范化后的完整URL区分
+	 * @param etag ETag
+	 * @return hash值,不存在或内容已被回收时返回null
+	 */
+	@Nullable
+	public String lookup(@NotNull String url, @Nullable String etag) {
+		var index = index(url, etag);
+		if (index == null || !index.isFile()) return null;
+		var hash = ReadWriteUtil.orgin(index).read().strip();
+		return contains(hash) ? hash : null;
+	}
+
+	/**
+	 * 记录 ETag 对应的hash值
+	 *
+	 * @param url  资源URL
+	 * @param etag ETag
+	 * @param hash hash值
+	 */
+	public synchronized void tag(@NotNull String url, @Nullable String etag, @NotNull String hash) {
+		var index = index(url, etag);
+		if (index != null) ReadWriteUtil.orgin(index).append(false).write(hash.toLowerCase());
+	}
+
+	/**
+	 * 将文件加入存储,使用 SHA-256 作为hash值
+	 *
+	 * @param file 文件
+	 * @return hash值,读取失败返回null
+	 */
+	@Nullable
+	public String put(@NotNull File file) {
+		var hash = FileUtil.hashes(file, DEFAULT_ALGORITHM).get(DEFAULT_ALGORITHM);
+		return hash == null ? null : put(file, hash);
+	}
+
+	/**
+	 * 将文件加入存储,文件本身作为一个引用保留在原位置
+	 * <p>
+	 * hash值由调用者保证与文件内容一致,例如已经过下载校验
+	 *
+	 * @param file 文件
+	 * @param hash 文件hash值
+	 * @return hash值,加入失败返回null
+	 */
+	@Nullable
+	public synchronized String put(@NotNull File file, @NotNull String hash) {
+		var object = object(hash);
+		if (!object.isFile()) {
+			FileUtil.createFolder(object.getParentFile());
+			if (!link(file.toPath(), object.toPath())) return null;
+		}
+		reference(object, file);
+		return hash.toLowerCase();
+	}
+
+	/**
+	 * 将hash值对应的内容放置到目标位置,优先使用硬链接,只产生元数据操作
+	 *
+	 * @param hash   hash值
+	 * @param target 目标文件,必须不存在
+	 * @return 是否成功,内容不存在或目标已存在时返回false
+	 */
+	public synchronized boolean materialize(@NotNull String hash, @NotNull File target) {
+		var object = object(hash);
+		if (!object.isFile() || target.exists()) return false;
+		var parent = target.getParentFile();
+		if (parent != null) FileUtil.createFolder(parent);
+		if (!link(object.toPath(), target.toPath())) return false;
+		reference(object, target);
+		return true;
+	}
+
+	/**
+	 * 获取hash值对应内容的有效引用数量
+	 *
+	 * @param hash hash值
+	 * @return 引用数量
+	 */
+	public synchronized int references(@NotNull String hash) {
+		var object = object(hash);
+		return object.isFile() ? prune(object, false).size() : 0;
+	}
+
+	/**
+	 * 移除目标文件对内容的引用,不删除目标文件;没有引用时删除存储对象
+	 *
+	 * @param hash   hash值
+	 * @param target 目标文件
+	 * @return 存储对象是否被删除
+	 */
+	public synchronized boolean release(@NotNull String hash, @NotNull File target) {
+		var object = object(hash);
+		var refs = prune(object, false);
+		refs.remove(target.getAbsolutePath());
+		return save(object, refs);
+	}
+
+	/**
+	 * 回收没有有效引用的存储对象
+	 * <p>
+	 * 复制的引用将重新计算hash值校验内容,耗时与复制的文件总大小成正比
+	 *
+	 * @return 回收的对象数量
+	 */
+	public synchronized int gc() {
+		var objects = new File(root, "objects");
+		int count = 0;
+		List<Path> paths;
+		try (var stream = FileUtil.walk(objects, (path, attrs) -> !path.getFileName().toString().endsWith(".refs"))) {
+			paths = stream.toList(); // 遍历时不修改目录
+		}
+		for (var path : paths) {
+			var object = path.toFile();
+			if (save(object, prune(object, true))) count++;
+		}
+		FileUtil.deleteBlankDirectory(objects);
+		return count;
+	}
+
+	/**
+	 * 获取 ETag 索引文件
+	 */
+	private File index(String url, String etag) {
+		if (etag == null || etag.isBlank() || etag.startsWith("W/")) return null;
+		String key;
+		try {
+			key = ParsedURL.parse(url).normalize().toString();
+		} catch (IllegalArgumentException e) {
+			key = url.strip();
+		}
+		try {
+			var digest = MessageDigest.getInstance(DEFAULT_ALGORITHM).digest((key + "\n" + etag.strip()).getBytes(StandardCharsets.UTF_8));
+			return new File(root, "etags" + File.separator + HexFormat.of().formatHex(digest));
+		} catch (NoSuchAlgorithmException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * 记录引用
+	 */
+	private void reference(File object, File target) {
+		var refs = prune(object, false);
+		refs.put(target.getAbsolutePath(), target.lastModified());
+		save(object, refs);
+	}
+
+	/**
+	 * 读取引用,移除已删除或内容已被替换的引用
+	 * <p>
+	 * 硬链接的引用与对象为同一文件;复制的引用比较长度和记录的修改时间,校验内容时重新计算hash值比较,hash值长度无法对应已知算法时只按长度判断
+	 *
+	 * @param object 存储对象
+	 * @param verify 是否重新计算复制的引用的hash值,只在回收时校验,避免每次放置文件时在锁内读取全部复制的文件
+	 * @return 引用路径和记录的修改时间
+	 */
+	private Map<String, Long> prune(File object, boolean verify) {
+		var file = refs(object);
+		var refs = new LinkedHashMap<String, Long>();
+		if (!file.isFile()) return refs;
+		for (var line : ReadWriteUtil.orgin(file).readAsLine()) {
+			if (line.isBlank()) continue;
+			var path = line;
+			long modified = -1; // 旧版引用未记录修改时间
+			int index = line.indexOf('\t');
+			if (index > 0) {
+				try {
+					modified = Long.parseLong(line.substring(0, index));
+					path = line.substring(index + 1);
+				} catch (NumberFormatException e) {
+					// 路径中包含制表符的旧版引用
+				}
+			}
+			var target = new File(path);
+			try {
+				if (!target.isFile()) continue;
+				long lastModified = target.lastModified();
+				if (Files.isSameFile(target.toPath(), object.toPath())) {
+					refs.put(path, lastModified);
+				} else if (target.length() == object.length() && (verify ? sameContent(target, object) : modified == -1 || modified == lastModified)) {
+					refs.put(path, lastModified);
+				}
+			} catch (IOException e) {
+				// 无法访问的引用视为失效
+			}
+		}
+		return refs;
+	}
+
+	/**
+	 * 比较复制的引用与对象的hash值,按照hash值长度确定算法
+	 */
+	private static boolean sameContent(File target, File object) {
+		var hash = object.getName();
+		var algorithm = switch (hash.length()) {
+			case 32 -> "MD5";
+			case 40 -> "SHA-1";
+			case 64 -> "SHA-256";
+			case 128 -> "SHA-512";
+			default -> null;
+		};
+		return algorithm == null || hash.equalsIgnoreCase(FileUtil.hashes(target, algorithm).get(algorithm));
+	}
+
+	/**
+	 * 保存引用,没有引用时删除对象
+	 *
+	 * @return 对象是否被删除
+	 */
+	private boolean save(File object, Map<String, Long> refs) {
+		var file = refs(object);
+		if (refs.isEmpty()) {
+			file.delete();
+			return object.delete();
+		}
+		ReadWriteUtil.orgin(file).append(false).writeAsLine(refs.entrySet().stream().map(l -> l.getValue() + "\t" + l.getKey()).toList()); // 修改时间\t路径
+		return false;
+	}
+
+	private File refs(File object) {
+		return new File(object.getPath() + ".refs");
+	}
+
+	/**
+	 * 创建硬链接,不支持时复制文件
+	 *
+	 * @param existing 已存在的文件
+	 * @param link     新文件
+	 * @return 是否成功
+	 */
+	private static boolean link(Path existing, Path link) {
+		try {
+			Files.createLink(link, existing);
+			return true;
+		} catch (UnsupportedOperationException | IOException e) {
+			return FileUtil.copyFile(existing.toFile(), link.toFile()); // 跨文件系统或不支持硬链接
+		}
+	}
+
+}
@@ -0,0 +1,285 @@
+package org.haic.often.net.download;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 下载断点日志
+ * <p>
+ * 以定长记录(块标识、断点位置、校验和)追加写入内存映射文件,每次记录仅为一次内存写入,不产生系统调用,并定期刷新至磁盘
+ * <p>
+ * 进程崩溃时已写入的记录由操作系统保留,不依赖关闭钩子;读取时同一块以最后一条记录为准,校验和不匹配的记录将被忽略
+ * <p>
+ * 空间不足或关闭时压缩为每块一条记录,压缩前先完整写入备份文件,压缩中途崩溃时从备份恢复
+ *
+ * @author haicdust
+ * @version 1.0
+ * @since 2026/10/19 18:10
+ */
+class DownloadJournal implements Closeable {
+
+	private static final int MAGIC = 0x534A4E4C; // SJNL
+	private static final int HEADER_SIZE = 8; // 魔数 + 记录数
+	private static final int RECORD_SIZE = 24; // 块标识 + 断点位置 + 校验和 + 填充
+	private static final int INITIAL_CAPACITY = 4096; // 初始记录容量
+	private static final long FLUSH_INTERVAL = 1000; // 刷新间隔(毫秒)
+	private static final long REMOVED = Long.MIN_VALUE; // 删除标记
+
+	private final File file;
+	private final FileChannel channel;
+	private MappedByteBuffer buffer;
+	private int capacity;
+	private int count;
+	private long lastFlush = System.currentTimeMillis();
+
+	private DownloadJournal(File file, Map<Long, Long> entries) throws IOException {
+		this.file = file;
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		rewrite(entries, Math.max(INITIAL_CAPACITY, entries.size() * 2));
+	}
+
+	/**
+	 * 获取会话文件对应的日志文件
+	 *
+	 * @param session 会话文件
+	 * @return 日志文件
+	 */
+	static File of(@NotNull File session) {
+		return new File(session.getPath() + ".journal");
+	}
+
+	/**
+	 * 创建新的日志,已存在的日志将被清空
+	 *
+	 * @param file 日志文件
+	 * @return 日志
+	 */
+	static DownloadJournal create(@NotNull File file) {
+		try {
+			return new DownloadJournal(file, Map.of());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * 打开日志,读取已有记录,不存在时创建
+	 *
+	 * @param file 日志文件
+	 * @return 日志
+	 */
+	static DownloadJournal open(@NotNull File file) {
+		try {
+			return new DownloadJournal(file, recover(file));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * 读取日志文件中每个块的最新断点位置
+	 *
+	 * @param file 日志文件
+	 * @return 块标识和断点位置
+	 */
+	static Map<Long, Long> read(@NotNull File file) throws IOException {
+		var entries = new LinkedHashMap<Long, Long>();
+		if (!file.isFile() || file.length() < HEADER_SIZE) return entries;
+		try (var channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.getInt(0) != MAGIC) return entries;
+			int count = (int) Math.min(buffer.getInt(4), (channel.size() - HEADER_SIZE) / RECORD_SIZE);
+			for (int i = 0; i < count; i++) {
+				int position = HEADER_SIZE + i * RECORD_SIZE;
+				long piece = buffer.getLong(position);
+				long offset = buffer.getLong(position + 8);
+				if (buffer.getInt(position + 16) != checksum(piece, offset)) break; // 写入中断的记录
+				if (offset == REMOVED) {
+					entries.remove(piece);
+				} else {
+					entries.put(piece, offset);
+				}
+			}
+		}
+		return entries;
+	}
+
+	/**
+	 * 读取日志,存在完整的备份时说明上次压缩未完成,以备份为准
+	 *
+	 * @param file 日志文件
+	 * @return 块标识和断点位置
+	 */
+	private static Map<Long, Long> recover(File file) throws IOException {
+		var backup = backup(file);
+		if (!backup.isFile()) return read(file);
+		try (var channel = FileChannel.open(backup.toPath(), StandardOpenOption.READ)) {
+			var header = ByteBuffer.allocate(4);
+			if (channel.read(header, 0) == 4 && header.getInt(0) == MAGIC) return read(backup);
+		}
+		Files.delete(backup.toPath()); // 写入中断的备份,日志文件未被修改
+		return read(file);
+	}
+
+	/**
+	 * 获取当前每个块的最新断点位置
+	 *
+	 * @return 块标识和断点位置
+	 */
+	synchronized Map<Long, Long> entries() {
+		try {
+			force();
+			return read(file);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * 记录块的断点位置
+	 *
+	 * @param piece  块标识
+	 * @param offset 断点位置
+	 */
+	synchronized void record(long piece, long offset) {
+		if (buffer == null) return; // 已关闭
+		if (count == capacity) compact();
+		int position = HEADER_SIZE + count * RECORD_SIZE;
+		buffer.putLong(position, piece).putLong(position + 8, offset).putInt(position + 16, checksum(piece, offset));
+		buffer.putInt(4, ++count);
+		long now = System.currentTimeMillis();
+		if (now - lastFlush >= FLUSH_INTERVAL) {
+			buffer.force();
+			lastFlush = now;
+		}
+	}
+
+	/**
+	 * 删除块的记录
+	 *
+	 * @param piece 块标识
+	 */
+	void remove(long piece) {
+		record(piece, REMOVED);
+	}
+
+	/**
+	 * 将记录刷新至磁盘
+	 */
+	synchronized void force() {
+		if (buffer != null) buffer.force();
+	}
+
+	/**
+	 * 压缩记录并关闭日志
+	 */
+	public synchronized void close() {
+		if (buffer == null) return;
+		try {
+			rewrite(read(), capacity);
+			buffer.force();
+			buffer = null;
+			channel.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * 关闭并删除日志文件,用于下载完成
+	 */
+	synchronized void delete() {
+		close();
+		if (!file.delete()) file.deleteOnExit(); // 部分系统在映射释放前无法删除
+	}
+
+	/**
+	 * 压缩记录,压缩后空间仍不足时扩容
+	 */
+	private void compact() {
+		var entries = read();
+		try {
+			rewrite(entries, entries.size() * 2 > capacity ? capacity * 2 : capacity);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * 从当前映射读取记录
+	 */
+	private Map<Long, Long> read() {
+		var entries = new LinkedHashMap<Long, Long>();
+		for (int i = 0; i < count; i++) {
+			int position = HEADER_SIZE + i * RECORD_SIZE;
+			long piece = buffer.getLong(position);
+			long offset = buffer.getLong(position + 8);
+			if (offset == REMOVED) {
+				entries.remove(piece);
+			} else {
+				entries.put(piece, offset);
+			}
+		}
+		return entries;
+	}
+
+	/**
+	 * 重写日志为每块一条记录
+	 * <p>
+	 * 原地重写中途崩溃会丢失记录,因此先写入备份文件,重写完成后删除
+	 */
+	private void rewrite(Map<Long, Long> entries, int capacity) throws IOException {
+		var backup = backup(file);
+		write(backup, entries);
+		if (buffer == null || capacity != this.capacity) {
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+			this.capacity = capacity;
+		}
+		buffer.putInt(4, 0); // 先清空记录数,防止重写中途崩溃时读取到混合记录
+		int i = 0;
+		for (var entry : entries.entrySet()) {
+			int position = HEADER_SIZE + i++ * RECORD_SIZE;
+			buffer.putLong(position, entry.getKey()).putLong(position + 8, entry.getValue()).putInt(position + 16, checksum(entry.getKey(), entry.getValue()));
+		}
+		buffer.putInt(0, MAGIC).putInt(4, count = entries.size());
+		buffer.force();
+		Files.delete(backup.toPath());
+	}
+
+	/**
+	 * 写入日志文件,魔数最后写入,魔数存在时文件完整
+	 */
+	private static void write(File file, Map<Long, Long> entries) throws IOException {
+		var data = ByteBuffer.allocate(HEADER_SIZE + entries.size() * RECORD_SIZE).putInt(0).putInt(entries.size());
+		for (var entry : entries.entrySet()) {
+			data.putLong(entry.getKey()).putLong(entry.getValue()).putInt(checksum(entry.getKey(), entry.getValue())).putInt(0);
+		}
+		try (var channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			for (data.flip(); data.hasRemaining(); ) channel.write(data);
+			channel.force(true);
+			channel.write(ByteBuffer.allocate(4).putInt(0, MAGIC), 0);
+			channel.force(true);
+		}
+	}
+
+	private static File backup(File file) {
+		return new File(file.getPath() + ".bak");
+	}
+
+	private static int checksum(long piece, long offset) {
+		long hash = (piece ^ Long.rotateLeft(offset, 29)) * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ hash >>> 32) ^ MAGIC;
+	}
+
+}
@@ -0,0 +1,261 @@
+package org.haic.often.net.download;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 下载进度
+ * <p>
+ * 下载线程将传输的字节数累加至分段计数器(LongAdder),不产生锁竞争;所有下载共用一个调度线程,按照监听频率汇总计数并推送给监听器,无需为每个下载创建监听线程
+ * <p>
+ * 吞吐量为按照时间衰减的指数加权平均,与监听频率无关;剩余时间按照平滑后的吞吐量估算
+ *
+ * @author haicdust
+ * @version 1.0
+ * @since 2026/10/19 21:20
+ */
+public class DownloadProgress {
+
+	private static final double TAU = 3; // 吞吐量平滑时间常数(秒)
+	private static final ScheduledExecutorService TICKER = Executors.newSingleThreadScheduledExecutor(r -> {
+		var thread = new Thread(r, "DownloadProgress");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final LongAdder transferred = new LongAdder();
+	private final Map<String, Source> sources = new ConcurrentHashMap<>();
+	private final AtomicInteger completedPieces = new AtomicInteger();
+	private volatile String fileName;
+	private volatile long fileSize;
+	private volatile int pieces;
+	private volatile double rate; // 平滑后的吞吐量(字节/秒)
+	private volatile long delta; // 最近一次推送以来传输的字节数
+	private long lastTotal;
+	private long lastTick;
+	private boolean sampled;
+	private volatile ProgressListener listener;
+	private ScheduledFuture<?> future;
+
+	DownloadProgress() {
+	}
+
+	/**
+	 * 获取文件名
+	 *
+	 * @return 文件名
+	 */
+	public String fileName() {
+		return fileName;
+	}
+
+	/**
+	 * 获取文件大小
+	 *
+	 * @return 文件大小,未知为0
+	 */
+	public long fileSize() {
+		return fileSize;
+	}
+
+	/**
+	 * 获取已传输的字节数,包括断点续传前已下载的部分
+	 *
+	 * @return 已传输的字节数
+	 */
+	public long transferred() {
+		return transferred.sum();
+	}
+
+	/**
+	 * 获取最近一次推送以来传输的字节数
+	 *
+	 * @return 字节数
+	 */
+	public long delta() {
+		return delta;
+	}
+
+	/**
+	 * 获取平滑后的吞吐量
+	 *
+	 * @return 吞吐量(字节/秒)
+	 */
+	public double rate() {
+		return rate;
+	}
+
+	/**
+	 * 获取预计剩余时间
+	 *
+	 * @return 剩余时间(秒),文件大小未知或尚无吞吐量时为-1
+	 */
+	public long eta() {
+		double rate = this.rate;
+		long remaining = fileSize - transferred.sum();
+		if (fileSize <= 0 || rate <= 0) return -1;
+		return remaining <= 0 ? 0 : (long) Math.ceil(remaining / rate);
+	}
+
+	/**
+	 * 获取每个来源主机的平滑吞吐量
+	 *
+	 * @return 主机和吞吐量(字节/秒)
+	 */
+	public Map<String, Double> sources() {
+		var result = new LinkedHashMap<String, Double>();
+		sources.forEach((host, source) -> result.put(host, source.rate));
+		return result;
+	}
+
+	/**
+	 * 获取下载块总数
+	 *
+	 * @return 块总数,不分块下载时为0
+	 */
+	public int pieces() {
+		return pieces;
+	}
+
+	/**
+	 * 获取已完成的下载块数量
+	 *
+	 * @return 已完成的块数量
+	 */
+	public int completedPieces() {
+		return completedPieces.get();
+	}
+
+	/**
+	 * 重置进度,开始新的下载
+	 */
+	void reset() {
+		transferred.reset();
+		sources.clear();
+		completedPieces.set(0);
+		pieces = 0;
+		rate = 0;
+		delta = 0;
+	}
+
+	/**
+	 * 设置下载块总数
+	 *
+	 * @param pieces 块总数
+	 */
+	void pieces(int pieces) {
+		this.pieces = pieces;
+	}
+
+	/**
+	 * 记录断点续传时跳过的已完成块,不触发事件
+	 *
+	 * @param count 块数量
+	 */
+	void skipped(int count) {
+		completedPieces.addAndGet(count);
+	}
+
+	/**
+	 * 记录传输的字节数,不区分来源,用于断点续传的已下载部分和回退
+	 *
+	 * @param bytes 字节数,回退时为负数
+	 */
+	void add(long bytes) {
+		transferred.add(bytes);
+	}
+
+	/**
+	 * 记录从指定主机传输的字节数
+	 *
+	 * @param host  来源主机
+	 * @param bytes 字节数
+	 */
+	void add(@NotNull String host, long bytes) {
+		transferred.add(bytes);
+		var source = sources.get(host);
+		if (source == null) source = sources.computeIfAbsent(host, l -> new Source());
+		source.transferred.add(bytes);
+	}
+
+	/**
+	 * 记录下载块完成,在下载线程中通知监听器
+	 *
+	 * @param piece 块标识,分块下载为起始位置,HLS为块序号
+	 * @param bytes 块大小
+	 */
+	void completed(long piece, long bytes) {
+		completedPieces.incrementAndGet();
+		var listener = this.listener;
+		if (listener != null) listener.pieceCompleted(this, piece, bytes);
+	}
+
+	/**
+	 * 开始按照监听频率推送进度
+	 *
+	 * @param fileName 文件名
+	 * @param fileSize 文件大小,未知为0
+	 * @param listener 监听器,为null时不推送
+	 * @param millis   监听频率(毫秒)
+	 */
+	synchronized void start(String fileName, long fileSize, ProgressListener listener, int millis) {
+		this.fileName = fileName;
+		this.fileSize = fileSize;
+		this.listener = listener;
+		lastTotal = transferred.sum();
+		lastTick = System.nanoTime();
+		sampled = false;
+		if (listener != null) future = TICKER.scheduleAtFixedRate(this::tick, millis, millis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 停止推送,并推送最后一次进度
+	 */
+	synchronized void stop() {
+		if (future == null) return;
+		future.cancel(false);
+		future = null;
+		tick();
+		listener = null;
+	}
+
+	private synchronized void tick() {
+		long now = System.nanoTime();
+		double seconds = (now - lastTick) / 1e9;
+		if (seconds <= 0) return;
+		double alpha = sampled ? 1 - Math.exp(-seconds / TAU) : 1; // 首次采样直接使用
+		long total = transferred.sum();
+		delta = total - lastTotal;
+		rate += alpha * (Math.max(delta, 0) / seconds - rate);
+		for (var source : sources.values()) {
+			long sum = source.transferred.sum();
+			double sample = Math.max(sum - source.lastTotal, 0) / seconds;
+			source.rate = source.sampled ? source.rate + (1 - Math.exp(-seconds / TAU)) * (sample - source.rate) : sample;
+			source.sampled = true;
+			source.lastTotal = sum;
+		}
+		sampled = true;
+		lastTotal = total;
+		lastTick = now;
+		try {
+			if (listener != null) listener.progress(this);
+		} catch (RuntimeException e) {
+			e.printStackTrace(); // 监听器异常不影响其它下载的推送
+		}
+	}
+
+	private static class Source {
+
+		private final LongAdder transferred = new LongAdder();
+		private volatile double rate;
+		private long lastTotal;
+		private boolean sampled;
+
+	}
+
+}
@@ -1,5 +1,6 @@
 package org.haic.often.net.download;
 
+import org.haic.often.net.http.RetryPolicy;
 import org.haic.often.util.StringUtil;
 import org.jetbrains.annotations.NotNull;
 
@@ -91,6 +92,36 @@ public abstract class HLSConnection {
      */
     public abstract HLSConnection select(@NotNull Predicate<String> select);
 
+    /**
+     * 根据实测带宽自动选择码率,仅对多码率主播放列表生效,启用后在 {@link #select(Predicate)} 筛选结果中选择
+     * <p>
+     * 先以最低码率并行下载前几个分片测量实际吞吐量,再选择能够在目标时长内完成下载的最高码率,无法满足时使用最低码率
+     *
+     * @param seconds 期望的下载时长(秒),0为按照播放时长(即下载速度不低于播放速度),负数为不启用
+     * @return 此连接，用于链接
+     */
+    public abstract HLSConnection adaptive(int seconds);
+
+    /**
+     * 启用直播录制模式,仅对未包含 EXT-X-ENDLIST 的播放列表生效
+     * <p>
+     * 按照 EXT-X-TARGETDURATION 间隔重新获取播放列表,根据 EXT-X-MEDIA-SEQUENCE 仅下载新增的分片并按顺序追加写入文件,直至出现 EXT-X-ENDLIST 或线程被中断
+     * <p>
+     * 直播录制不会生成会话文件,无法断点续传
+     *
+     * @param live 启用直播录制,默认false
+     * @return 此连接，用于链接
+     */
+    public abstract HLSConnection live(boolean live);
+
+    /**
+     * 启用直播录制模式,并设置录制时长,超过时长后停止录制
+     *
+     * @param seconds 录制时长(秒),0为不限制
+     * @return 此连接，用于链接
+     */
+    public abstract HLSConnection live(int seconds);
+
     /**
      * 连接用户代理（ 字符串 用户代理）<br/> 设置请求用户代理标头
      *
@@ -306,6 +337,16 @@ public abstract class HLSConnection {
      */
     public abstract HLSConnection retryStatusCodes(List<Integer> retryStatusCodes);
 
+    /**
+     * 设置重试策略,用于计算重试等待时间(指数退避、随机抖动、Retry-After、按主机熔断),替代固定的重试等待时间
+     * <p>
+     * 重试次数仍由 retry 方法控制
+     *
+     * @param retryPolicy 重试策略
+     * @return 此连接，用于链接
+     */
+    public abstract HLSConnection retryPolicy(@NotNull RetryPolicy retryPolicy);
+
     /**
      * 设置写入文件时缓冲区大小,默认大小为8192字节
      *
@@ -347,6 +388,23 @@ public abstract class HLSConnection {
      */
     public abstract HLSConnection listener(@NotNull HLSListener listener, int millis);
 
+    /**
+     * 设置进度监听器,每秒推送一次
+     *
+     * @param listener 进度监听器
+     * @return 此连接，用于链接
+     */
+    public abstract HLSConnection progress(@NotNull ProgressListener listener);
+
+    /**
+     * 设置进度监听器,所有下载共用推送线程,提供平滑吞吐量、各来源吞吐量和分片完成事件
+     *
+     * @param listener 进度监听器
+     * @param millis   推送频率(毫秒)
+     * @return 此连接，用于链接
+     */
+    public abstract HLSConnection progress(@NotNull ProgressListener listener, int millis);
+
     /**
      * 下载网络文件,返回状态码
      * <p>
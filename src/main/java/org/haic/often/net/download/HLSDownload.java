@@ -4,9 +4,10 @@ import org.haic.often.Judge;
 import org.haic.often.exception.AESException;
 import org.haic.often.exception.HLSDownloadException;
 import org.haic.often.net.URIUtil;
+import org.haic.often.net.http.Connection;
 import org.haic.often.net.http.HttpStatus;
 import org.haic.often.net.http.HttpsUtil;
-import org.haic.often.net.http.Response;
+import org.haic.often.net.http.RetryPolicy;
 import org.haic.often.parser.json.JSONObject;
 import org.haic.often.thread.ConsumerThread;
 import org.haic.often.util.*;
@@ -18,14 +19,15 @@ import javax.crypto.spec.SecretKeySpec;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.net.InetSocketAddress;
 import java.net.Proxy;
+import java.security.GeneralSecurityException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
@@ -170,6 +172,7 @@ public class HLSDownload {
         private String url; // 请求URL
         private String fileName; // 文件名
         private final String SESSION_SUFFIX = ".hlsion";
+        private static final long MAX_PART_SIZE = 16 * 1024 * 1024; // 字节范围合并后的最大请求大小
         private int DEFAULT_BUFFER_SIZE = 8192;
         private String body;
         private byte[] key = new byte[0];
@@ -180,10 +183,14 @@ public class HLSDownload {
         private boolean unlimit;// 请求异常无限重试
         private boolean failThrow; // 错误异常
         private boolean rename; // 重命名
+        private boolean live; // 直播录制
+        private int liveSeconds; // 直播录制时长
+        private int adaptive = -1; // 自适应码率的期望下载时长,负数为不启用
         private Proxy proxy = Proxy.NO_PROXY; // 代理
         private File session; // 配置信息文件
         private File DEFAULT_FOLDER = SystemUtil.DEFAULT_DOWNLOAD_FOLDER; // 存储目录
         private List<Integer> retryStatusCodes = new ArrayList<>();
+        private RetryPolicy retryPolicy; // 重试策略
         private Function<byte[], byte[]> keyDecrypt = key -> key;
         private Predicate<String> select = l -> true;
 
@@ -193,11 +200,14 @@ public class HLSDownload {
         private String method = "FULL";// 下载模式
         private final SionRequest request = new SionRequest();
         private JSONObject fileInfo = new JSONObject();
-        private Runnable listener;
-        private int site;
-        private final AtomicLong schedule = new AtomicLong();
+        private ProgressListener listener; // 进度监听器
+        private int listenerMillis = 1000; // 推送频率
+        private int total; // 分片总数
+        private final DownloadProgress progress = new DownloadProgress();
         private final Map<File, Long> status = new ConcurrentHashMap<>();
-        private List<String> links;
+        private final Map<String, byte[]> keys = new ConcurrentHashMap<>(); // 按URI缓存的密钥
+        private DownloadJournal journal; // 断点日志
+        private List<Part> parts;
 
         private HttpConnection() {
         }
@@ -253,6 +263,22 @@ public class HLSDownload {
             return this;
         }
 
+        public HLSConnection adaptive(int seconds) {
+            this.adaptive = seconds;
+            return this;
+        }
+
+        public HLSConnection live(boolean live) {
+            this.live = live;
+            return this;
+        }
+
+        public HLSConnection live(int seconds) {
+            this.live = true;
+            this.liveSeconds = seconds;
+            return this;
+        }
+
         public HLSConnection userAgent(@NotNull String userAgent) {
             return header("user-agent", userAgent);
         }
@@ -357,6 +383,11 @@ public class HLSDownload {
             return this;
         }
 
+        public HLSConnection retryPolicy(@NotNull RetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
         public HLSConnection bufferSize(int bufferSize) {
             DEFAULT_BUFFER_SIZE = bufferSize;
             return this;
@@ -376,15 +407,16 @@ public class HLSDownload {
         }
 
         public HLSConnection listener(@NotNull HLSListener listener, int millis) {
-            this.listener = () -> {
-                long schedule, rate = 0;
-                do {
-                    ThreadUtil.waitThread(millis);
-                    schedule = this.schedule.get();
-                    listener.bytesTransferred(fileName, schedule - rate, site, links.size());
-                    rate = schedule;
-                } while (!Thread.currentThread().isInterrupted());
-            };
+            return progress(l -> listener.bytesTransferred(l.fileName(), l.delta(), l.completedPieces(), l.pieces()), millis);
+        }
+
+        public HLSConnection progress(@NotNull ProgressListener listener) {
+            return progress(listener, 1000);
+        }
+
+        public HLSConnection progress(@NotNull ProgressListener listener, int millis) {
+            this.listener = listener;
+            this.listenerMillis = millis;
             return this;
         }
 
@@ -395,24 +427,16 @@ public class HLSDownload {
         private SionResponse execute(@NotNull String method) {
             initializationStatus(); // 初始化进度
             File storage;
-            var conn = HttpsUtil.newSession().proxy(proxy).headers(headers).cookies(cookies).retry(MAX_RETRY, MILLISECONDS_SLEEP).retry(unlimit).retryStatusCodes(retryStatusCodes).failThrow(failThrow);
+            var conn = HttpsUtil.newSession().proxy(proxy).headers(headers).cookies(cookies).retry(MAX_RETRY, MILLISECONDS_SLEEP).retry(unlimit).retryStatusCodes(retryStatusCodes).retryPolicy(retryPolicy()).failThrow(failThrow);
             switch (method) {
                 case "BODY" -> {
-                    var info = body.lines().toList();
-                    if (!info.get(0).equals("#EXTM3U")) {
-                        throw new HLSDownloadException("内容不是M3U8格式");
-                    }
-                    if (info.get(1).startsWith("#EXT-X-STREAM-INF")) {
-                        String redirectUrl = null;
-                        for (int i = 1; i < info.size(); i += 2) {
-                            if (select.test(info.get(i))) {
-                                redirectUrl = URIUtil.toAbsoluteUrl(url, info.get(++i));
-                                break;
-                            }
-                        }
-                        if (redirectUrl == null) {
+                    var playlist = HLSPlaylist.parse(url, body);
+                    if (playlist.master()) {
+                        var variants = playlist.variants().stream().filter(l -> select.test(l.info())).toList();
+                        if (variants.isEmpty()) {
                             throw new HLSDownloadException("EXT-X-STREAM-INF筛选结果为空");
                         }
+                        var redirectUrl = adaptive < 0 ? variants.get(0).url() : adapt(conn, variants).url();
                         request.setUrl(this.url = redirectUrl);
                         fileInfo.put("url", redirectUrl);
                         return execute("FULL");
@@ -424,52 +448,27 @@ public class HLSDownload {
                     if (storage.exists()) {
                         throw new HLSDownloadException("存储文件已经存在: " + storage);
                     }
-                    var keyInfo = info.stream().filter(l -> l.startsWith("#EXT-X-KEY")).findFirst().orElse(null);
-                    if (keyInfo != null) {
-                        var extKey = keyInfo.substring(11).split(",");
-                        var encryptMethod = extKey[0].substring(7);
-
-                        for (var ext : extKey) {
-                            var entry = ext.split("=");
-                            switch (entry[0]) {
-                                case "METHO" -> {
-                                    if (!encryptMethod.contains("AES") && !encryptMethod.equals("QINIU-PROTECTION-10")) {
-                                        throw new HLSDownloadException("未知的解密方法: " + encryptMethod);
-                                    }
-                                }
-                                case "URI" -> {
-                                    var keyUrl = URIUtil.toAbsoluteUrl(url, StringUtil.strip(entry[1], "\""));
-
-                                    var res = conn.url(keyUrl).execute();
-                                    int statusCode = res.statusCode();
-                                    if (!URIUtil.statusIsOK(statusCode)) {
-                                        return new HttpResponse(this, request.statusCode(statusCode));
-                                    }
-                                    request.headers(res.headers()).cookies(res.cookies());
-                                    key = keyDecrypt.apply(res.bodyAsBytes()); // key解密
-                                }
-                                case "KEY" -> key = keyDecrypt.apply(entry[1].getBytes());
-                                case "IV" -> iv = entry[1].startsWith("0x") ? entry[1].substring(2) : entry[1];
-                            }
-                        }
-
-                        // 效验key格式是否正确
-                        switch (key.length) {
-                            case 16 -> {}
-                            case 24, 32 -> key = AESUtil.decodeHex(new String(key));
-                            default -> throw new HLSDownloadException("KEY长度为" + key.length + "不正确: " + new String(key));
-                        }
+                    int statusCode = keys(conn, playlist.segments());
+                    if (!URIUtil.statusIsOK(statusCode)) {
+                        return new HttpResponse(this, request.statusCode(statusCode));
                     }
-                    links = info.stream().filter(l -> !l.startsWith("#")).map(l -> URIUtil.toAbsoluteUrl(url, l)).toList();
+                    if (live && !playlist.endList()) { // 直播录制
+                        request.setStorage(storage);
+                        return live(conn, storage, playlist);
+                    }
+                    parts = plan(playlist.segments(), null);
                     // 创建并写入文件配置信息
+                    var keyInfo = new JSONObject();
+                    keys.forEach((id, value) -> keyInfo.put(id, new String(Base64Util.encode(value))));
                     fileInfo.put("fileName", fileName);
                     fileInfo.put("fileSize", 0);
                     fileInfo.put("header", headers);
                     fileInfo.put("cookie", cookies);
                     fileInfo.put("key", key);
                     fileInfo.put("iv", iv);
-                    fileInfo.put("data", links);
-                    fileInfo.put("pieceTotal", links.size());
+                    fileInfo.put("keys", keyInfo);
+                    fileInfo.put("playlist", body);
+                    fileInfo.put("pieceTotal", parts.size());
                     ReadWriteUtil.orgin(session).write(fileInfo.toString());
                 }
                 case "FULL" -> {
@@ -509,6 +508,7 @@ public class HLSDownload {
                     var res = conn.url(url).execute();
                     int statusCode = res.statusCode();
                     if (!URIUtil.statusIsOK(statusCode)) {
+                        res.close();
                         return new HttpResponse(this, request.statusCode(statusCode));
                     }
 
@@ -526,37 +526,53 @@ public class HLSDownload {
                     this.key = new byte[key.size()];
                     for (var i = 0; i < key.size(); i++) this.key[i] = key.get(i);
                     iv = fileInfo.getString("iv");
-                    links = fileInfo.getList("data", String.class);
+                    var playlist = fileInfo.getString("playlist");
+                    if (playlist == null) { // 旧版会话仅保存分片URL,且所有分片使用同一个IV
+                        playlist = "#EXTM3U\n" + String.join("\n", fileInfo.getList("data", String.class));
+                        if (this.key.length > 0 && iv.isEmpty()) iv = "0".repeat(32);
+                    }
+                    var keyInfo = fileInfo.getJSONObject("keys");
+                    if (keyInfo != null) {
+                        for (var id : keyInfo.keySet()) keys.put(id, Base64Util.decode(keyInfo.getString(id).getBytes()));
+                    }
+                    parts = plan(HLSPlaylist.parse(url, playlist).segments(), null);
                     storage = new File(DEFAULT_FOLDER, fileName);
+                    journal = DownloadJournal.open(DownloadJournal.of(session));
                     var renew = fileInfo.getJSONObject("renew");
-                    if (renew != null) {
-                        status.putAll(renew.toMap(File.class, Long.class));
+                    if (renew != null) { // 旧版会话的断点信息,转存至日志
+                        renew.toMap(File.class, Long.class).forEach((file, complete) -> journal.record(Long.parseLong(file.getName().substring(0, file.getName().indexOf('.'))), complete));
                         fileInfo.remove("renew");
+                        ReadWriteUtil.orgin(session).append(false).write(fileInfo.toString());  // 重置配置文件
                     }
-                    ReadWriteUtil.orgin(session).append(false).write(fileInfo.toString());  // 重置配置文件
+                    var folder = session.getParentFile();
+                    journal.entries().forEach((index, complete) -> status.put(new File(folder, index + ".ts"), complete));
                 }
                 default -> throw new HLSDownloadException("Unknown mode");
             }
 
+            total = parts.size();
             var folder = new File(DEFAULT_FOLDER, fileName.substring(0, fileName.lastIndexOf(".")));
             session = new File(folder, SESSION_SUFFIX); // 配置信息文件后缀
             FileUtil.createFolder(folder); // 创建文件夹
-            Runnable breakPoint = () -> ReadWriteUtil.orgin(session).append(false).write(fileInfo.fluentPut("renew", status).toString());
+            if (journal == null) journal = DownloadJournal.create(DownloadJournal.of(session));
+            Runnable breakPoint = journal::close; // 日志已实时记录断点,仅需压缩
             Thread abnormal;
             Runtime.getRuntime().addShutdownHook(abnormal = new Thread(breakPoint));
-            var listenTask = ThreadUtil.start(listener);
+            progress.start(fileName, 0, listener, listenerMillis);
+            progress.pieces(total);
             var statusCodes = new AtomicInteger(HttpStatus.SC_OK);
             var executor = Executors.newFixedThreadPool(MAX_THREADS); // 限制多线程
-            for (int i = 0; i < links.size(); i++) {
+            for (int i = 0; i < parts.size(); i++) {
                 var file = new File(folder, i + ".ts");
                 if (file.exists() && !status.containsKey(file)) {
-                    site++;
+                    progress.skipped(1);
                 } else {
                     executor.execute(new ConsumerThread(i, (index) -> {
-                        int statusCode = FULL(links.get(index), status.getOrDefault(file, 0L), MAX_RETRY, file);
+                        int statusCode = FULL(index, parts.get(index), status.getOrDefault(file, 0L), file);
                         if (URIUtil.statusIsOK(statusCode)) {
                             status.remove(file);
-                            site++;
+                            journal.remove(index);
+                            progress.completed(index, file.length());
                         } else {
                             statusCodes.set(statusCode);
                             executor.shutdownNow(); // 结束未开始的线程，并关闭线程池
@@ -565,37 +581,23 @@ public class HLSDownload {
                 }
             }
             ThreadUtil.waitEnd(executor); // 等待线程结束
-            ThreadUtil.interrupt(listenTask); // 结束监听
+            progress.stop(); // 结束监听
             Runtime.getRuntime().removeShutdownHook(abnormal);
 
             long fileSize = 0;
             if (URIUtil.statusIsOK(statusCodes.get())) { // 验证下载状态
                 try (var out = new FileOutputStream(storage)) {
                     try {
-                        if (key.length == 0) {
-                            for (int i = 0; i < links.size(); i++) {
-                                var file = new File(folder, i + ".ts");
-                                var data = ReadWriteUtil.orgin(file).readBytes();
-                                out.write(data, 0, data.length);
-                                fileSize += data.length;
-                                file.delete();
-                            }
-                        } else { // AES/CBC/PKCS7Padding解密,PKCS5Padding兼容
-                            var cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
-                            var keySpec = new SecretKeySpec(key, "AES");
-                            var ivSpec = new IvParameterSpec(iv.isEmpty() ? new byte[16] : AESUtil.decodeHex(iv));
-                            cipher.init(Cipher.DECRYPT_MODE, keySpec, ivSpec);
-                            for (int i = 0; i < links.size(); i++) {
-                                var file = new File(folder, i + ".ts");
-                                var data = cipher.doFinal(ReadWriteUtil.orgin(file).readBytes());
-                                out.write(data, 0, data.length);
-                                fileSize += data.length;
-                                file.delete();
-                            }
+                        var cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+                        for (int i = 0; i < parts.size(); i++) {
+                            var file = new File(folder, i + ".ts");
+                            fileSize += write(out, cipher, parts.get(i), ReadWriteUtil.orgin(file).readBytes());
+                            file.delete();
                         }
+                        journal.delete();
                         session.delete(); // 删除会话信息文件
                         folder.delete(); // 删除文件夹
-                    } catch (Exception e) {
+                    } catch (GeneralSecurityException e) {
                         throw new AESException(e);
                     }
                 } catch (IOException e) {
@@ -613,37 +615,315 @@ public class HLSDownload {
         }
 
         private void initializationStatus() {
-            schedule.set(0);
-            site = 0;
+            progress.reset();
+            total = 0;
             status.clear();
-        }
-
-        private int FULL(String url, long complete, int retry, File storage) {
-            var piece = HttpsUtil.connect(url).proxy(proxy).headers(headers).header("range", "bytes=" + complete + "-").cookies(cookies).failThrow(failThrow).execute();
-            int statusCode = piece.statusCode();
-            return URIUtil.statusIsOK(statusCode) ? FULL(url, piece, complete, retry, storage) : unlimit || retry > 0 ? FULL(url, complete, retry - 1, storage) : statusCode;
-        }
-
-        private int FULL(String url, Response res, long complete, int retry, File storage) {
-            var length = res.header("content-length"); // 获取文件大小
-            long fileSize = length == null ? 0 : Long.parseLong(length);
-            try (var in = res.bodyStream(); var out = new RandomAccessFile(storage, "rw")) {
-                out.seek(complete);
-                var buffer = new byte[DEFAULT_BUFFER_SIZE];
-                for (int len; (len = in.read(buffer, 0, DEFAULT_BUFFER_SIZE)) != -1; schedule.addAndGet(len), complete += len, status.put(storage, complete)) {
-                    out.write(buffer, 0, len);
+            keys.clear();
+            journal = null;
+        }
+
+        /**
+         * 直播录制,按照目标时长轮询播放列表,下载新增分片并按顺序追加写入文件
+         * <p>
+         * 每轮新增的分片并行下载,内存中最多保留一轮的分片数据;单个分片重试失败后跳过,不会中断录制
+         *
+         * @param conn     播放列表会话
+         * @param storage  存储文件
+         * @param playlist 首次获取的播放列表
+         * @return 录制结果
+         */
+        private SionResponse live(Connection conn, File storage, HLSPlaylist playlist) {
+            if (Judge.isEmpty(url)) {
+                throw new HLSDownloadException("直播录制需要播放列表URL");
+            }
+            FileUtil.createFolder(DEFAULT_FOLDER); // 创建文件夹
+            progress.start(fileName, 0, listener, listenerMillis);
+            long deadline = liveSeconds > 0 ? System.currentTimeMillis() + liveSeconds * 1000L : Long.MAX_VALUE;
+            long next = Long.MIN_VALUE; // 下一个待写入的媒体序列号
+            long fileSize = 0;
+            int statusCode = HttpStatus.SC_OK;
+            HLSPlaylist.Init map = null; // 已写入的初始化分片
+            var executor = Executors.newFixedThreadPool(MAX_THREADS);
+            try (var out = new FileOutputStream(storage, true)) {
+                var cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+                while (true) {
+                    long polled = System.currentTimeMillis();
+                    long from = next;
+                    var segments = playlist.segments().stream().filter(l -> l.sequence() >= from).toList();
+                    if (!URIUtil.statusIsOK(statusCode = keys(conn, segments))) break;
+                    var parts = plan(segments, map);
+                    progress.pieces(total += parts.size());
+                    var futures = parts.stream().map(l -> executor.submit(() -> segment(l))).toList();
+                    for (int i = 0; i < parts.size(); i++) {
+                        var data = ThreadUtil.getFuture(futures.get(i));
+                        var part = parts.get(i);
+                        if (part.segments().isEmpty()) {
+                            if (data == null) continue; // 初始化分片获取失败,下一个分片将重新尝试
+                            map = new HLSPlaylist.Init(part.url(), part.offset(), part.length());
+                        } else {
+                            next = part.segments().get(part.segments().size() - 1).sequence() + 1;
+                            if (data == null) continue; // 分片丢失,跳过
+                        }
+                        fileSize += write(out, cipher, part, data);
+                        progress.completed(total - parts.size() + i, data.length);
+                    }
+                    out.flush();
+                    if (playlist.endList() || System.currentTimeMillis() >= deadline || Thread.currentThread().isInterrupted()) break;
+                    // 播放列表未更新时按照一半目标时长重新获取
+                    long interval = (long) (playlist.targetDuration() * (segments.isEmpty() ? 500 : 1000));
+                    ThreadUtil.waitThread(Math.max(Math.min(polled + Math.max(interval, 1000), deadline) - System.currentTimeMillis(), 0));
+                    if (System.currentTimeMillis() >= deadline || Thread.currentThread().isInterrupted()) break;
+                    var res = conn.url(url).execute();
+                    if (!URIUtil.statusIsOK(statusCode = res.statusCode())) {
+                        res.close();
+                        break;
+                    }
+                    playlist = HLSPlaylist.parse(url, res.body());
                 }
-                if (fileSize == 0 || complete >= fileSize) return HttpStatus.SC_OK;
+            } catch (GeneralSecurityException e) {
+                throw new AESException(e);
             } catch (IOException e) {
                 e.printStackTrace();
+                statusCode = HttpStatus.SC_REQUEST_TIMEOUT;
+            } finally {
+                executor.shutdownNow();
+                progress.stop();
+            }
+            if (!URIUtil.statusIsOK(statusCode) && failThrow) {
+                throw new HLSDownloadException("M3U8直播录制中断，状态码: " + statusCode + " URL: " + url);
             }
-            if (unlimit || retry > 0) {
-                ThreadUtil.waitThread(MILLISECONDS_SLEEP);
-                return FULL(url, complete, retry - 1, storage);
+            return new HttpResponse(this, request.setFileSize(fileSize).statusCode(statusCode));
+        }
+
+        /**
+         * 下载单个分片至内存
+         *
+         * @param part 下载块
+         * @return 分片数据,失败返回null
+         */
+        private byte[] segment(Part part) {
+            var conn = HttpsUtil.connect(part.url()).proxy(proxy).headers(headers).cookies(cookies).retry(MAX_RETRY, MILLISECONDS_SLEEP).retry(unlimit).retryStatusCodes(retryStatusCodes).retryPolicy(retryPolicy());
+            if (part.length() >= 0) conn.header("range", "bytes=" + part.offset() + "-" + (part.offset() + part.length() - 1));
+            var res = conn.execute();
+            if (!URIUtil.statusIsOK(res.statusCode())) {
+                res.close();
+                return null;
             }
-            return HttpStatus.SC_REQUEST_TIMEOUT;
+            var data = res.bodyAsBytes();
+            if (part.length() >= 0 && data.length != part.length()) return null; // 服务器不支持字节范围
+            progress.add(URIUtil.getHost(part.url()), data.length);
+            return data;
+        }
+
+        /**
+         * 根据实测吞吐量选择码率
+         * <p>
+         * 以最低码率并行下载前 MAX_THREADS 个分片,按照实际下载并发测得的吞吐量的80%估算可持续的码率,选择不超过该码率的最高码率
+         *
+         * @param conn     会话
+         * @param variants 候选码率
+         * @return 选择的码率
+         */
+        private HLSPlaylist.Variant adapt(Connection conn, List<HLSPlaylist.Variant> variants) {
+            var sorted = variants.stream().sorted(Comparator.comparingLong(HLSPlaylist.Variant::bandwidth).thenComparingInt(l -> l.width() * l.height())).toList();
+            var probe = sorted.get(0);
+            var res = conn.url(probe.url()).execute();
+            if (!URIUtil.statusIsOK(res.statusCode())) {
+                res.close();
+                return probe;
+            }
+            var media = HLSPlaylist.parse(probe.url(), res.body());
+            double duration = media.duration();
+            if (duration <= 0 || media.segments().isEmpty()) return probe;
+            var parts = plan(media.segments(), null).stream().filter(l -> !l.segments().isEmpty()).limit(MAX_THREADS).toList();
+            var executor = Executors.newFixedThreadPool(MAX_THREADS);
+            long bytes = 0, start = System.nanoTime();
+            try {
+                var futures = parts.stream().map(l -> executor.submit(() -> segment(l))).toList();
+                for (var future : futures) {
+                    var data = ThreadUtil.getFuture(future);
+                    if (data != null) bytes += data.length;
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            if (bytes == 0 || elapsed <= 0) return probe;
+            double throughput = bytes * 8 / elapsed; // bit/s
+            double sustainable = throughput * 0.8 * (adaptive == 0 ? duration : adaptive) / duration;
+            var selected = probe;
+            for (var variant : sorted) {
+                if (variant.bandwidth() <= sustainable) selected = variant;
+            }
+            return selected;
+        }
+
+        /**
+         * 获取分片使用的密钥,相同URI的密钥只获取一次
+         *
+         * @param conn     会话
+         * @param segments 分片列表
+         * @return 状态码
+         */
+        private int keys(Connection conn, List<HLSPlaylist.Segment> segments) {
+            if (key.length > 0) return HttpStatus.SC_OK; // 已手动指定密钥
+            for (var segment : segments) {
+                var extKey = segment.key();
+                if (extKey == null || keys.containsKey(extKey.id())) continue;
+                if (!extKey.method().contains("AES") && !extKey.method().equals("QINIU-PROTECTION-10")) {
+                    throw new HLSDownloadException("未知的解密方法: " + extKey.method());
+                }
+                byte[] value;
+                if (extKey.uri() != null) {
+                    var res = conn.url(extKey.uri()).execute();
+                    int statusCode = res.statusCode();
+                    if (!URIUtil.statusIsOK(statusCode)) {
+                        res.close();
+                        return statusCode;
+                    }
+                    request.headers(res.headers()).cookies(res.cookies());
+                    value = keyDecrypt.apply(res.bodyAsBytes()); // key解密
+                } else if (extKey.key() != null) {
+                    value = keyDecrypt.apply(extKey.key().getBytes());
+                } else {
+                    throw new HLSDownloadException("EXT-X-KEY缺少URI");
+                }
+                // 效验key格式是否正确
+                switch (value.length) {
+                    case 16 -> {}
+                    case 24, 32 -> value = AESUtil.decodeHex(new String(value));
+                    default -> throw new HLSDownloadException("KEY长度为" + value.length + "不正确: " + new String(value));
+                }
+                keys.put(extKey.id(), value);
+            }
+            return HttpStatus.SC_OK;
+        }
+
+        /**
+         * 将分片划分为下载块,同一文件中相邻的字节范围分片合并为一次请求,初始化分片变化时插入初始化块
+         *
+         * @param segments 分片列表
+         * @param map      已写入的初始化分片,没有为null
+         * @return 下载块列表
+         */
+        private static List<Part> plan(List<HLSPlaylist.Segment> segments, HLSPlaylist.Init map) {
+            var parts = new ArrayList<Part>();
+            for (var segment : segments) {
+                if (segment.map() != null && !segment.map().equals(map)) {
+                    map = segment.map();
+                    parts.add(new Part(map.url(), map.offset(), map.length(), List.of()));
+                }
+                var last = parts.isEmpty() ? null : parts.get(parts.size() - 1);
+                if (segment.ranged() && last != null && !last.segments().isEmpty() && last.length() >= 0 && last.url().equals(segment.url()) && last.offset() + last.length() == segment.offset() && last.length() + segment.length() <= MAX_PART_SIZE) {
+                    last.segments().add(segment);
+                    parts.set(parts.size() - 1, new Part(last.url(), last.offset(), last.length() + segment.length(), last.segments()));
+                } else {
+                    parts.add(new Part(segment.url(), segment.offset(), segment.length(), new ArrayList<>(List.of(segment))));
+                }
+            }
+            return parts;
+        }
+
+        /**
+         * 将下载块按分片解密并写入输出流
+         *
+         * @param out    输出流
+         * @param cipher 解密器
+         * @param part   下载块
+         * @param data   下载块数据
+         * @return 写入的字节数
+         */
+        private long write(OutputStream out, Cipher cipher, Part part, byte[] data) throws IOException, GeneralSecurityException {
+            if (part.segments().isEmpty()) { // 初始化分片
+                out.write(data);
+                return data.length;
+            }
+            long size = 0;
+            for (var segment : part.segments()) {
+                int from = part.length() < 0 ? 0 : (int) (segment.offset() - part.offset());
+                int len = part.length() < 0 ? data.length : (int) segment.length();
+                var value = key.length > 0 ? key : segment.key() == null ? null : keys.get(segment.key().id());
+                if (value == null) {
+                    out.write(data, from, len);
+                    size += len;
+                } else { // AES/CBC/PKCS7Padding解密,PKCS5Padding兼容
+                    var declared = segment.key() != null && !segment.key().iv().isEmpty(); // 播放列表声明的IV优先,未声明时使用指定的IV或媒体序列号
+                    cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(value, "AES"), new IvParameterSpec(declared || iv.isEmpty() ? segment.iv() : AESUtil.decodeHex(iv)));
+                    int plain = cipher.doFinal(data, from, len, data, from); // 原地解密,不复制分片数据
+                    out.write(data, from, plain);
+                    size += plain;
+                }
+            }
+            return size;
+        }
+
+        private RetryPolicy retryPolicy() {
+            return retryPolicy == null ? RetryPolicy.fixed(MILLISECONDS_SLEEP) : retryPolicy;
+        }
+
+        /**
+         * 下载分片并写入文件,失败时按照重试策略等待并从断点位置继续下载
+         *
+         * @param index    下载块序号
+         * @param part     下载块
+         * @param complete 断点位置
+         * @param storage  分片存储文件
+         * @return 下载并写入是否成功(状态码)
+         */
+        private int FULL(int index, Part part, long complete, File storage) {
+            journal.record(index, complete); // 写入前记录,防止中断后分片文件被误认为已完成
+            var url = part.url();
+            var policy = retryPolicy();
+            var host = URIUtil.getHost(url);
+            int statusCode = HttpStatus.SC_REQUEST_TIMEOUT;
+            String retryAfter = null;
+            for (int i = 0; i <= MAX_RETRY || unlimit; i++) {
+                if (i > 0) {
+                    if (Thread.currentThread().isInterrupted()) break;
+                    ThreadUtil.waitThread(policy.delay(host, i - 1, retryAfter));
+                }
+                var range = "bytes=" + (part.offset() + complete) + "-" + (part.length() < 0 ? "" : part.offset() + part.length() - 1);
+                var res = HttpsUtil.connect(url).proxy(proxy).headers(headers).header("range", range).cookies(cookies).failThrow(failThrow).execute();
+                if (!URIUtil.statusIsOK(statusCode = res.statusCode())) {
+                    res.close();
+                    retryAfter = res.header("retry-after");
+                    policy.failure(host);
+                    continue;
+                }
+                retryAfter = null;
+                long skip = statusCode == HttpStatus.SC_PARTIAL_CONTENT ? 0 : part.offset() + complete; // 服务器不支持字节范围时返回完整文件,跳过已下载和不属于此块的部分
+                long end = part.length() < 0 ? Long.MAX_VALUE : part.length();
+                var length = res.header("content-length"); // 获取文件大小
+                long fileSize = part.length() >= 0 ? part.length() : length == null ? 0 : complete - skip + Long.parseLong(length);
+                try (var in = res.bodyStream(); var out = new RandomAccessFile(storage, "rw")) {
+                    in.skipNBytes(skip);
+                    out.seek(complete);
+                    var buffer = new byte[DEFAULT_BUFFER_SIZE];
+                    for (int len; complete < end && (len = in.read(buffer, 0, (int) Math.min(DEFAULT_BUFFER_SIZE, end - complete))) != -1; progress.add(host, len), complete += len, journal.record(index, complete)) {
+                        out.write(buffer, 0, len);
+                    }
+                    if (fileSize == 0 || complete >= fileSize) {
+                        policy.success(host);
+                        return HttpStatus.SC_OK;
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                statusCode = HttpStatus.SC_REQUEST_TIMEOUT;
+            }
+            return statusCode;
         }
 
     }
 
+    /**
+     * 下载块,对应一次HTTP请求
+     *
+     * @param url      URL
+     * @param offset   字节范围起始位置
+     * @param length   字节范围长度,-1为整个文件
+     * @param segments 包含的分片,初始化分片为空列表
+     */
+    private record Part(String url, long offset, long length, List<HLSPlaylist.Segment> segments) {}
+
 }
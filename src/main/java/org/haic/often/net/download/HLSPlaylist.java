@@ -0,0 +1,337 @@
+package org.haic.often.net.download;
+
+import org.haic.often.exception.HLSDownloadException;
+import org.haic.often.net.ParsedURL;
+import org.haic.often.util.AESUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * M3U8 媒体播放列表
+ * <p>
+ * 解析播放列表中的分片、媒体序列号、目标时长和结束标记,用于点播下载和直播录制
+ * <p>
+ * 每个分片携带其生效的密钥(EXT-X-KEY)、字节范围(EXT-X-BYTERANGE)、初始化分片(EXT-X-MAP)和不连续标记(EXT-X-DISCONTINUITY)
+ *
+ * @author haicdust
+ * @version 1.0
+ * @since 2026/10/19 16:30
+ */
+public class HLSPlaylist {
+
+    private long mediaSequence; // 首个分片的媒体序列号
+    private double targetDuration; // 分片最大时长(秒)
+    private boolean endList; // 播放列表是否已结束
+    private boolean master; // 是否为多码率主播放列表
+    private final List<Segment> segments = new ArrayList<>();
+    private final List<Variant> variants = new ArrayList<>();
+
+    private HLSPlaylist() {
+    }
+
+    /**
+     * 解析播放列表
+     *
+     * @param url  播放列表URL,用于转换分片相对路径,可以为null
+     * @param body 播放列表文本
+     * @return 播放列表
+     */
+    public static HLSPlaylist parse(String url, @NotNull String body) {
+        var lines = body.lines().map(String::strip).filter(l -> !l.isEmpty()).toList();
+        if (lines.isEmpty() || !lines.get(0).equals("#EXTM3U")) {
+            throw new HLSDownloadException("内容不是M3U8格式");
+        }
+        var playlist = new HLSPlaylist();
+        double duration = 0;
+        boolean discontinuity = false;
+        Key key = null;
+        Init map = null;
+        long length = -1, offset = -1; // 当前分片的字节范围
+        String lastUrl = null; // 上一个字节范围分片的URL
+        long lastEnd = 0; // 上一个字节范围分片的结束位置
+        String streamInf = null; // 等待URI的码率信息
+        ParsedURL base = null; // 只解析一次播放列表URL,无法解析时保留原始路径
+        try {
+            base = url == null ? null : ParsedURL.parse(url);
+        } catch (IllegalArgumentException ignored) {
+        }
+        for (var line : lines) {
+            if (line.startsWith("#EXT-X-MEDIA-SEQUENCE:")) {
+                playlist.mediaSequence = Long.parseLong(line.substring(22).strip());
+            } else if (line.startsWith("#EXT-X-TARGETDURATION:")) {
+                playlist.targetDuration = Double.parseDouble(line.substring(22).strip());
+            } else if (line.startsWith("#EXTINF:")) {
+                var value = line.substring(8);
+                int index = value.indexOf(',');
+                duration = Double.parseDouble((index == -1 ? value : value.substring(0, index)).strip());
+            } else if (line.startsWith("#EXT-X-KEY:")) {
+                var attributes = attributes(line.substring(11));
+                var method = attributes.getOrDefault("METHOD", "NONE");
+                if (method.equals("NONE")) {
+                    key = null;
+                } else {
+                    var uri = attributes.get("URI");
+                    var iv = attributes.getOrDefault("IV", "");
+                    key = new Key(method, resolve(base, uri), attributes.get("KEY"), iv.startsWith("0x") || iv.startsWith("0X") ? iv.substring(2) : iv);
+                }
+            } else if (line.startsWith("#EXT-X-MAP:")) {
+                var attributes = attributes(line.substring(11));
+                var uri = attributes.get("URI");
+                long mapOffset = 0, mapLength = -1;
+                var range = attributes.get("BYTERANGE");
+                if (range != null) {
+                    int index = range.indexOf('@');
+                    mapLength = Long.parseLong((index == -1 ? range : range.substring(0, index)).strip());
+                    mapOffset = index == -1 ? 0 : Long.parseLong(range.substring(index + 1).strip());
+                }
+                map = new Init(resolve(base, uri), mapOffset, mapLength);
+            } else if (line.startsWith("#EXT-X-BYTERANGE:")) {
+                var range = line.substring(17).strip();
+                int index = range.indexOf('@');
+                length = Long.parseLong((index == -1 ? range : range.substring(0, index)).strip());
+                offset = index == -1 ? -1 : Long.parseLong(range.substring(index + 1).strip());
+            } else if (line.equals("#EXT-X-DISCONTINUITY")) {
+                discontinuity = true;
+            } else if (line.equals("#EXT-X-ENDLIST")) {
+                playlist.endList = true;
+            } else if (line.startsWith("#EXT-X-STREAM-INF")) {
+                playlist.master = true;
+                streamInf = line;
+            } else if (!line.startsWith("#")) {
+                var link = resolve(base, line);
+                if (streamInf != null) {
+                    playlist.variants.add(Variant.of(link, streamInf));
+                    streamInf = null;
+                    continue;
+                }
+                if (length >= 0) { // 未指定偏移量时紧接上一个分片
+                    offset = offset >= 0 ? offset : link.equals(lastUrl) ? lastEnd : 0;
+                    lastUrl = link;
+                    lastEnd = offset + length;
+                } else {
+                    offset = 0;
+                }
+                playlist.segments.add(new Segment(playlist.mediaSequence + playlist.segments.size(), link, duration, offset, length, key, map, discontinuity));
+                duration = 0;
+                discontinuity = false;
+                length = -1;
+                offset = -1;
+            }
+        }
+        return playlist;
+    }
+
+    /**
+     * 转换为绝对路径,保留旧版的容错处理: 还原转义的 {@code &amp;},单个URI无法解析时返回原始路径,不中断整个播放列表的解析
+     *
+     * @param base 播放列表URL,可以为null
+     * @param uri  相对路径,可以为null
+     * @return 绝对路径
+     */
+    private static String resolve(@Nullable ParsedURL base, @Nullable String uri) {
+        if (uri == null) return null;
+        uri = uri.replace("&amp;", "&");
+        if (base == null) return uri;
+        try {
+            return base.resolve(uri).toString();
+        } catch (IllegalArgumentException e) {
+            return uri;
+        }
+    }
+
+    /**
+     * 解析属性列表,例如 {@code METHOD=AES-128,URI="key.php?a=1,b=2",IV=0x00}
+     * <p>
+     * 引号内的逗号不作为分隔符,返回的值已去除引号
+     *
+     * @param value 属性列表文本
+     * @return 属性名和值
+     */
+    public static Map<String, String> attributes(@NotNull String value) {
+        var attributes = new LinkedHashMap<String, String>();
+        int i = 0, len = value.length();
+        while (i < len) {
+            int eq = value.indexOf('=', i);
+            if (eq == -1) break;
+            var name = value.substring(i, eq).strip();
+            int start = eq + 1, end;
+            if (start < len && value.charAt(start) == '"') {
+                end = value.indexOf('"', start + 1);
+                end = end == -1 ? len : end;
+                attributes.put(name, value.substring(start + 1, end));
+                end = value.indexOf(',', end);
+            } else {
+                end = value.indexOf(',', start);
+                attributes.put(name, value.substring(start, end == -1 ? len : end).strip());
+            }
+            i = end == -1 ? len : end + 1;
+        }
+        return attributes;
+    }
+
+    /**
+     * 获取首个分片的媒体序列号
+     *
+     * @return 媒体序列号
+     */
+    public long mediaSequence() {
+        return mediaSequence;
+    }
+
+    /**
+     * 获取分片最大时长
+     *
+     * @return 目标时长(秒)
+     */
+    public double targetDuration() {
+        return targetDuration;
+    }
+
+    /**
+     * 播放列表是否已结束,点播列表或已结束的直播
+     *
+     * @return 是否结束
+     */
+    public boolean endList() {
+        return endList;
+    }
+
+    /**
+     * 是否为多码率主播放列表
+     *
+     * @return 是否为主播放列表
+     */
+    public boolean master() {
+        return master;
+    }
+
+    /**
+     * 获取分片列表
+     *
+     * @return 分片列表
+     */
+    public List<Segment> segments() {
+        return Collections.unmodifiableList(segments);
+    }
+
+    /**
+     * 获取主播放列表中的码率列表,按照播放列表中的顺序
+     *
+     * @return 码率列表
+     */
+    public List<Variant> variants() {
+        return Collections.unmodifiableList(variants);
+    }
+
+    /**
+     * 获取所有分片的总时长
+     *
+     * @return 总时长(秒)
+     */
+    public double duration() {
+        return segments.stream().mapToDouble(Segment::duration).sum();
+    }
+
+    /**
+     * 码率
+     *
+     * @param url        媒体播放列表URL
+     * @param info       EXT-X-STREAM-INF 原始文本
+     * @param bandwidth  峰值码率(bit/s)
+     * @param width      视频宽度,未指定为0
+     * @param height     视频高度,未指定为0
+     * @param codecs     编码格式,未指定为空字符串
+     */
+    public record Variant(String url, String info, long bandwidth, int width, int height, String codecs) {
+
+        private static Variant of(String url, String info) {
+            int index = info.indexOf(':');
+            var attributes = attributes(index == -1 ? "" : info.substring(index + 1));
+            int width = 0, height = 0;
+            var resolution = attributes.get("RESOLUTION");
+            if (resolution != null && resolution.contains("x")) {
+                try {
+                    width = Integer.parseInt(resolution.substring(0, resolution.indexOf('x')).strip());
+                    height = Integer.parseInt(resolution.substring(resolution.indexOf('x') + 1).strip());
+                } catch (NumberFormatException ignored) {
+                }
+            }
+            long bandwidth;
+            try {
+                bandwidth = Long.parseLong(attributes.getOrDefault("BANDWIDTH", "0").strip());
+            } catch (NumberFormatException e) {
+                bandwidth = 0;
+            }
+            return new Variant(url, info, bandwidth, width, height, attributes.getOrDefault("CODECS", ""));
+        }
+
+    }
+
+    /**
+     * 媒体分片
+     *
+     * @param sequence      媒体序列号
+     * @param url           分片URL
+     * @param duration      分片时长(秒)
+     * @param offset        字节范围起始位置,未指定字节范围时为0
+     * @param length        字节范围长度,-1为整个文件
+     * @param key           加密密钥,未加密为null
+     * @param map           初始化分片,没有为null
+     * @param discontinuity 分片前是否存在不连续标记
+     */
+    public record Segment(long sequence, String url, double duration, long offset, long length, @Nullable Key key, @Nullable Init map, boolean discontinuity) {
+
+        /**
+         * 是否指定了字节范围
+         *
+         * @return 是否为字节范围分片
+         */
+        public boolean ranged() {
+            return length >= 0;
+        }
+
+        /**
+         * 获取分片解密使用的IV,未显式指定时使用媒体序列号(128位大端序)
+         *
+         * @return IV
+         */
+        public byte[] iv() {
+            return key == null || key.iv().isEmpty() ? ByteBuffer.allocate(16).putLong(8, sequence).array() : AESUtil.decodeHex(key.iv());
+        }
+
+    }
+
+    /**
+     * 加密密钥
+     *
+     * @param method 加密方法
+     * @param uri    密钥URL
+     * @param key    直接写在播放列表中的密钥(非标准),没有为null
+     * @param iv     十六进制IV,未指定为空字符串
+     */
+    public record Key(String method, @Nullable String uri, @Nullable String key, String iv) {
+
+        /**
+         * 获取密钥标识,用于缓存,相同标识的密钥只获取一次
+         *
+         * @return 密钥标识
+         */
+        public String id() {
+            return uri != null ? uri : "KEY:" + key;
+        }
+
+    }
+
+    /**
+     * 初始化分片
+     *
+     * @param url    初始化分片URL
+     * @param offset 字节范围起始位置
+     * @param length 字节范围长度,-1为整个文件
+     */
+    public record Init(String url, long offset, long length) {}
+
+}
@@ -0,0 +1,118 @@
+package org.haic.often.net.download;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 镜像选择器
+ * <p>
+ * 记录每个镜像的实测吞吐量(指数加权平均),按照吞吐量加权随机选择镜像,使较快的镜像承担更多分块;
+ * 请求失败的镜像被降级一段时间,连续失败时降级时间翻倍,成功后恢复
+ * <p>
+ * 尚未测量的镜像按照当前最快镜像的吞吐量计算权重,保证每个镜像都能被尝试
+ *
+ * @author haicdust
+ * @version 1.0
+ * @since 2026/10/19 19:30
+ */
+class MirrorSelector {
+
+	private static final double ALPHA = 0.3; // 吞吐量平滑系数
+	private static final long DEMOTE_MILLIS = 2000; // 初始降级时长
+	private static final int MAX_DEMOTE_SHIFT = 6; // 最大降级倍数 2^6
+
+	private final List<Mirror> mirrors = new ArrayList<>();
+
+	/**
+	 * 创建镜像选择器
+	 *
+	 * @param urls 镜像URL,第一个为主URL
+	 */
+	MirrorSelector(@NotNull List<String> urls) {
+		for (var url : urls) {
+			if (mirrors.stream().noneMatch(l -> l.url.equals(url))) mirrors.add(new Mirror(url));
+		}
+	}
+
+	/**
+	 * 选择一个镜像
+	 *
+	 * @return 镜像URL
+	 */
+	String select() {
+		if (mirrors.size() == 1) return mirrors.get(0).url;
+		long now = System.currentTimeMillis();
+		var available = mirrors.stream().filter(l -> l.demotedUntil <= now).toList();
+		if (available.isEmpty()) { // 全部降级时使用最早恢复的镜像
+			return mirrors.stream().min(Comparator.comparingLong(l -> l.demotedUntil)).orElseThrow().url;
+		}
+		double fastest = available.stream().mapToDouble(l -> l.rate).max().orElse(0);
+		double[] weights = new double[available.size()];
+		double sum = 0;
+		for (int i = 0; i < weights.length; i++) {
+			double rate = available.get(i).rate;
+			sum += weights[i] = rate > 0 ? rate : fastest > 0 ? fastest : 1;
+		}
+		double random = ThreadLocalRandom.current().nextDouble(sum);
+		for (int i = 0; i < weights.length; i++) {
+			if ((random -= weights[i]) < 0) return available.get(i).url;
+		}
+		return available.get(available.size() - 1).url;
+	}
+
+	/**
+	 * 记录镜像请求成功
+	 *
+	 * @param url   镜像URL
+	 * @param bytes 传输的字节数
+	 * @param nanos 耗时(纳秒)
+	 */
+	void success(@NotNull String url, long bytes, long nanos) {
+		var mirror = mirror(url);
+		if (mirror == null || bytes <= 0 || nanos <= 0) return;
+		double sample = bytes * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+		synchronized (mirror) {
+			mirror.rate = mirror.rate == 0 ? sample : ALPHA * sample + (1 - ALPHA) * mirror.rate;
+			mirror.failures = 0;
+			mirror.demotedUntil = 0;
+		}
+	}
+
+	/**
+	 * 记录镜像请求失败,降级该镜像
+	 *
+	 * @param url 镜像URL
+	 */
+	void failure(@NotNull String url) {
+		var mirror = mirror(url);
+		if (mirror == null) return;
+		synchronized (mirror) {
+			mirror.rate /= 2;
+			mirror.demotedUntil = System.currentTimeMillis() + (DEMOTE_MILLIS << Math.min(mirror.failures++, MAX_DEMOTE_SHIFT));
+		}
+	}
+
+	private Mirror mirror(String url) {
+		for (var mirror : mirrors) if (mirror.url.equals(url)) return mirror;
+		return null;
+	}
+
+	private static class Mirror {
+
+		private final String url;
+		private volatile double rate; // 吞吐量(字节/秒)
+		private volatile long demotedUntil; // 降级结束时间
+		private int failures; // 连续失败次数
+
+		private Mirror(String url) {
+			this.url = url;
+		}
+
+	}
+
+}
@@ -0,0 +1,33 @@
+package org.haic.often.net.download;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 下载进度监听器接口
+ * <p>
+ * 所有下载共用一个推送线程,{@link #progress(DownloadProgress)} 中不应执行耗时操作
+ *
+ * @author haicdust
+ * @version 1.0
+ * @since 2026/10/19 21:20
+ */
+public interface ProgressListener {
+
+	/**
+	 * 按照监听频率推送下载进度,下载结束时推送最后一次
+	 *
+	 * @param progress 下载进度
+	 */
+	void progress(@NotNull DownloadProgress progress);
+
+	/**
+	 * 下载块完成时在下载线程中调用
+	 *
+	 * @param progress 下载进度
+	 * @param piece    块标识,分块下载为起始位置,HLS为块序号
+	 * @param bytes    块大小
+	 */
+	default void pieceCompleted(@NotNull DownloadProgress progress, long piece, long bytes) {
+	}
+
+}
@@ -1,5 +1,6 @@
 package org.haic.often.net.download;
 
+import org.haic.often.net.http.RetryPolicy;
 import org.haic.often.util.StringUtil;
 import org.jetbrains.annotations.NotNull;
 
@@ -41,6 +42,26 @@ public abstract class SionConnection {
 	 */
 	public abstract SionConnection alterUrl(@NotNull String url);
 
+	/**
+	 * 设置同一文件的镜像 URL，多线程下载时分块将按照各镜像的实测速度分配到主 URL 和所有镜像
+	 * <p>
+	 * 开始下载前校验镜像的文件大小和 ETag，与主 URL 不一致的镜像将被忽略；请求失败的镜像会被暂时降级
+	 * <p>
+	 * 调用 {@link #url} 方法时镜像同步置空
+	 *
+	 * @param urls 镜像 URL
+	 * @return 此连接，用于链接
+	 */
+	public abstract SionConnection mirrors(@NotNull String... urls);
+
+	/**
+	 * 设置同一文件的镜像 URL，参见 {@link #mirrors(String...)}
+	 *
+	 * @param urls 镜像 URL
+	 * @return 此连接，用于链接
+	 */
+	public abstract SionConnection mirrors(@NotNull List<String> urls);
+
 	/**
 	 * 设置会话文件,读取并配置参数<br/> 配置文件 -> 包含待下载文件的下载信息的文件
 	 *
@@ -288,6 +309,16 @@ public abstract class SionConnection {
 	 */
 	public abstract SionConnection retryStatusCodes(List<Integer> retryStatusCodes);
 
+	/**
+	 * 设置重试策略,用于计算重试等待时间(指数退避、随机抖动、Retry-After、按主机熔断),替代固定的重试等待时间
+	 * <p>
+	 * 重试次数仍由 retry 方法控制
+	 *
+	 * @param retryPolicy 重试策略
+	 * @return 此连接，用于链接
+	 */
+	public abstract SionConnection retryPolicy(@NotNull RetryPolicy retryPolicy);
+
 	/**
 	 * 设置写入文件时缓冲区大小,默认大小为8192字节
 	 *
@@ -312,6 +343,33 @@ public abstract class SionConnection {
 	 */
 	public abstract SionConnection valid(boolean valid);
 
+	/**
+	 * 下载前按照文件大小预分配存储文件，默认开启
+	 * <p>
+	 * JDK 无法调用 fallocate，预分配通过设置文件长度实现，在支持稀疏文件的文件系统上不会立即占用空间，但可以避免多线程写入时文件反复扩展；
+	 * 无论是否开启，文件大小已知时都会在下载前按照尚未完成的字节数检查剩余空间，不足或预分配失败时立即失败
+	 *
+	 * @param preallocate 是否开启
+	 * @return 此连接，用于链接
+	 */
+	public abstract SionConnection preallocate(boolean preallocate);
+
+	/**
+	 * 下载时写入临时文件（文件名后追加 .part），下载并效验完成后原子重命名为目标文件，防止未完成的文件被误用，默认关闭
+	 *
+	 * @param tempFile 是否开启
+	 * @return 此连接，用于链接
+	 */
+	public abstract SionConnection tempFile(boolean tempFile);
+
+	/**
+	 * 设置内容寻址存储,下载前按照hash值或 ETag 查询存储,内容已存在时通过硬链接放置到目标位置而不重新下载,下载完成后将文件加入存储
+	 *
+	 * @param store 内容存储
+	 * @return 此连接，用于链接
+	 */
+	public abstract SionConnection store(@NotNull ContentStore store);
+
 	/**
 	 * 设置在多线程模式下载时,分块最大大小
 	 *
@@ -353,6 +411,23 @@ public abstract class SionConnection {
 	 */
 	public abstract SionConnection listener(@NotNull SionListener listener, int millis);
 
+	/**
+	 * 设置进度监听器,每秒推送一次
+	 *
+	 * @param listener 进度监听器
+	 * @return 此连接，用于链接
+	 */
+	public abstract SionConnection progress(@NotNull ProgressListener listener);
+
+	/**
+	 * 设置进度监听器,所有下载共用推送线程,提供平滑吞吐量、剩余时间、各来源吞吐量和块完成事件
+	 *
+	 * @param listener 进度监听器
+	 * @param millis   推送频率(毫秒)
+	 * @return 此连接，用于链接
+	 */
+	public abstract SionConnection progress(@NotNull ProgressListener listener, int millis);
+
 	/**
 	 * 下载网络文件,返回状态码
 	 * <p>
@@ -362,4 +437,25 @@ public abstract class SionConnection {
 	 */
 	public abstract SionResponse execute();
 
+	/**
+	 * 在公共队列中异步下载网络文件,返回用于暂停、继续、取消和调整优先级的任务
+	 *
+	 * @return 下载任务
+	 */
+	public abstract SionTask executeAsync();
+
+	/**
+	 * 在指定队列中异步下载网络文件,返回用于暂停、继续、取消和调整优先级的任务
+	 * <p>
+	 * 队列并发数已满时,优先级更高的任务将抢占优先级最低的运行中任务,被抢占的任务写入断点后等待
+	 * <p>
+	 * 同一个连接同时只能有一个异步任务,上一个任务结束前再次提交将抛出异常
+	 *
+	 * @param queue    下载队列
+	 * @param priority 优先级,数值越大越优先
+	 * @return 下载任务
+	 * @throws org.haic.often.exception.DownloadException 上一个异步任务尚未结束
+	 */
+	public abstract SionTask executeAsync(@NotNull SionQueue queue, int priority);
+
 }
@@ -7,6 +7,7 @@ import org.haic.often.net.URIUtil;
 import org.haic.often.net.http.HttpStatus;
 import org.haic.often.net.http.HttpsUtil;
 import org.haic.often.net.http.Response;
+import org.haic.often.net.http.RetryPolicy;
 import org.haic.often.parser.json.JSONObject;
 import org.haic.often.thread.ConsumerThread;
 import org.haic.often.util.*;
@@ -17,12 +18,15 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.net.InetSocketAddress;
 import java.net.Proxy;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 网络文件 工具类
@@ -146,7 +150,8 @@ public class SionDownload {
 		public boolean delete() {
 			File storage = request.getStorage();
 			File session = new File(storage.getPath() + ".session");
-			return (!storage.exists() || storage.delete()) && (!session.exists() || session.delete());
+			File journal = DownloadJournal.of(new File(storage.getPath() + ".sion"));
+			return (!storage.exists() || storage.delete()) && (!session.exists() || session.delete()) && (!journal.exists() || journal.delete());
 		}
 	}
 
@@ -156,7 +161,10 @@ public class SionDownload {
 		private String lastHash; // hash值,md5算法,用于判断服务器文件损坏
 		private String fileName; // 文件名
 		private String hash; // hash值
+		private String etag; // 服务器 ETag
 		private final String SESSION_SUFFIX = ".sion";
+		private static final long COMPLETED = -1; // 日志中连续完成位置的块标识
+		private final String PART_SUFFIX = ".part";
 
 		private long fileSize; // 文件大小
 		private int DEFAULT_BUFFER_SIZE = 8192;
@@ -168,11 +176,18 @@ public class SionDownload {
 		private boolean unlimit;// 请求异常无限重试
 		private boolean failThrow; // 错误异常
 		private boolean rename; // 重命名
+		private boolean preallocate = true; // 预分配文件
+		private boolean tempFile; // 写入临时文件
 		private Proxy proxy = Proxy.NO_PROXY; // 代理
 		private File storage; // 本地存储文件
 		private File session; // 配置信息文件
 		private File DEFAULT_FOLDER = SystemUtil.DEFAULT_DOWNLOAD_FOLDER;  // 存储目录
 		private List<Integer> retryStatusCodes = new ArrayList<>();
+		private RetryPolicy retryPolicy; // 重试策略
+		private List<String> mirrors = new ArrayList<>(); // 镜像URL
+		private MirrorSelector selector; // 镜像选择器
+		private SionTask task; // 异步下载任务
+		private ContentStore store; // 内容存储
 
 		private Map<String, String> headers = new HashMap<>(); // headers
 		private Map<String, String> cookies = new HashMap<>(); // cookies
@@ -180,9 +195,13 @@ public class SionDownload {
 
 		private final SionRequest request = new SionRequest();
 		private JSONObject fileInfo = new JSONObject();
-		private Runnable listener;
+		private ProgressListener listener; // 进度监听器
+		private int listenerMillis = 1000; // 推送频率
 		private long MAX_COMPLETED;
-		private final AtomicLong schedule = new AtomicLong();
+		private DownloadJournal journal; // 断点日志
+		private MessageDigest digest; // 文件摘要,按顺序增量计算
+		private long digested; // 已计算摘要的位置
+		private final DownloadProgress progress = new DownloadProgress();
 		private final Map<Long, Long> status = new ConcurrentHashMap<>();
 
 		private HttpConnection() {
@@ -190,12 +209,23 @@ public class SionDownload {
 
 		public SionConnection url(@NotNull String url) {
 			request.setHash(this.hash = null);
+			etag = null;
 			fileName = null;
 			fileSize = 0;
+			mirrors = new ArrayList<>();
 			method = method == SionMethod.FILE ? SionMethod.MULTITHREAD : method;
 			return alterUrl(url);
 		}
 
+		public SionConnection mirrors(@NotNull String... urls) {
+			return mirrors(Arrays.asList(urls));
+		}
+
+		public SionConnection mirrors(@NotNull List<String> urls) {
+			this.mirrors = new ArrayList<>(urls);
+			return this;
+		}
+
 		public SionConnection alterUrl(@NotNull String url) {
 			request.setUrl(this.url = url);
 			fileInfo.put("url", url);
@@ -214,9 +244,13 @@ public class SionDownload {
 				request.setUrl(url = fileInfo.getString("url"));
 				request.setFileSize(fileSize = fileInfo.getLong("fileSize"));
 				request.setHash(hash = fileInfo.getString("hash"));
+				etag = fileInfo.getString("etag");
 				fileName = fileInfo.getString("fileName");
 				headers = StringUtil.jsonToMap(fileInfo.getString("header"));
 				cookies = StringUtil.jsonToMap(fileInfo.getString("cookie"));
+				tempFile = fileInfo.getBooleanValue("temp", false);
+				var mirrors = fileInfo.getList("mirrors", String.class);
+				this.mirrors = mirrors == null ? new ArrayList<>() : new ArrayList<>(mirrors);
 			} else { // 配置文件不存在，抛出异常
 				throw new DownloadException("Not found or not is file " + session);
 			}
@@ -337,6 +371,11 @@ public class SionDownload {
 			return this;
 		}
 
+		public SionConnection retryPolicy(@NotNull RetryPolicy retryPolicy) {
+			this.retryPolicy = retryPolicy;
+			return this;
+		}
+
 		public SionConnection bufferSize(int bufferSize) {
 			DEFAULT_BUFFER_SIZE = bufferSize;
 			return this;
@@ -357,6 +396,21 @@ public class SionDownload {
 			return this;
 		}
 
+		public SionConnection preallocate(boolean preallocate) {
+			this.preallocate = preallocate;
+			return this;
+		}
+
+		public SionConnection tempFile(boolean tempFile) {
+			this.tempFile = tempFile;
+			return this;
+		}
+
+		public SionConnection store(@NotNull ContentStore store) {
+			this.store = store;
+			return this;
+		}
+
 		public SionConnection folder(@NotNull String folder) {
 			return folder(new File(folder));
 		}
@@ -371,15 +425,16 @@ public class SionDownload {
 		}
 
 		public SionConnection listener(@NotNull SionListener listener, int millis) {
-			this.listener = () -> {
-				long schedule, rate = this.schedule.get();
-				do {
-					ThreadUtil.waitThread(millis);
-					schedule = this.schedule.get();
-					listener.bytesTransferred(fileName, schedule - rate, schedule, fileSize);
-					rate = schedule;
-				} while (!Thread.currentThread().isInterrupted());
-			};
+			return progress(l -> listener.bytesTransferred(l.fileName(), l.delta(), l.transferred(), l.fileSize()), millis);
+		}
+
+		public SionConnection progress(@NotNull ProgressListener listener) {
+			return progress(listener, 1000);
+		}
+
+		public SionConnection progress(@NotNull ProgressListener listener, int millis) {
+			this.listener = listener;
+			this.listenerMillis = millis;
 			return this;
 		}
 
@@ -387,6 +442,16 @@ public class SionDownload {
 			return execute(method);
 		}
 
+		public SionTask executeAsync() {
+			return executeAsync(SionQueue.common(), 0);
+		}
+
+		public synchronized SionTask executeAsync(@NotNull SionQueue queue, int priority) {
+			if (task != null && !task.isDone()) throw new DownloadException("异步下载任务尚未结束: " + url); // 任务共享连接的下载状态
+			queue.submit(task = new SionTask(queue, priority, () -> execute(method)));
+			return task;
+		}
+
 		private SionResponse execute(@NotNull SionMethod method) {
 			initializationStatus(); // 初始化
 			int MAX_THREADS = this.MAX_THREADS; // 复制全局线程被篡改
@@ -395,19 +460,39 @@ public class SionDownload {
 					method = SionMethod.valueOf(fileInfo.getString("method"));
 					MAX_THREADS = fileInfo.getInteger("threads");
 					request.setStorage(storage = new File(DEFAULT_FOLDER, fileName));  // 获取其file对象
+					if (tempFile) storage = new File(storage.getPath() + PART_SUFFIX); // 写入临时文件
+					journal = DownloadJournal.open(DownloadJournal.of(session));
 					var renew = fileInfo.getJSONObject("renew");
-					if (storage.exists() && renew != null) {
-						schedule.set(MAX_COMPLETED = renew.getLong("completed"));
-						status.putAll(renew.getJSONObject("status").toMap(Long.class, Long.class));
-						schedule.addAndGet(status.entrySet().stream().mapToLong(l -> l.getValue() - l.getKey()).sum());
+					if (renew != null) { // 旧版会话的断点信息,转存至日志
+						journal.record(COMPLETED, renew.getLong("completed"));
+						renew.getJSONObject("status").toMap(Long.class, Long.class).forEach(journal::record);
+						fileInfo.remove("renew");
+						ReadWriteUtil.orgin(session).append(false).write(fileInfo.toString());  // 重置配置文件
+					}
+					if (storage.exists()) {
+						var entries = journal.entries();
+						progress.add(MAX_COMPLETED = Math.max(entries.getOrDefault(COMPLETED, 0L), 0));
+						entries.forEach((start, flip) -> {
+							if (start >= MAX_COMPLETED) status.put(start, flip);
+						});
+						progress.add(status.entrySet().stream().mapToLong(l -> l.getValue() - l.getKey()).sum());
+					} else {
+						journal.close();
+						journal = DownloadJournal.create(DownloadJournal.of(session));
 					}
-					fileInfo.remove("renew");
-					ReadWriteUtil.orgin(session).append(false).write(fileInfo.toString());  // 重置配置文件
 				}
 				case FULL, PIECE, MULTITHREAD, MANDATORY -> {    // 获取文件信息
-					var res = HttpsUtil.connect(url).removeHeader("referer").proxy(proxy).headers(headers).cookies(cookies).retry(MAX_RETRY, MILLISECONDS_SLEEP).retry(unlimit).retryStatusCodes(retryStatusCodes).failThrow(failThrow).execute();
+					if (store != null && !Judge.isEmpty(fileName) && store.contains(hash)) { // 内容已存在,无需请求
+						var target = new File(DEFAULT_FOLDER, fileName);
+						if (!new File(target + SESSION_SUFFIX).exists() && store.materialize(hash, target)) {
+							request.setStorage(storage = target);
+							return new HttpResponse(this, request.statusCode(HttpStatus.SC_OK));
+						}
+					}
+					var res = HttpsUtil.connect(url).removeHeader("referer").proxy(proxy).headers(headers).cookies(cookies).retry(MAX_RETRY, MILLISECONDS_SLEEP).retry(unlimit).retryStatusCodes(retryStatusCodes).retryPolicy(retryPolicy()).failThrow(failThrow).execute();
 					// 获取URL连接状态
 					int statusCode = res.statusCode();
+					res.close(); // 只使用响应头,释放连接和并发许可
 					if (!URIUtil.statusIsOK(statusCode)) {
 						return new HttpResponse(this, request.statusCode(statusCode));
 					}
@@ -458,27 +543,70 @@ public class SionDownload {
 					request.setFileSize(fileSize = contentLength == null ? fileSize : Long.parseLong(contentLength));
 					method = fileSize == 0 ? SionMethod.FULL : method;// 如果文件大小获取失败或线程为1，使用全量下载模式
 					request.setHash(hash = Judge.isEmpty(hash) ? URIUtil.getHash(request.headers()) : hash);  // 获取文件hash
+					etag = res.header("etag");
+					if (store != null) { // 按照hash值或 ETag 查询存储
+						var key = Judge.isEmpty(hash) ? store.lookup(url, etag) : hash;
+						if (store.contains(key) && store.materialize(key, storage)) {
+							return new HttpResponse(this, request.statusCode(HttpStatus.SC_OK));
+						}
+					}
+					mirrors = fileSize == 0 ? new ArrayList<>() : new ArrayList<>(mirrors.stream().filter(l -> !l.equals(url) && agree(l, res)).toList()); // 校验镜像
 					// 创建并写入文件配置信息
 					fileInfo.put("fileName", fileName);
 					fileInfo.put("fileSize", fileSize);
 					fileInfo.put("hash", hash);
+					fileInfo.put("etag", etag);
 					fileInfo.put("threads", MAX_THREADS);
 					fileInfo.put("method", method.name());
 					fileInfo.put("header", headers);
 					fileInfo.put("cookie", cookies);
+					fileInfo.put("mirrors", mirrors);
+					fileInfo.put("temp", tempFile);
 					ReadWriteUtil.orgin(session).write(fileInfo.toString());
+					if (tempFile) { // 写入临时文件,清除上次未完成的残留
+						storage = new File(storage.getPath() + PART_SUFFIX);
+						storage.delete();
+					}
+					journal = DownloadJournal.create(DownloadJournal.of(session));
 				}
 				default -> throw new DownloadException("Unknown mode");
 			}
 
 			FileUtil.createFolder(DEFAULT_FOLDER); // 创建文件夹
-			Runnable breakPoint = () -> ReadWriteUtil.orgin(session).append(false).write(fileInfo.fluentPut("renew", new JSONObject().fluentPut("completed", MAX_COMPLETED).fluentPut("status", status)).toString());
+			if (fileSize > 0) { // 检查剩余空间并预分配
+				long required = fileSize - progress.transferred(); // 预分配的文件可能是稀疏文件,按照日志中已完成的字节数计算,而不是文件长度
+				long usable = DEFAULT_FOLDER.getUsableSpace();
+				if (required > 0 && usable > 0 && usable < required) {
+					journal.close();
+					if (failThrow) {
+						throw new DownloadException("磁盘空间不足，需要: " + required + " 可用: " + usable + " 目录: " + DEFAULT_FOLDER);
+					}
+					return new HttpResponse(this, request.statusCode(HttpStatus.SC_INSUFFICIENT_STORAGE));
+				}
+				if (preallocate && storage.length() < fileSize) {
+					try (var out = new RandomAccessFile(storage, "rw")) {
+						out.setLength(fileSize);
+					} catch (IOException e) {
+						journal.close();
+						if (failThrow) {
+							throw new DownloadException("预分配文件失败: " + storage, e);
+						}
+						return new HttpResponse(this, request.statusCode(HttpStatus.SC_INSUFFICIENT_STORAGE));
+					}
+				}
+			}
+			Runnable breakPoint = journal::close; // 日志已实时记录断点,仅需压缩
 			Thread abnormal;
 			Runtime.getRuntime().addShutdownHook(abnormal = new Thread(breakPoint));
-			var listenTask = ThreadUtil.start(listener);
+			digest = valid && !Judge.isEmpty(hash) ? ContentDigest.forHash(hash) : null;
+			var sources = new ArrayList<String>();
+			sources.add(url);
+			sources.addAll(mirrors);
+			selector = new MirrorSelector(sources);
+			progress.start(fileName, fileSize, listener, listenerMillis);
 			int statusCode;
 			switch (method) {  // 开始下载
-				case FULL -> statusCode = FULL(MAX_RETRY);
+				case FULL -> statusCode = FULL();
 				case PIECE -> statusCode = MULTITHREAD((int) Math.ceil((double) fileSize / PIECE_MAX_SIZE), PIECE_MAX_SIZE, MAX_THREADS);
 				case MULTITHREAD -> {
 					int PIECE_COUNT = Math.min((int) Math.ceil((double) fileSize / PIECE_MAX_SIZE), MAX_THREADS);
@@ -487,19 +615,20 @@ public class SionDownload {
 				case MANDATORY -> statusCode = MULTITHREAD(MAX_THREADS, (long) Math.ceil((double) fileSize / MAX_THREADS), MAX_THREADS);
 				default -> throw new DownloadException("Unknown mode");
 			}
-			ThreadUtil.interrupt(listenTask);
+			progress.stop();
 			Runtime.getRuntime().removeShutdownHook(abnormal);
 			if (!URIUtil.statusIsOK(statusCode)) { // 验证下载状态
-				breakPoint.run(); // 下载失败写入断点
-				if (failThrow) {
+				breakPoint.run(); // 下载失败或暂停写入断点
+				if (failThrow && statusCode != HttpStatus.SC_CLIENT_CLOSED_REQUEST) {
 					throw new DownloadException("文件下载失败，状态码: " + statusCode + " URL: " + url);
 				}
 				return new HttpResponse(this, request.statusCode(statusCode));
 			}
+			journal.delete(); // 下载完成,删除断点日志
 
 			// 效验文件完整性
 			String fileHash;
-			if (valid && !Judge.isEmpty(hash) && !(fileHash = FileUtil.hashGet(storage, hash)).equalsIgnoreCase(hash)) {
+			if (valid && !Judge.isEmpty(hash) && !(fileHash = fileHash()).equalsIgnoreCase(hash)) {
 				storage.delete(); // 删除下载错误的文件
 				String failThrowText;
 				if (unlimit) {
@@ -519,75 +648,215 @@ public class SionDownload {
 				}
 			}
 
+			if (tempFile) { // 原子重命名为目标文件
+				try {
+					try {
+						Files.move(storage.toPath(), request.getStorage().toPath(), StandardCopyOption.ATOMIC_MOVE);
+					} catch (AtomicMoveNotSupportedException e) {
+						Files.move(storage.toPath(), request.getStorage().toPath(), StandardCopyOption.REPLACE_EXISTING);
+					}
+				} catch (IOException e) {
+					throw new DownloadException("临时文件重命名失败: " + storage, e);
+				}
+				storage = request.getStorage();
+			}
+			if (store != null) { // 加入存储,已效验的hash值无需重新计算
+				var key = valid && ContentStore.isHash(hash) ? store.put(storage, hash) : store.put(storage);
+				if (key != null) store.tag(url, etag, key);
+			}
 			session.delete(); // 删除会话信息文件
 			return new HttpResponse(this, request.statusCode(HttpStatus.SC_OK));
 		}
 
 		private void initializationStatus() {
-			schedule.set(0);
+			progress.reset();
 			MAX_COMPLETED = 0;
 			status.clear();
+			digest = null;
+			digested = 0;
 		}
 
 		/**
-		 * 全量下载，下载获取文件信息并写入文件
+		 * 校验镜像与主URL是否为同一文件,镜像必须支持分段请求,文件大小必须一致,双方均返回 ETag 时 ETag 必须一致
+		 * <p>
+		 * 忽略 Range 的镜像返回200和完整内容,分块或续传时会被写入错误的位置,因此只接受206和包含文件大小的 Content-Range
 		 *
-		 * @param retry 重试次数
-		 * @return 下载并写入是否成功(状态码)
+		 * @param mirror  镜像URL
+		 * @param primary 主URL的响应
+		 * @return 是否一致
+		 */
+		private boolean agree(String mirror, Response primary) {
+			var res = HttpsUtil.connect(mirror).removeHeader("referer").proxy(proxy).headers(headers).header("range", "bytes=0-0").cookies(cookies).retry(MAX_RETRY, MILLISECONDS_SLEEP).retryStatusCodes(retryStatusCodes).retryPolicy(retryPolicy()).execute();
+			try {
+				if (res.statusCode() != HttpStatus.SC_PARTIAL_CONTENT) return false;
+				var range = res.header("content-range"); // bytes 0-0/size
+				if (range == null || !range.contains("/")) return false;
+				long size;
+				try {
+					size = Long.parseLong(range.substring(range.lastIndexOf('/') + 1).strip());
+				} catch (NumberFormatException e) {
+					return false; // bytes 0-0/* 未知大小
+				}
+				var etag = primary.header("etag");
+				var other = res.header("etag");
+				return size == fileSize && (etag == null || other == null || etag.equals(other));
+			} finally {
+				res.close();
+			}
+		}
+
+		/**
+		 * 获取文件hash值,优先使用下载过程中增量计算的摘要,无法增量计算时读取整个文件
+		 *
+		 * @return 文件hash值
 		 */
-		private int FULL(int retry) {
-			var piece = HttpsUtil.connect(url).removeHeader("referer").proxy(proxy).headers(headers).header("range", "bytes=" + MAX_COMPLETED + "-").cookies(cookies).failThrow(failThrow).execute();
-			int statusCode = piece.statusCode();
-			return URIUtil.statusIsOK(statusCode) ? FULL(piece, retry) : unlimit || retry > 0 ? FULL(retry - 1) : statusCode;
+		private String fileHash() {
+			if (digest != null) digestTo(Math.max(fileSize, storage.length()));
+			return digest == null ? FileUtil.hashGet(storage, hash) : ContentDigest.hex(digest);
 		}
 
 		/**
-		 * 全量下载，下载获取文件信息并写入文件
+		 * 按顺序计算文件摘要至指定位置
+		 * <p>
+		 * 读取的是刚完成的连续区域,通常仍在系统缓存中,与下载并行进行,无需在下载结束后重新读取整个文件
 		 *
-		 * @param res   网页Response对象
-		 * @param retry 重试次数
-		 * @return 下载并写入是否成功(状态码)
+		 * @param position 结束位置
 		 */
-		private int FULL(Response res, int retry) {
-			try (var in = res.bodyStream(); var out = new RandomAccessFile(storage, "rw")) {
-				out.seek(MAX_COMPLETED);
+		private synchronized void digestTo(long position) {
+			if (digest == null || digested >= position) return;
+			try (var in = new RandomAccessFile(storage, "r")) {
+				in.seek(digested);
 				var buffer = new byte[DEFAULT_BUFFER_SIZE];
-				for (int len; (len = in.read(buffer, 0, DEFAULT_BUFFER_SIZE)) != -1; MAX_COMPLETED = schedule.addAndGet(len)) {
-					out.write(buffer, 0, len);
+				for (int len; digested < position && (len = in.read(buffer, 0, (int) Math.min(buffer.length, position - digested))) != -1; digested += len) {
+					digest.update(buffer, 0, len);
 				}
-				if (fileSize == 0 || MAX_COMPLETED >= fileSize) return HttpStatus.SC_OK;
 			} catch (IOException e) {
-				e.printStackTrace();
+				digest = null; // 回退至读取整个文件
 			}
-			if (unlimit || retry > 0) {
-				ThreadUtil.waitThread(MILLISECONDS_SLEEP);
-				return FULL(retry - 1);
+		}
+
+		/**
+		 * 异步任务是否要求停止下载,暂停、取消或被抢占
+		 *
+		 * @return 是否停止
+		 */
+		private boolean stopped() {
+			var task = this.task;
+			return task != null && task.stopping();
+		}
+
+		private RetryPolicy retryPolicy() {
+			return retryPolicy == null ? RetryPolicy.fixed(MILLISECONDS_SLEEP) : retryPolicy;
+		}
+
+		/**
+		 * 全量下载，下载获取文件信息并写入文件
+		 * <p>
+		 * 失败时按照重试策略等待并从断点位置继续下载
+		 *
+		 * @return 下载并写入是否成功(状态码)
+		 */
+		private int FULL() {
+			digestTo(MAX_COMPLETED); // 断点续传时补充已下载部分的摘要
+			var policy = retryPolicy();
+			var source = url;
+			int statusCode = HttpStatus.SC_REQUEST_TIMEOUT;
+			String retryAfter = null;
+			for (int i = 0; i <= MAX_RETRY || unlimit; i++) {
+				if (i > 0) {
+					if (Thread.currentThread().isInterrupted() || stopped()) break;
+					ThreadUtil.waitThread(policy.delay(URIUtil.getHost(source), i - 1, retryAfter));
+				}
+				var host = URIUtil.getHost(source = selector.select());
+				long begin = System.nanoTime();
+				var piece = HttpsUtil.connect(source).removeHeader("referer").proxy(proxy).headers(headers).header("range", "bytes=" + MAX_COMPLETED + "-").cookies(cookies).failThrow(failThrow).execute();
+				if (!URIUtil.statusIsOK(statusCode = piece.statusCode())) {
+					piece.close();
+					retryAfter = piece.header("retry-after");
+					policy.failure(host);
+					selector.failure(source);
+					continue;
+				}
+				if (statusCode == HttpStatus.SC_OK && MAX_COMPLETED > 0) { // 忽略了 Range,内容从文件开头开始,不能写入断点位置
+					piece.close();
+					policy.failure(host);
+					selector.failure(source);
+					statusCode = HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE;
+					continue;
+				}
+				retryAfter = null;
+				long flip = MAX_COMPLETED;
+				var verifier = ContentDigest.of(piece);
+				try (var in = piece.bodyStream(); var out = new RandomAccessFile(storage, "rw")) {
+					out.seek(MAX_COMPLETED);
+					var buffer = new byte[DEFAULT_BUFFER_SIZE];
+					for (int len; !stopped() && (len = in.read(buffer, 0, DEFAULT_BUFFER_SIZE)) != -1; progress.add(host, len), journal.record(COMPLETED, MAX_COMPLETED += len)) {
+						out.write(buffer, 0, len);
+						if (verifier != null) verifier.update(buffer, 0, len);
+						if (digest != null && digested == MAX_COMPLETED) {
+							digest.update(buffer, 0, len);
+							digested += len;
+						}
+					}
+					boolean completed = fileSize == 0 ? !stopped() : MAX_COMPLETED >= fileSize;
+					if (!completed && stopped()) return HttpStatus.SC_CLIENT_CLOSED_REQUEST; // 已写入部分记录在日志中
+					if (completed && verifier != null && !verifier.verify()) { // 内容损坏,回退到本次请求的起始位置
+						progress.add(flip - MAX_COMPLETED);
+						journal.record(COMPLETED, MAX_COMPLETED = flip);
+						if (digested > flip) {
+							digest = ContentDigest.forHash(hash);
+							digested = 0;
+						}
+						policy.failure(host);
+						selector.failure(source);
+						statusCode = HttpStatus.SC_SERVER_RESOURCE_ERROR;
+						continue;
+					}
+					if (completed) {
+						policy.success(host);
+						selector.success(source, MAX_COMPLETED - flip, System.nanoTime() - begin);
+						return HttpStatus.SC_OK;
+					}
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+				selector.failure(source);
+				statusCode = HttpStatus.SC_REQUEST_TIMEOUT;
 			}
-			return HttpStatus.SC_REQUEST_TIMEOUT;
+			return stopped() ? HttpStatus.SC_CLIENT_CLOSED_REQUEST : statusCode;
 		}
 
 		private int MULTITHREAD(int PIECE_COUNT, long PIECE_SIZE, int MAX_THREADS) {
 			var statusCodes = new AtomicInteger(HttpStatus.SC_OK);
 			var addCompleted = new AtomicBoolean(true);
 			var executor = Executors.newFixedThreadPool(MAX_THREADS); // 下载线程池
+			progress.pieces(PIECE_COUNT);
+			progress.skipped((int) (MAX_COMPLETED / PIECE_SIZE));
 			for (long i = MAX_COMPLETED / PIECE_SIZE; i < PIECE_COUNT; i++) {
 				executor.execute(new ConsumerThread(i, (index) -> { // 执行多线程程
 					long start = index * PIECE_SIZE;
 					long end = (index + 1 == PIECE_COUNT ? fileSize : (index + 1) * PIECE_SIZE) - 1;
 					long flip = status.getOrDefault(start, start);
-					int statusCode = flip >= end ? HttpStatus.SC_PARTIAL_CONTENT : writePiece(start, flip, end, MAX_RETRY);
+					int statusCode = flip >= end ? HttpStatus.SC_PARTIAL_CONTENT : stopped() ? HttpStatus.SC_CLIENT_CLOSED_REQUEST : writePiece(start, flip, end);
+					if (statusCode == HttpStatus.SC_PARTIAL_CONTENT) {
+						status.put(start, end + 1);
+						progress.completed(start, end - start + 1);
+					}
 					if (addCompleted.get() && end > MAX_COMPLETED) {
 						addCompleted.set(false);
-						long completed;
+						long completed, previous = MAX_COMPLETED;
 						while ((completed = status.getOrDefault(MAX_COMPLETED, MAX_COMPLETED)) == MAX_COMPLETED + PIECE_SIZE) {
 							status.remove(MAX_COMPLETED);
+							journal.remove(MAX_COMPLETED);
 							MAX_COMPLETED = completed;
 						}
+						if (MAX_COMPLETED != previous) journal.record(COMPLETED, MAX_COMPLETED);
 						addCompleted.set(true);
+						digestTo(MAX_COMPLETED);
 					}
 					if (!URIUtil.statusIsOK(statusCode)) {
 						statusCodes.set(statusCode);
-						executor.shutdownNow(); // 结束未开始的线程，并关闭线程池
+						if (statusCode != HttpStatus.SC_CLIENT_CLOSED_REQUEST) executor.shutdownNow(); // 结束未开始的线程，并关闭线程池;暂停时等待进行中的块写入断点
 					}
 				}));
 			}
@@ -597,46 +866,74 @@ public class SionDownload {
 
 		/**
 		 * 分块下载，下载获取文件区块信息并写入文件
+		 * <p>
+		 * 失败时按照重试策略等待并从断点位置继续下载
 		 *
 		 * @param start 块起始位
 		 * @param flip  断点位置,用于修正
 		 * @param end   块结束位
-		 * @param retry 重试次数
-		 * @return 下载并写入是否成功(状态码)
-		 */
-		private int writePiece(long start, long flip, long end, int retry) {
-			var piece = HttpsUtil.connect(url).removeHeader("referer").proxy(proxy).headers(headers).header("range", "bytes=" + flip + "-" + end).cookies(cookies).execute();
-			int statusCode = piece.statusCode();
-			return URIUtil.statusIsOK(statusCode) ? writePiece(start, flip, end, piece, retry) : unlimit || retry > 0 ? writePiece(start, flip, end, retry - 1) : statusCode;
-		}
-
-		/**
-		 * 下载获取文件区块信息并写入文件
-		 *
-		 * @param start 块起始位
-		 * @param flip  断点位置,用于修正
-		 * @param end   块结束位
-		 * @param piece 块Response对象
-		 * @param retry 重试次数
 		 * @return 下载并写入是否成功(状态码)
 		 */
-		private int writePiece(long start, long flip, long end, Response piece, int retry) {
-			long count = 0;
-			try (var inputStream = piece.bodyStream(); var out = new RandomAccessFile(storage, "rw")) {
-				out.seek(flip);
-				var buffer = new byte[DEFAULT_BUFFER_SIZE];
-				for (int len; (len = inputStream.read(buffer)) != -1; count += len, status.put(start, flip + count), schedule.addAndGet(len)) {
-					out.write(buffer, 0, len);
+		private int writePiece(long start, long flip, long end) {
+			var policy = retryPolicy();
+			var source = url;
+			int statusCode = HttpStatus.SC_REQUEST_TIMEOUT;
+			String retryAfter = null;
+			for (int i = 0; i <= MAX_RETRY || unlimit; i++) {
+				if (i > 0) {
+					if (Thread.currentThread().isInterrupted() || stopped()) break;
+					ThreadUtil.waitThread(policy.delay(URIUtil.getHost(source), i - 1, retryAfter));
 				}
-				if (end - flip + 1 == count) return HttpStatus.SC_PARTIAL_CONTENT;
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
-			if (unlimit || retry > 0) {
-				ThreadUtil.waitThread(MILLISECONDS_SLEEP);
-				return writePiece(start, flip + count, end, retry - 1);
+				var host = URIUtil.getHost(source = selector.select()); // 每次请求重新选择镜像,失败的镜像已被降级
+				long begin = System.nanoTime();
+				var piece = HttpsUtil.connect(source).removeHeader("referer").proxy(proxy).headers(headers).header("range", "bytes=" + flip + "-" + end).cookies(cookies).execute();
+				if (!URIUtil.statusIsOK(statusCode = piece.statusCode())) {
+					piece.close();
+					retryAfter = piece.header("retry-after");
+					policy.failure(host);
+					selector.failure(source);
+					continue;
+				}
+				if (statusCode == HttpStatus.SC_OK && flip > 0) { // 忽略了 Range,内容从文件开头开始,不能写入本块的位置
+					piece.close();
+					policy.failure(host);
+					selector.failure(source);
+					statusCode = HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE;
+					continue;
+				}
+				retryAfter = null;
+				long count = 0;
+				var verifier = ContentDigest.of(piece);
+				try (var inputStream = piece.bodyStream(); var out = new RandomAccessFile(storage, "rw")) {
+					out.seek(flip);
+					var buffer = new byte[DEFAULT_BUFFER_SIZE];
+					for (int len; !stopped() && count <= end - flip && (len = inputStream.read(buffer, 0, (int) Math.min(buffer.length, end - flip + 1 - count))) > 0; count += len, journal.record(start, flip + count), progress.add(host, len)) { // 返回200时只写入本块的长度
+						out.write(buffer, 0, len);
+						if (verifier != null) verifier.update(buffer, 0, len);
+					}
+					boolean completed = end - flip + 1 == count;
+					if (!completed && stopped()) return HttpStatus.SC_CLIENT_CLOSED_REQUEST; // 已写入部分记录在日志中
+					if (completed && verifier != null && !verifier.verify()) { // 内容损坏,仅重新获取本次请求的区间
+						progress.add(-count);
+						journal.record(start, flip);
+						policy.failure(host);
+						selector.failure(source);
+						statusCode = HttpStatus.SC_SERVER_RESOURCE_ERROR;
+						continue;
+					}
+					if (completed) {
+						policy.success(host);
+						selector.success(source, count, System.nanoTime() - begin);
+						return HttpStatus.SC_PARTIAL_CONTENT;
+					}
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+				selector.failure(source);
+				flip += count;
+				statusCode = HttpStatus.SC_REQUEST_TIMEOUT;
 			}
-			return HttpStatus.SC_REQUEST_TIMEOUT;
+			return stopped() ? HttpStatus.SC_CLIENT_CLOSED_REQUEST : statusCode;
 		}
 
 	}
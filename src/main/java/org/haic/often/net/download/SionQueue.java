@@ -0,0 +1,99 @@
+package org.haic.often.net.download;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Sion下载优先级队列
+ * <p>
+ * 同时运行的下载任务数量受并发数限制,优先级高的任务优先运行;优先级更高的任务到达时,运行中优先级最低的任务被抢占
+ * <p>
+ * 被抢占的任务会等待正在下载的数据块写入并刷新断点日志后停止,重新获得运行资格时从断点继续,不丢失进度
+ *
+ * @author haicdust
+ * @version 1.0
+ * @since 2026/10/19 20:40
+ */
+public class SionQueue {
+
+	private static final SionQueue COMMON = new SionQueue(Integer.MAX_VALUE);
+
+	private final int parallel; // 最大并发数
+	private final List<SionTask> tasks = new ArrayList<>();
+	private long sequence; // 提交序号,相同优先级按照提交顺序运行
+
+	/**
+	 * 创建下载队列
+	 *
+	 * @param parallel 最大并发数
+	 */
+	public SionQueue(int parallel) {
+		if (parallel < 1) {
+			throw new IllegalArgumentException("并发数必须大于0");
+		}
+		this.parallel = parallel;
+	}
+
+	/**
+	 * 获取公共队列,不限制并发数
+	 *
+	 * @return 公共队列
+	 */
+	public static SionQueue common() {
+		return COMMON;
+	}
+
+	/**
+	 * 获取最大并发数
+	 *
+	 * @return 最大并发数
+	 */
+	public int parallel() {
+		return parallel;
+	}
+
+	/**
+	 * 获取队列中未结束的任务
+	 *
+	 * @return 任务列表
+	 */
+	public synchronized List<SionTask> tasks() {
+		return new ArrayList<>(tasks);
+	}
+
+	/**
+	 * 提交并启动任务
+	 *
+	 * @param task 任务
+	 */
+	synchronized void submit(@NotNull SionTask task) {
+		task.order = sequence++;
+		tasks.add(task);
+		schedule();
+		task.start();
+	}
+
+	/**
+	 * 任务结束,释放运行资格
+	 *
+	 * @param task 任务
+	 */
+	synchronized void finished(@NotNull SionTask task) {
+		tasks.remove(task);
+		schedule();
+	}
+
+	/**
+	 * 重新分配运行资格,按照优先级从高到低、提交顺序从先到后选择不超过并发数的任务运行,其余任务暂停等待
+	 */
+	synchronized void schedule() {
+		var candidates = tasks.stream().filter(SionTask::schedulable).sorted(Comparator.comparingInt((SionTask l) -> -l.priority()).thenComparingLong(l -> l.order)).toList();
+		for (int i = 0; i < candidates.size(); i++) {
+			candidates.get(i).admit(i < parallel);
+		}
+	}
+
+}
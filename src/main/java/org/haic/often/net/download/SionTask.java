@@ -0,0 +1,228 @@
+package org.haic.often.net.download;
+
+import org.haic.often.net.http.HttpStatus;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Sion异步下载任务
+ * <p>
+ * 用于控制异步下载,支持暂停、继续、取消和调整优先级
+ * <p>
+ * 暂停或取消时不中断线程,下载线程在写完当前缓冲区后停止读取,断点日志刷新至磁盘后下载结束;继续时从断点日志恢复
+ * <p>
+ * 取消后会话文件和断点日志保留,之后仍可通过会话继续下载,或使用 {@link SionResponse#delete()} 删除
+ *
+ * @author haicdust
+ * @version 1.0
+ * @since 2026/10/19 20:40
+ */
+public class SionTask {
+
+	private final SionQueue queue;
+	private final Supplier<SionResponse> execute;
+	private final CompletableFuture<SionResponse> future = new CompletableFuture<>();
+	long order; // 提交序号
+	private volatile int priority;
+	private volatile boolean admitted; // 队列是否允许运行
+	private volatile boolean paused; // 用户暂停
+	private volatile boolean cancelled;
+	private volatile boolean running; // 是否正在下载
+
+	SionTask(@NotNull SionQueue queue, int priority, @NotNull Supplier<SionResponse> execute) {
+		this.queue = queue;
+		this.priority = priority;
+		this.execute = execute;
+	}
+
+	/**
+	 * 暂停下载,释放运行资格
+	 *
+	 * @return 此任务
+	 */
+	public SionTask pause() {
+		paused = true;
+		queue.schedule();
+		return this;
+	}
+
+	/**
+	 * 继续下载,重新参与调度
+	 *
+	 * @return 此任务
+	 */
+	public SionTask resume() {
+		paused = false;
+		queue.schedule();
+		signal();
+		return this;
+	}
+
+	/**
+	 * 取消下载,保留断点信息
+	 *
+	 * @return 此任务
+	 */
+	public SionTask cancel() {
+		cancelled = true;
+		signal();
+		queue.schedule();
+		return this;
+	}
+
+	/**
+	 * 设置优先级,数值越大越优先,可能导致其它任务被抢占
+	 *
+	 * @param priority 优先级
+	 * @return 此任务
+	 */
+	public SionTask priority(int priority) {
+		this.priority = priority;
+		queue.schedule();
+		return this;
+	}
+
+	/**
+	 * 获取优先级
+	 *
+	 * @return 优先级
+	 */
+	public int priority() {
+		return priority;
+	}
+
+	/**
+	 * 获取任务状态,暂停的任务在当前数据块写入完成前仍为运行状态
+	 *
+	 * @return 任务状态
+	 */
+	public State state() {
+		if (future.isDone()) return cancelled ? State.CANCELLED : State.DONE;
+		if (running) return State.RUNNING;
+		return paused ? State.PAUSED : State.WAITING;
+	}
+
+	/**
+	 * 任务是否已结束
+	 *
+	 * @return 是否结束
+	 */
+	public boolean isDone() {
+		return future.isDone();
+	}
+
+	/**
+	 * 等待下载结束并获取响应
+	 *
+	 * @return 下载响应
+	 * @throws CancellationException 任务已取消
+	 */
+	public SionResponse get() {
+		return future.join();
+	}
+
+	/**
+	 * 获取下载结果,用于异步组合
+	 *
+	 * @return 下载结果
+	 */
+	public CompletableFuture<SionResponse> future() {
+		return future;
+	}
+
+	/**
+	 * 下载线程是否应当停止,暂停、取消或被抢占
+	 *
+	 * @return 是否停止
+	 */
+	boolean stopping() {
+		return !future.isDone() && (cancelled || paused || !admitted);
+	}
+
+	/**
+	 * 是否参与调度
+	 *
+	 * @return 未暂停且未取消
+	 */
+	boolean schedulable() {
+		return !paused && !cancelled;
+	}
+
+	/**
+	 * 设置运行资格
+	 *
+	 * @param admitted 是否允许运行
+	 */
+	void admit(boolean admitted) {
+		this.admitted = admitted;
+		if (admitted) signal();
+	}
+
+	void start() {
+		var thread = new Thread(this::run, "SionTask-" + order);
+		thread.start();
+	}
+
+	private synchronized void signal() {
+		notifyAll();
+	}
+
+	private void run() {
+		try {
+			while (true) {
+				synchronized (this) {
+					while (!cancelled && (paused || !admitted)) wait();
+					if (cancelled) break;
+					running = true;
+				}
+				SionResponse res;
+				try {
+					res = execute.get();
+				} finally {
+					running = false;
+				}
+				if (res.statusCode() != HttpStatus.SC_CLIENT_CLOSED_REQUEST) { // 下载结束,否则为暂停或抢占,等待继续
+					future.complete(res);
+					return;
+				}
+			}
+			future.completeExceptionally(new CancellationException("下载已取消"));
+		} catch (InterruptedException e) {
+			future.completeExceptionally(new CancellationException("下载线程被中断"));
+		} catch (Throwable e) {
+			future.completeExceptionally(e);
+		} finally {
+			queue.finished(this);
+		}
+	}
+
+	/**
+	 * 任务状态
+	 */
+	public enum State {
+		/**
+		 * 等待运行资格
+		 */
+		WAITING,
+		/**
+		 * 正在下载
+		 */
+		RUNNING,
+		/**
+		 * 已暂停
+		 */
+		PAUSED,
+		/**
+		 * 已取消
+		 */
+		CANCELLED,
+		/**
+		 * 已完成,包括下载失败
+		 */
+		DONE
+	}
+
+}
@@ -1,18 +1,23 @@
 package org.haic.often.net.http;
 
 import org.haic.often.Judge;
+import org.haic.often.exception.HttpException;
 import org.haic.often.net.Method;
 import org.haic.often.net.URIUtil;
 import org.haic.often.net.UserAgent;
 import org.haic.often.parser.json.JSONObject;
 import org.haic.often.parser.xml.Element;
 import org.haic.often.util.StringUtil;
+import org.haic.often.util.ThreadUtil;
 import org.jetbrains.annotations.NotNull;
 
 import javax.net.ssl.SSLContext;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.net.Proxy;
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -39,6 +44,9 @@ public abstract class Connection {
     protected boolean unlimit;// 请求异常无限重试
     protected boolean failThrow; // 错误异常
     protected List<Integer> retryStatusCodes = new ArrayList<>();
+    protected RetryPolicy retryPolicy; // 重试策略,为null时使用固定等待时间
+    protected RateLimiter rateLimiter; // 限流器,为null时使用全局限流器
+    protected ConnectionListener listener; // 事件监听器,为null时使用全局监听器
 
     protected String params = ""; // 请求参数
 
@@ -537,6 +545,52 @@ public abstract class Connection {
         return this;
     }
 
+    /**
+     * 设置重试策略,用于计算重试等待时间,替代固定的重试等待时间
+     * <p>
+     * 重试次数仍由 {@link #retry(int)} 或 {@link #retry(boolean)} 控制
+     *
+     * @param retryPolicy 重试策略
+     * @return 此连接，用于链接
+     */
+    public Connection retryPolicy(@NotNull RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+        return this;
+    }
+
+    /**
+     * 设置此会话使用的按主机限流器,每次请求(包括重试)前获取许可,未设置时使用 {@link RateLimiter#global()}
+     * <p>
+     * 并发许可在正文读取结束或关闭响应时释放,只读取响应头时应调用 {@link Response#close()}
+     *
+     * @param rateLimiter 限流器
+     * @return 此连接，用于链接
+     */
+    public Connection rateLimiter(@NotNull RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+        return this;
+    }
+
+    /**
+     * 设置此会话的事件监听器,用于观察域名解析、连接、首字节、正文、重试、重定向等事件,未设置时使用 {@link ConnectionListener#global()}
+     *
+     * @param listener 事件监听器
+     * @return 此连接，用于链接
+     */
+    public Connection listener(@NotNull ConnectionListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * 获取当前生效的事件监听器
+     *
+     * @return 事件监听器,不存在返回null
+     */
+    protected ConnectionListener listener() {
+        return listener == null ? ConnectionListener.global() : listener;
+    }
+
     /**
      * 在状态码不为200+或300+时，抛出执行异常，并获取一些参数，一般用于调试<br/>
      * 默认情况下为false
@@ -574,4 +628,116 @@ public abstract class Connection {
      */
     public abstract Response execute();
 
+    /**
+     * 按照重试策略执行请求程序,直至状态码正常返回或超过重试次数
+     * <p>
+     * 主机处于熔断状态时不发起请求,返回状态码为503的响应,设置 {@link #failThrow(boolean)} 时抛出异常
+     *
+     * @param program 请求程序
+     * @return Response
+     */
+    protected Response retryProgram(@NotNull Supplier<Response> program) {
+        var policy = retryPolicy == null ? RetryPolicy.fixed(MILLISECONDS_SLEEP) : retryPolicy;
+        if (!policy.allow(host)) {
+            if (failThrow) throw new HttpException("主机处于熔断状态: " + host + " URL: " + url);
+            return new BreakerResponse(url, cookies, policy.remaining(host));
+        }
+        var limiter = rateLimiter == null ? RateLimiter.global() : rateLimiter;
+        if (limiter != null) {
+            var request = program;
+            program = () -> { // 许可在正文读取结束或关闭响应时释放
+                limiter.acquire(host);
+                Response response;
+                try {
+                    response = request.get();
+                } catch (RuntimeException | Error e) {
+                    limiter.release(host);
+                    throw e;
+                }
+                response.permit(() -> limiter.release(host));
+                return response;
+            };
+        }
+        var listener = listener();
+        long start = System.nanoTime();
+        if (listener != null) listener.callStart(url);
+        var response = program.get();
+        int statusCode = response.statusCode();
+        for (int i = 0; isRetry(policy, statusCode) && (i < retry || unlimit) && !Thread.currentThread().isInterrupted(); i++) {
+            policy.failure(host);
+            long delay = policy.delay(host, i, response.header("retry-after"));
+            if (listener != null) listener.retry(url, i + 1, statusCode, delay);
+            response.close(); // 丢弃的响应释放连接和并发许可
+            ThreadUtil.waitThread(delay); // 程序等待
+            response = program.get();
+            statusCode = response.statusCode();
+        }
+        if (isRetry(policy, statusCode)) {
+            policy.failure(host);
+        } else {
+            policy.success(host);
+        }
+        if (listener != null) listener.callEnd(url, statusCode, System.nanoTime() - start);
+        if (failThrow && !URIUtil.statusIsNormal(statusCode)) {
+            response.close();
+            throw new HttpException("连接URL失败，状态码: " + statusCode + " URL: " + url);
+        }
+        return response;
+    }
+
+    private boolean isRetry(@NotNull RetryPolicy policy, int statusCode) {
+        return URIUtil.statusIsTimeout(statusCode) || retryStatusCodes.contains(statusCode) || policy.isRetry(statusCode);
+    }
+
+    /**
+     * 主机处于熔断状态时返回的响应,没有正文
+     */
+    private static class BreakerResponse extends Response {
+
+        private final String url;
+
+        private BreakerResponse(String url, Map<String, String> cookies, long remaining) {
+            this.url = url;
+            this.cookies = cookies;
+            headers.put("retry-after", String.valueOf((remaining + 999) / 1000));
+        }
+
+        public String url() {
+            return url;
+        }
+
+        public int statusCode() {
+            return HttpStatus.SC_SERVICE_UNAVAILABLE;
+        }
+
+        public String statusMessage() {
+            return "Circuit Breaker Open";
+        }
+
+        public String contentType() {
+            return null;
+        }
+
+        public Map<String, String> headers() {
+            return headers;
+        }
+
+        public Map<String, String> cookies() {
+            return cookies;
+        }
+
+        public InputStream bodyStream() {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+
+        protected ByteArrayOutputStream bodyAsByteArray() {
+            return body == null ? body = new ByteArrayOutputStream() : body;
+        }
+
+        public void close() {
+            releasePermit();
+        }
+
+    }
+
 }
@@ -0,0 +1,126 @@
+package org.haic.often.net.http;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * 连接事件监听器接口
+ * <p>
+ * 所有方法均为空实现,按需覆盖,时间单位均为纳秒。监听器会被多个线程同时调用,实现必须是线程安全的
+ * <p>
+ * HttpsUtil 基于 HttpURLConnection,无法区分TCP连接与TLS握手,其 {@link #connectEnd} 包含TLS握手时间且不会触发 {@link #secureConnectEnd}
+ *
+ * @author haicdust
+ * @version 1.0
+ * @since 2026/10/19 15:20
+ */
+public interface ConnectionListener {
+
+    /**
+     * 获取全局监听器,未绑定监听器的会话将使用全局监听器
+     *
+     * @return 全局监听器,未设置返回null
+     */
+    @Nullable
+    static ConnectionListener global() {
+        return Global.listener;
+    }
+
+    /**
+     * 设置全局监听器,参数为null时取消
+     *
+     * @param listener 监听器
+     */
+    static void global(@Nullable ConnectionListener listener) {
+        Global.listener = listener;
+    }
+
+    /**
+     * 请求开始,每次调用 execute 仅触发一次,重试不会再次触发
+     *
+     * @param url 请求URL
+     */
+    default void callStart(@NotNull String url) {}
+
+    /**
+     * 域名解析完成
+     *
+     * @param host  主机名
+     * @param nanos 解析耗时
+     */
+    default void dnsEnd(@NotNull String host, long nanos) {}
+
+    /**
+     * 连接建立完成
+     *
+     * @param host  主机名
+     * @param nanos 连接耗时
+     */
+    default void connectEnd(@NotNull String host, long nanos) {}
+
+    /**
+     * TLS握手完成
+     *
+     * @param host  主机名
+     * @param nanos 握手耗时
+     */
+    default void secureConnectEnd(@NotNull String host, long nanos) {}
+
+    /**
+     * 收到响应头(首字节)
+     *
+     * @param url        请求URL
+     * @param statusCode 状态码
+     * @param nanos      从本次尝试开始到收到响应头的耗时
+     */
+    default void responseHeaders(@NotNull String url, int statusCode, long nanos) {}
+
+    /**
+     * 响应正文读取完成或流被关闭
+     *
+     * @param url   请求URL
+     * @param bytes 读取的字节数(传输编码后的字节)
+     * @param nanos 从本次尝试开始到正文读取完成的耗时
+     */
+    default void bodyEnd(@NotNull String url, long bytes, long nanos) {}
+
+    /**
+     * 即将进行重试
+     *
+     * @param url        请求URL
+     * @param attempt    重试次数,从1开始
+     * @param statusCode 上一次请求的状态码
+     * @param delay      重试等待时间(毫秒)
+     */
+    default void retry(@NotNull String url, int attempt, int statusCode, long delay) {}
+
+    /**
+     * 发生重定向
+     *
+     * @param url      原URL
+     * @param location 重定向URL
+     */
+    default void redirect(@NotNull String url, @NotNull String location) {}
+
+    /**
+     * 请求结束,包含所有重试
+     *
+     * @param url        请求URL
+     * @param statusCode 最终状态码
+     * @param nanos      总耗时
+     */
+    default void callEnd(@NotNull String url, int statusCode, long nanos) {}
+
+    /**
+     * 全局监听器持有类
+     */
+    final class Global {
+
+        private static volatile ConnectionListener listener;
+
+        private Global() {
+        }
+
+    }
+
+}
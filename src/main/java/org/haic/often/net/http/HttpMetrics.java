@@ -0,0 +1,207 @@
+package org.haic.often.net.http;
+
+import org.haic.often.net.URIUtil;
+import org.haic.often.parser.json.JSONObject;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HTTP 指标收集器
+ * <p>
+ * 按主机统计请求延迟直方图(总耗时、首字节、域名解析、连接、TLS握手)、传输字节数、状态码分布、重试次数和重定向次数,可导出为JSON快照
+ * <p>
+ * 直方图采用对数分桶(每个2的幂区间再分为32个子桶),相对误差约3%,记录为无锁操作,内存占用固定
+ * <p>
+ * 使用方式: {@code ConnectionListener.global(HttpMetrics.global())} 或 {@code connection.listener(metrics)}
+ *
+ * @author haicdust
+ * @version 1.0
+ * @since 2026/10/19 15:20
+ */
+public class HttpMetrics implements ConnectionListener {
+
+    private static final HttpMetrics GLOBAL = new HttpMetrics();
+
+    private final Map<String, HostMetrics> hosts = new ConcurrentHashMap<>();
+
+    /**
+     * 获取全局指标收集器
+     *
+     * @return 全局指标收集器
+     */
+    public static HttpMetrics global() {
+        return GLOBAL;
+    }
+
+    public void dnsEnd(@NotNull String host, long nanos) {
+        host(host).dns.record(nanos);
+    }
+
+    public void connectEnd(@NotNull String host, long nanos) {
+        host(host).connect.record(nanos);
+    }
+
+    public void secureConnectEnd(@NotNull String host, long nanos) {
+        host(host).tls.record(nanos);
+    }
+
+    public void responseHeaders(@NotNull String url, int statusCode, long nanos) {
+        var metrics = hostOf(url);
+        metrics.firstByte.record(nanos);
+        metrics.status.computeIfAbsent(statusCode, k -> new LongAdder()).increment();
+    }
+
+    public void bodyEnd(@NotNull String url, long bytes, long nanos) {
+        var metrics = hostOf(url);
+        metrics.bytes.add(bytes);
+        metrics.body.record(nanos);
+    }
+
+    public void retry(@NotNull String url, int attempt, int statusCode, long delay) {
+        hostOf(url).retries.increment();
+    }
+
+    public void redirect(@NotNull String url, @NotNull String location) {
+        hostOf(url).redirects.increment();
+    }
+
+    public void callEnd(@NotNull String url, int statusCode, long nanos) {
+        var metrics = hostOf(url);
+        metrics.calls.increment();
+        metrics.latency.record(nanos);
+    }
+
+    /**
+     * 清空所有指标
+     */
+    public void reset() {
+        hosts.clear();
+    }
+
+    /**
+     * 导出当前指标快照,延迟单位为毫秒
+     *
+     * @return JSON快照
+     */
+    public JSONObject snapshot() {
+        var snapshot = new JSONObject();
+        new TreeMap<>(hosts).forEach((host, metrics) -> snapshot.put(host, metrics.snapshot()));
+        return snapshot;
+    }
+
+    /**
+     * 导出指定主机的指标快照,延迟单位为毫秒
+     *
+     * @param host 主机名
+     * @return JSON快照,不存在返回null
+     */
+    public JSONObject snapshot(@NotNull String host) {
+        var metrics = hosts.get(host);
+        return metrics == null ? null : metrics.snapshot();
+    }
+
+    private HostMetrics hostOf(@NotNull String url) {
+        String host;
+        try {
+            host = URIUtil.getHost(url);
+        } catch (Exception e) {
+            return host(url);
+        }
+        int index = host.startsWith("[") ? host.indexOf(']') + 1 : host.lastIndexOf(':'); // 去除端口,与域名解析和连接事件保持一致
+        return host(index > 0 && index < host.length() && host.charAt(index) == ':' ? host.substring(0, index) : host);
+    }
+
+    private HostMetrics host(@NotNull String host) {
+        return hosts.computeIfAbsent(host, k -> new HostMetrics());
+    }
+
+    /**
+     * 单个主机的指标
+     */
+    private static class HostMetrics {
+
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+        private final LongAdder redirects = new LongAdder();
+        private final Map<Integer, LongAdder> status = new ConcurrentHashMap<>();
+        private final Histogram latency = new Histogram();
+        private final Histogram firstByte = new Histogram();
+        private final Histogram body = new Histogram();
+        private final Histogram dns = new Histogram();
+        private final Histogram connect = new Histogram();
+        private final Histogram tls = new Histogram();
+
+        private JSONObject snapshot() {
+            var statusCounts = new JSONObject();
+            new TreeMap<>(status).forEach((code, count) -> statusCounts.put(String.valueOf(code), count.sum()));
+            return new JSONObject().fluentPut("calls", calls.sum()).fluentPut("bytes", bytes.sum()).fluentPut("retries", retries.sum()).fluentPut("redirects", redirects.sum()).fluentPut("status", statusCounts).fluentPut("latency", latency.snapshot()).fluentPut("firstByte", firstByte.snapshot()).fluentPut("body", body.snapshot()).fluentPut("dns", dns.snapshot()).fluentPut("connect", connect.snapshot()).fluentPut("tls", tls.snapshot());
+        }
+
+    }
+
+    /**
+     * 对数分桶直方图,记录微秒级数值
+     */
+    private static class Histogram {
+
+        private static final int SUB_BITS = 5; // 每个2的幂区间的子桶数量 2^5
+        private static final int SUB_COUNT = 1 << SUB_BITS;
+
+        private final AtomicLongArray counts = new AtomicLongArray((64 - SUB_BITS + 1) * SUB_COUNT);
+        private final LongAdder total = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        private void record(long nanos) {
+            long value = Math.max(TimeUnit.NANOSECONDS.toMicros(nanos), 0);
+            counts.incrementAndGet(index(value));
+            total.increment();
+            sum.add(value);
+            max.accumulateAndGet(value, Math::max);
+        }
+
+        private static int index(long value) {
+            if (value < SUB_COUNT) return (int) value;
+            int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS; // 保留最高的 SUB_BITS + 1 位
+            return shift * SUB_COUNT + (int) (value >>> shift);
+        }
+
+        private static long lowest(int index) {
+            if (index < SUB_COUNT * 2) return index;
+            int shift = index / SUB_COUNT - 1;
+            return (long) (index - shift * SUB_COUNT) << shift;
+        }
+
+        private long percentile(double percentile, long count) {
+            long rank = Math.max((long) Math.ceil(count * percentile / 100), 1);
+            long seen = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                if ((seen += counts.get(i)) >= rank) {
+                    return Math.min(i + 1 < counts.length() ? lowest(i + 1) - 1 : Long.MAX_VALUE, max.get());
+                }
+            }
+            return max.get();
+        }
+
+        private JSONObject snapshot() {
+            long count = total.sum();
+            var snapshot = new JSONObject().fluentPut("count", count);
+            if (count == 0) return snapshot;
+            return snapshot.fluentPut("mean", millis(sum.sum() / count)).fluentPut("p50", millis(percentile(50, count))).fluentPut("p90", millis(percentile(90, count))).fluentPut("p99", millis(percentile(99, count))).fluentPut("p999", millis(percentile(99.9, count))).fluentPut("max", millis(max.get()));
+        }
+
+        private static double millis(long micros) {
+            return micros / 1000.0;
+        }
+
+    }
+
+}
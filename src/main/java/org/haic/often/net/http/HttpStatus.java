@@ -187,6 +187,15 @@ public interface HttpStatus {
 	 */
 	int SC_UNAVAILABLE_FOR_LEGAL_REASONS = 451;
 
+	/**
+	 * @code 499
+	 * <p>
+	 * 客户端关闭请求
+	 * <p>
+	 * 私有协议状态码，客户端主动停止了请求，例如下载被暂停或取消
+	 */
+	int SC_CLIENT_CLOSED_REQUEST = 499;
+
 	/**
 	 * @code 510
 	 * <p>
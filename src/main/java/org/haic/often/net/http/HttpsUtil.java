@@ -3,6 +3,7 @@ package org.haic.often.net.http;
 import org.brotli.dec.BrotliInputStream;
 import org.haic.often.Judge;
 import org.haic.often.exception.HttpException;
+import org.haic.often.net.DnsResolver;
 import org.haic.often.net.IgnoreSSLSocket;
 import org.haic.often.net.Method;
 import org.haic.often.net.URIUtil;
@@ -11,18 +12,17 @@ import org.haic.often.tuple.Tuple;
 import org.haic.often.tuple.record.ThreeTuple;
 import org.haic.often.util.IOUtil;
 import org.haic.often.util.StringUtil;
-import org.haic.often.util.ThreadUtil;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import javax.net.ssl.HttpsURLConnection;
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.*;
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.*;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -178,17 +178,7 @@ public class HttpsUtil {
 
         @NotNull
         public Response execute() {
-            var response = executeProgram(url, method, params);
-            int statusCode = response.statusCode();
-            for (int i = 0; (URIUtil.statusIsTimeout(statusCode) || retryStatusCodes.contains(statusCode)) && (i < retry || unlimit); i++) {
-                ThreadUtil.waitThread(MILLISECONDS_SLEEP); // 程序等待
-                response = executeProgram(url, method, params);
-                statusCode = response.statusCode();
-            }
-            if (failThrow && !URIUtil.statusIsNormal(statusCode)) {
-                throw new HttpException("连接URL失败，状态码: " + statusCode + " URL: " + url);
-            }
-            return response;
+            return retryProgram(() -> executeProgram(url, method, params));
         }
 
         /**
@@ -199,11 +189,14 @@ public class HttpsUtil {
         @NotNull
         private Response executeProgram(@NotNull String requestUrl, @NotNull Method method, @NotNull String params) {
             HttpURLConnection conn = null;
+            var listener = listener();
+            var target = requestUrl;
+            long start = System.nanoTime();
             try {
                 switch (method) {
                     case GET -> {
-                        conn = connection(Judge.isEmpty(params) ? requestUrl : requestUrl + (requestUrl.contains("?") ? "&" : "?") + params);
-                        conn.connect();
+                        conn = connection(target = Judge.isEmpty(params) ? requestUrl : requestUrl + (requestUrl.contains("?") ? "&" : "?") + params);
+                        conn = connect(conn, listener);
                     }
                     case POST, PUT, PATCH -> {
                         conn = connection(requestUrl);
@@ -211,6 +204,7 @@ public class HttpsUtil {
                         conn.setUseCaches(false); // POST请求不能使用缓存（POST不能被缓存）
                         conn.setDoOutput(true); // 设置是否向HttpUrlConnction输出，因为这个是POST请求，参数要放在http正文内，因此需要设为true，默认情况下是false
                         conn.setDoInput(true); // 设置是否向HttpUrlConnection读入，默认情况下是true
+                        conn = connect(conn, listener);
                         try (var output = new DataOutputStream(conn.getOutputStream())) {
                             if (file != null) { // 发送文件
                                 var boundary = file.first();
@@ -237,27 +231,90 @@ public class HttpsUtil {
                             output.flush(); // flush输出流的缓冲
                         } catch (IOException e) {
                             conn.disconnect();
-                            return new HttpResponse(conn, cookies);
+                            return new HttpResponse(conn, target, cookies);
                         }
                     }
                     case OPTIONS, DELETE, HEAD, TRACE -> {
                         conn = connection(requestUrl);
-                        conn.connect();
+                        conn = connect(conn, listener);
                     }
                     default -> throw new HttpException("Unknown mode");
                 }
-                var res = new HttpResponse(conn, cookies);
+                var res = new HttpResponse(conn, target, cookies);
+                if (listener != null) {
+                    res.listener(listener, start);
+                    listener.responseHeaders(requestUrl, res.statusCode(), System.nanoTime() - start);
+                }
 
                 String redirectUrl; // 修复重定向
                 if (followRedirects && URIUtil.statusIsNormal(res.statusCode()) && !Judge.isEmpty(redirectUrl = res.header("location"))) {
                     conn.disconnect();
-                    return executeProgram(URIUtil.toAbsoluteUrl(requestUrl, redirectUrl), Method.GET, "");  // 跳转修正为GET
+                    redirectUrl = URIUtil.toAbsoluteUrl(requestUrl, redirectUrl);
+                    if (listener != null) listener.redirect(requestUrl, redirectUrl);
+                    return executeProgram(redirectUrl, Method.GET, "");  // 跳转修正为GET
                 }
 
                 return res;
             } catch (IOException e) {
-                return new HttpResponse(conn, cookies);
+                return new HttpResponse(conn, target, cookies);
+            }
+        }
+
+        /**
+         * 建立连接,连接地址被替换为IP时,连接失败后按照解析顺序尝试其余地址
+         *
+         * @param conn     HttpURLConnection实例
+         * @param listener 事件监听器
+         * @return 已建立的连接,使用其余地址连接成功时为新建的实例
+         * @throws IOException 所有地址连接失败
+         */
+        private HttpURLConnection connect(@NotNull HttpURLConnection conn, ConnectionListener listener) throws IOException {
+            try {
+                connectOnce(conn, listener);
+                return conn;
+            } catch (IOException e) {
+                var host = conn.getRequestProperty("host");
+                if (host == null || headers.containsKey("host")) throw e; // 未替换连接地址,由JDK尝试全部地址
+                var url = conn.getURL();
+                var origin = URIUtil.createURL(url.getProtocol() + "://" + host + url.getFile());
+                for (var address : DnsResolver.global().lookup(origin.getHost())) {
+                    if (ip(address).equals(url.getHost())) continue;
+                    var next = connection(origin, address);
+                    next.setDoOutput(conn.getDoOutput());
+                    next.setDoInput(conn.getDoInput());
+                    next.setUseCaches(conn.getUseCaches());
+                    try {
+                        connectOnce(next, listener);
+                        return next;
+                    } catch (IOException ex) {
+                        e.addSuppressed(ex);
+                    }
+                }
+                throw e;
+            }
+        }
+
+        /**
+         * 建立连接,存在监听器时分别统计域名解析和连接(包含TLS握手)耗时
+         *
+         * @param conn     HttpURLConnection实例
+         * @param listener 事件监听器
+         * @throws IOException 如果发生 I/O 异常
+         */
+        private void connectOnce(@NotNull HttpURLConnection conn, ConnectionListener listener) throws IOException {
+            if (listener == null) {
+                conn.connect();
+                return;
+            }
+            var host = host(conn);
+            if (proxy.type() == Proxy.Type.DIRECT && !URIUtil.isIPAddress(conn.getURL().getHost())) { // 指定了host请求头时未使用解析器,预先解析,结果会被JVM缓存并用于随后的连接
+                long start = System.nanoTime();
+                InetAddress.getAllByName(host);
+                listener.dnsEnd(host, System.nanoTime() - start);
             }
+            long start = System.nanoTime();
+            conn.connect();
+            listener.connectEnd(host, System.nanoTime() - start);
         }
 
         /**
@@ -269,14 +326,31 @@ public class HttpsUtil {
          */
         private HttpURLConnection connection(@NotNull String url) throws IOException {
             var thisURL = URIUtil.createURL(url);
+            var addresses = addresses(thisURL);
+            return connection(thisURL, addresses == null ? null : addresses.get(0));
+        }
+
+        /**
+         * 创建HttpURLConnection实例
+         *
+         * @param thisURL URL
+         * @param address 连接地址,为null时由JDK解析主机名
+         * @return HttpURLConnection实例
+         * @throws IOException 如果发生 I/O 异常
+         */
+        private HttpURLConnection connection(@NotNull URL thisURL, @Nullable InetAddress address) throws IOException {
             HttpURLConnection conn;
             if (Judge.isEmpty(proxyUser) || Judge.isEmpty(proxyPwd)) {
-                conn = (HttpURLConnection) thisURL.openConnection(proxy);
+                var target = address == null ? thisURL : URIUtil.createURL(thisURL.getProtocol() + "://" + ip(address) + (thisURL.getPort() == -1 ? "" : ":" + thisURL.getPort()) + thisURL.getFile());
+                conn = (HttpURLConnection) target.openConnection(proxy);
                 // https 忽略证书验证
-                if (url.startsWith("https")) { // 在握手期间，如果 URL 的主机名和服务器的标识主机名不匹配，则验证机制可以回调此接口的实现程序来确定是否应该允许此连接。
-                    ((HttpsURLConnection) conn).setSSLSocketFactory(sslSocketFactory);
+                if (thisURL.getProtocol().equals("https")) { // 在握手期间，如果 URL 的主机名和服务器的标识主机名不匹配，则验证机制可以回调此接口的实现程序来确定是否应该允许此连接。
+                    ((HttpsURLConnection) conn).setSSLSocketFactory(address == null ? sslSocketFactory : new ServerNameSocketFactory(sslSocketFactory, thisURL.getHost()));
                     ((HttpsURLConnection) conn).setHostnameVerifier((arg0, arg1) -> true);
                 }
+                if (address != null) { // 连接地址为IP,请求头仍使用原主机名
+                    conn.setRequestProperty("host", thisURL.getPort() == -1 ? thisURL.getHost() : thisURL.getHost() + ":" + thisURL.getPort());
+                }
             } else {
                 if (thisURL.getProtocol().equals("http")) {
                     conn = (HttpURLConnection) thisURL.openConnection(proxy);
@@ -307,6 +381,105 @@ public class HttpsUtil {
             return conn;
         }
 
+        /**
+         * 直连时使用全局域名解析器解析主机
+         * <p>
+         * HttpURLConnection 无法指定解析器,因此连接到解析结果的地址,并通过 host 请求头和 TLS 的 SNI 保留原主机名
+         *
+         * @param url URL
+         * @return 按照连接顺序排列的地址,使用代理、主机为IP地址、已指定host请求头(域前置)或解析失败时返回null,由JDK解析
+         */
+        private List<InetAddress> addresses(@NotNull URL url) {
+            var host = url.getHost();
+            if (proxy.type() != Proxy.Type.DIRECT || host.startsWith("[") || URIUtil.isIPAddress(host) || headers.containsKey("host")) return null;
+            var listener = listener();
+            long start = System.nanoTime();
+            try {
+                var addresses = DnsResolver.global().lookup(host);
+                if (listener != null) listener.dnsEnd(host, System.nanoTime() - start);
+                return addresses;
+            } catch (UnknownHostException e) {
+                return null; // 由JDK连接时报告解析失败
+            }
+        }
+
+        /**
+         * 转换为URL中使用的IP地址
+         *
+         * @param address 地址
+         * @return IP地址,IPv6地址带有方括号
+         */
+        private static String ip(@NotNull InetAddress address) {
+            return address instanceof Inet6Address ? "[" + address.getHostAddress().replaceAll("%.*", "") + "]" : address.getHostAddress();
+        }
+
+        /**
+         * 获取连接的原主机名,连接地址被替换为IP时从host请求头获取
+         *
+         * @param conn HttpURLConnection实例
+         * @return 主机名
+         */
+        private static String host(@NotNull HttpURLConnection conn) {
+            var host = conn.getURL().getHost();
+            if (!URIUtil.isIPAddress(host) && !host.startsWith("[")) return host;
+            var header = conn.getRequestProperty("host");
+            return header == null ? host : header.replaceAll(":\\d+$", "");
+        }
+
+    }
+
+    /**
+     * 使用指定主机名作为 SNI 的 SSLSocketFactory,用于连接地址被替换为IP的 HTTPS 请求
+     * <p>
+     * HttpsURLConnection 优先使用 {@link #createSocket()} 创建未连接的套接字,并以连接地址作为主机名握手,
+     * 因此该方法返回普通套接字,使连接建立后通过 {@link #createSocket(Socket, String, int, boolean)} 以原主机名创建 TLS 套接字
+     */
+    private static class ServerNameSocketFactory extends SSLSocketFactory {
+
+        private final SSLSocketFactory delegate;
+        private final String host;
+
+        private ServerNameSocketFactory(SSLSocketFactory delegate, String host) {
+            this.delegate = delegate;
+            this.host = host;
+        }
+
+        public String[] getDefaultCipherSuites() {
+            return delegate.getDefaultCipherSuites();
+        }
+
+        public String[] getSupportedCipherSuites() {
+            return delegate.getSupportedCipherSuites();
+        }
+
+        public Socket createSocket() {
+            return new Socket(); // 连接后再包装为 TLS 套接字
+        }
+
+        public Socket createSocket(Socket s, String host, int port, boolean autoClose) throws IOException {
+            var socket = (SSLSocket) delegate.createSocket(s, this.host, port, autoClose); // 使用原主机名握手
+            var parameters = socket.getSSLParameters();
+            parameters.setServerNames(List.of(new SNIHostName(this.host)));
+            socket.setSSLParameters(parameters);
+            return socket;
+        }
+
+        public Socket createSocket(String host, int port) throws IOException {
+            return delegate.createSocket(host, port);
+        }
+
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+            return delegate.createSocket(host, port, localHost, localPort);
+        }
+
+        public Socket createSocket(InetAddress host, int port) throws IOException {
+            return delegate.createSocket(host, port);
+        }
+
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+            return delegate.createSocket(address, port, localAddress, localPort);
+        }
+
     }
 
     /**
@@ -319,9 +492,11 @@ public class HttpsUtil {
     private static class HttpResponse extends Response {
 
         private final HttpURLConnection conn;
+        private final String url;
 
-        private HttpResponse(HttpURLConnection conn, Map<String, String> cookies) {
+        private HttpResponse(HttpURLConnection conn, String url, Map<String, String> cookies) {
             this.conn = conn;
+            this.url = url;
             this.cookies = cookies;
 
             if (statusCode() != HttpStatus.SC_REQUEST_TIMEOUT) {
@@ -343,7 +518,7 @@ public class HttpsUtil {
         }
 
         public String url() {
-            return conn.getURL().toExternalForm();
+            return URIUtil.createURL(url).toExternalForm(); // 连接地址可能已被替换为IP,返回请求的URL
         }
 
         public int statusCode() {
@@ -376,7 +551,7 @@ public class HttpsUtil {
         }
 
         public InputStream bodyStream() throws IOException {
-            return URIUtil.statusIsNormal(statusCode()) ? conn.getInputStream() : conn.getErrorStream();
+            return listen(URIUtil.statusIsNormal(statusCode()) ? conn.getInputStream() : conn.getErrorStream());
         }
 
         protected ByteArrayOutputStream bodyAsByteArray() {
@@ -385,15 +560,17 @@ public class HttpsUtil {
                 var encoding = header("content-encoding");
                 var body = "gzip".equals(encoding) ? new GZIPInputStream(in) : "deflate".equals(encoding) ? new InflaterInputStream(in, new Inflater(true)) : "br".equals(encoding) ? new BrotliInputStream(in) : in;
                 this.body = IOUtil.stream(body).toByteArrayOutputStream();
-                conn.disconnect();
+                close();
                 return this.body;
             } catch (Exception e) {
+                close();
                 return null;
             }
         }
 
         public void close() {
             conn.disconnect();
+            releasePermit();
         }
 
     }
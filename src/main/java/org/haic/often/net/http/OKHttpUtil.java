@@ -8,7 +8,6 @@ import org.haic.often.exception.HttpException;
 import org.haic.often.net.*;
 import org.haic.often.util.IOUtil;
 import org.haic.often.util.StringUtil;
-import org.haic.often.util.ThreadUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -16,11 +15,15 @@ import javax.net.ssl.SSLContext;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Proxy;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.zip.GZIPInputStream;
@@ -36,6 +39,11 @@ import java.util.zip.InflaterInputStream;
  */
 public class OKHttpUtil {
 
+    private static final int MAX_CLIENTS = 64; // 派生客户端缓存上限,防止代理轮换导致无限增长
+    private static final SSLContext IGNORE_SSL_CONTEXT = IgnoreSSLSocket.ignoreSSLContext();
+    private static final OkHttpClient DEFAULT_CLIENT = new OkHttpClient.Builder().connectTimeout(10, TimeUnit.SECONDS).readTimeout(0, TimeUnit.SECONDS).sslSocketFactory(IGNORE_SSL_CONTEXT.getSocketFactory(), new MyX509TrustManager()).hostnameVerifier((arg0, arg1) -> true).dns(hostname -> DnsResolver.global().lookup(hostname)).fastFallback(true).eventListenerFactory(EventAdapter::of).build();
+    private static final Map<ClientKey, OkHttpClient> CLIENTS = new ConcurrentHashMap<>();
+
     private OKHttpUtil() {
     }
 
@@ -47,7 +55,20 @@ public class OKHttpUtil {
      */
 
     public static Connection connect(@NotNull String url) {
-        return new HttpConnection(url);
+        return new HttpConnection(DEFAULT_CLIENT, url);
+    }
+
+    /**
+     * 使用指定的 OkHttpClient 作为基础客户端创建一个新的Connection （会话）
+     * <p>
+     * 会话中的代理、SSL、超时等配置将通过 {@link OkHttpClient#newBuilder()} 派生,与基础客户端共享连接池、调度器和TLS会话缓存
+     *
+     * @param url    要连接的 URL
+     * @param client 基础客户端
+     * @return 此连接，用于链接
+     */
+    public static Connection connect(@NotNull String url, @NotNull OkHttpClient client) {
+        return new HttpConnection(client, url);
     }
 
     /**
@@ -59,16 +80,92 @@ public class OKHttpUtil {
      */
 
     public static Connection newSession() {
-        return new HttpConnection("");
+        return new HttpConnection(DEFAULT_CLIENT, "");
+    }
+
+    /**
+     * 使用指定的 OkHttpClient 作为基础客户端创建一个新Connection以用作会话
+     *
+     * @param client 基础客户端
+     * @return 此连接，用于链接
+     */
+    public static Connection newSession(@NotNull OkHttpClient client) {
+        return new HttpConnection(client, "");
+    }
+
+    /**
+     * 获取进程共享的默认客户端,所有未指定基础客户端的会话均由此派生
+     *
+     * @return 默认客户端
+     */
+    public static OkHttpClient client() {
+        return DEFAULT_CLIENT;
+    }
+
+    /**
+     * 清空派生客户端缓存,不会关闭共享的连接池和调度器
+     */
+    public static void clearClients() {
+        CLIENTS.clear();
+    }
+
+    /**
+     * 按照配置获取派生客户端,相同配置的会话复用同一个客户端实例
+     *
+     * @param key 客户端配置
+     * @return 客户端
+     */
+    private static OkHttpClient client(@NotNull ClientKey key) {
+        if (key.isDefault()) return key.base();
+        var client = CLIENTS.get(key);
+        if (client != null) return client;
+        if (CLIENTS.size() >= MAX_CLIENTS) CLIENTS.clear(); // 派生客户端共享连接池,清理代价很低
+        return CLIENTS.computeIfAbsent(key, l -> l.builder().build());
+    }
+
+    /**
+     * 派生客户端的配置键,不包含代理凭据
+     *
+     * @param base            基础客户端
+     * @param proxy           代理,为null时使用基础客户端配置
+     * @param sslContext      SSL上下文,为null时使用基础客户端配置
+     * @param followRedirects 重定向
+     * @param timeout         读取超时(毫秒),为负数时使用基础客户端配置
+     */
+    private record ClientKey(OkHttpClient base, Proxy proxy, SSLContext sslContext, boolean followRedirects, int timeout) {
+
+        private boolean isDefault() {
+            return proxy == null && sslContext == null && followRedirects == base.followRedirects() && timeout < 0;
+        }
+
+        private OkHttpClient.Builder builder() {
+            var builder = base.newBuilder().followRedirects(followRedirects);
+            if (proxy != null) builder.proxy(proxy);
+            if (sslContext != null) builder.sslSocketFactory(sslContext.getSocketFactory(), new MyX509TrustManager());
+            if (timeout >= 0) builder.readTimeout(Duration.ofMillis(timeout));
+            return builder;
+        }
+
     }
 
     private static class HttpConnection extends Connection {
 
-        private final OkHttpClient.Builder okHttpClientBuilder = new OkHttpClient.Builder().connectTimeout(10, TimeUnit.SECONDS).readTimeout(0, TimeUnit.SECONDS).sslSocketFactory(IgnoreSSLSocket.ignoreSSLContext().getSocketFactory(), new MyX509TrustManager()).hostnameVerifier((arg0, arg1) -> true);
+        private final OkHttpClient base; // 基础客户端
+        private Proxy proxy;
+        private SSLContext sslContext;
+        private boolean followRedirects;
+        private int timeout = -1;
+        private String proxyUser;
+        private String proxyPwd;
+        private OkHttpClient authClient; // 带代理凭据的客户端
+        private ClientKey authKey; // 带代理凭据的客户端的配置
+        private String authCredentials; // 带代理凭据的客户端的凭据
 
         private MultipartBody.Builder file;
 
-        private HttpConnection(@NotNull String url) {
+        private HttpConnection(@NotNull OkHttpClient base, @NotNull String url) {
+            this.base = base;
+            this.followRedirects = base.followRedirects();
             initialization();
             url(url);
         }
@@ -117,17 +214,17 @@ public class OKHttpUtil {
         }
 
         public Connection sslSocketFactory(SSLContext sslSocket) {
-            okHttpClientBuilder.sslSocketFactory(sslSocket.getSocketFactory(), new MyX509TrustManager());
+            this.sslContext = sslSocket;
             return this;
         }
 
         public Connection followRedirects(boolean followRedirects) {
-            okHttpClientBuilder.followRedirects(followRedirects);
+            this.followRedirects = followRedirects;
             return this;
         }
 
         public Connection timeout(int millis) {
-            okHttpClientBuilder.readTimeout(Duration.ofMillis(millis));
+            this.timeout = millis;
             return this;
         }
 
@@ -154,15 +251,34 @@ public class OKHttpUtil {
         }
 
         public Connection proxy(@NotNull Proxy proxy) {
-            okHttpClientBuilder.proxy(proxy);
+            this.proxy = proxy;
             return this;
         }
 
         public Connection proxy(@NotNull Proxy proxy, @NotNull String user, @NotNull String password) {
-            okHttpClientBuilder.proxyAuthenticator((route, response) -> response.request().newBuilder().header("Proxy-Authorization", Credentials.basic(user, password)).build());
+            this.proxyUser = user;
+            this.proxyPwd = password;
             return proxy(proxy);
         }
 
+        /**
+         * 获取带代理凭据的客户端
+         * <p>
+         * 不放入静态缓存,避免代理密码常驻内存;在本会话中复用,直至配置或凭据改变
+         *
+         * @param key 客户端配置
+         * @return 客户端
+         */
+        private synchronized OkHttpClient authenticated(@NotNull ClientKey key) {
+            var credentials = Credentials.basic(proxyUser, proxyPwd);
+            if (authClient == null || !key.equals(authKey) || !credentials.equals(authCredentials)) {
+                authClient = key.builder().proxyAuthenticator((route, response) -> response.request().newBuilder().header("Proxy-Authorization", credentials).build()).build();
+                authKey = key;
+                authCredentials = credentials;
+            }
+            return authClient;
+        }
+
         public Response get() {
             return method(Method.GET).execute();
         }
@@ -172,7 +288,8 @@ public class OKHttpUtil {
         }
 
         public Response execute() {
-            var client = okHttpClientBuilder.build();
+            var config = new ClientKey(base, proxy, sslContext, followRedirects, timeout);
+            var client = proxyUser == null ? client(config) : authenticated(config);
 
             var requestBuilder = new Request.Builder();
             // 设置cookies
@@ -190,29 +307,79 @@ public class OKHttpUtil {
                 }
             }
 
-            var response = executeProgram(client, requestBuilder.build());
-            int statusCode = response.statusCode();
-            for (int i = 0; (URIUtil.statusIsTimeout(statusCode) || retryStatusCodes.contains(statusCode)) && (i < retry || unlimit); i++) {
-                ThreadUtil.waitThread(MILLISECONDS_SLEEP); // 程序等待
-                response = executeProgram(client, requestBuilder.build());
-                statusCode = response.statusCode();
-            }
-
-            if (failThrow && !URIUtil.statusIsNormal(statusCode)) {
-                throw new HttpException("连接URL失败，状态码: " + statusCode + " URL: " + url);
-            }
-            return response;
+            var listener = listener();
+            if (listener != null) requestBuilder.tag(ConnectionListener.class, listener);
+            var request = requestBuilder.build();
+            return retryProgram(() -> executeProgram(client, request, listener));
         }
 
-        private Response executeProgram(OkHttpClient client, Request request) {
+        private Response executeProgram(OkHttpClient client, Request request, ConnectionListener listener) {
+            long start = System.nanoTime();
+            okhttp3.Response res;
             try {
-                return new HttpResponse(client.newCall(request).execute(), cookies);
+                res = client.newCall(request).execute();
             } catch (Exception e) {
                 return new HttpResponse(null, cookies);
             }
+            var response = new HttpResponse(res, cookies);
+            if (listener != null) {
+                response.listener(listener, start);
+                var redirects = new ArrayList<okhttp3.Response>();
+                for (var prior = res.priorResponse(); prior != null; prior = prior.priorResponse()) redirects.add(0, prior);
+                for (int i = 0; i < redirects.size(); i++) {
+                    if (redirects.get(i).isRedirect()) listener.redirect(redirects.get(i).request().url().toString(), (i + 1 < redirects.size() ? redirects.get(i + 1) : res).request().url().toString());
+                }
+                listener.responseHeaders(request.url().toString(), res.code(), System.nanoTime() - start);
+            }
+            return response;
         }
     }
 
+    /**
+     * 将 OkHttp 连接事件转发至 {@link ConnectionListener}
+     */
+    private static class EventAdapter extends EventListener {
+
+        private final ConnectionListener listener;
+        private long dnsStart;
+        private long connectStart;
+        private long secureConnectStart;
+
+        private EventAdapter(ConnectionListener listener) {
+            this.listener = listener;
+        }
+
+        private static EventListener of(Call call) {
+            var listener = call.request().tag(ConnectionListener.class);
+            return listener == null ? EventListener.NONE : new EventAdapter(listener);
+        }
+
+        public void dnsStart(@NotNull Call call, @NotNull String domainName) {
+            dnsStart = System.nanoTime();
+        }
+
+        public void dnsEnd(@NotNull Call call, @NotNull String domainName, @NotNull List<InetAddress> inetAddressList) {
+            listener.dnsEnd(domainName, System.nanoTime() - dnsStart);
+        }
+
+        public void connectStart(@NotNull Call call, @NotNull InetSocketAddress inetSocketAddress, @NotNull Proxy proxy) {
+            connectStart = System.nanoTime();
+        }
+
+        public void secureConnectStart(@NotNull Call call) {
+            secureConnectStart = System.nanoTime();
+        }
+
+        public void secureConnectEnd(@NotNull Call call, @Nullable Handshake handshake) {
+            listener.secureConnectEnd(call.request().url().host(), System.nanoTime() - secureConnectStart);
+        }
+
+        public void connectEnd(@NotNull Call call, @NotNull InetSocketAddress inetSocketAddress, @NotNull Proxy proxy, @Nullable Protocol protocol) {
+            listener.connectEnd(call.request().url().host(), System.nanoTime() - connectStart);
+        }
+
+    }
+
     private static class FileRequestBody extends RequestBody {
 
         private final InputStream in;
@@ -297,7 +464,7 @@ public class OKHttpUtil {
         }
 
         public InputStream bodyStream() {
-            return res.body().byteStream();
+            return listen(res.body().byteStream());
         }
 
         protected ByteArrayOutputStream bodyAsByteArray() {
@@ -306,15 +473,17 @@ public class OKHttpUtil {
                 var encoding = header("content-encoding");
                 var body = "gzip".equals(encoding) ? new GZIPInputStream(in) : "deflate".equals(encoding) ? new InflaterInputStream(in, new Inflater(true)) : "br".equals(encoding) ? new BrotliInputStream(in) : in;
                 this.body = IOUtil.stream(body).toByteArrayOutputStream();
-                res.close();
+                close();
                 return this.body;
             } catch (Exception e) {
+                close();
                 return null;
             }
         }
 
         public void close() {
             res.close();
+            releasePermit();
         }
 
     }
@@ -0,0 +1,201 @@
+package org.haic.often.net.http;
+
+import org.haic.often.util.ThreadUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按主机限流器
+ * <p>
+ * 每个主机独立维护一个令牌桶(限制请求速率)和一个信号量(限制同时进行的请求数),可以绑定到会话 {@link Connection#rateLimiter(RateLimiter)},也可以通过 {@link #global(RateLimiter)} 设置为全局默认
+ * <p>
+ * 令牌桶采用预约方式,令牌不足时请求按顺序错开等待,避免同一时刻集中放行
+ *
+ * @author haicdust
+ * @version 1.0
+ * @since 2026/10/19 11:05
+ */
+public class RateLimiter {
+
+    private static volatile RateLimiter global; // 全局限流器
+
+    private final double permitsPerSecond; // 每秒请求数,0为不限速
+    private int burst = 1; // 突发请求数
+    private int maxInFlight; // 同时进行的最大请求数,0为不限制
+    private final Map<String, Double> hostPermits = new ConcurrentHashMap<>();
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final Map<String, Semaphore> semaphores = new ConcurrentHashMap<>();
+
+    private RateLimiter(double permitsPerSecond) {
+        this.permitsPerSecond = Math.max(permitsPerSecond, 0);
+    }
+
+    /**
+     * 创建限流器,每个主机每秒最多发起 permitsPerSecond 个请求
+     *
+     * @param permitsPerSecond 每秒请求数,0为不限速
+     * @return 限流器
+     */
+    public static RateLimiter of(double permitsPerSecond) {
+        return new RateLimiter(permitsPerSecond);
+    }
+
+    /**
+     * 获取全局限流器,未绑定限流器的会话将使用全局限流器
+     *
+     * @return 全局限流器,未设置返回null
+     */
+    @Nullable
+    public static RateLimiter global() {
+        return global;
+    }
+
+    /**
+     * 设置全局限流器,参数为null时取消全局限流
+     *
+     * @param limiter 限流器
+     */
+    public static void global(@Nullable RateLimiter limiter) {
+        global = limiter;
+    }
+
+    /**
+     * 设置令牌桶容量,即空闲后允许的突发请求数,默认为1
+     *
+     * @param burst 突发请求数
+     * @return 此限流器，用于链接
+     */
+    public RateLimiter burst(int burst) {
+        this.burst = Math.max(burst, 1);
+        return this;
+    }
+
+    /**
+     * 设置每个主机同时进行的最大请求数
+     * <p>
+     * 请求从发起到正文读取结束或响应关闭为止占用许可,因此同样限制了同时传输的正文数量
+     *
+     * @param maxInFlight 最大请求数,0为不限制
+     * @return 此限流器，用于链接
+     */
+    public RateLimiter maxInFlight(int maxInFlight) {
+        this.maxInFlight = Math.max(maxInFlight, 0);
+        return this;
+    }
+
+    /**
+     * 为指定主机单独设置请求速率,覆盖默认速率
+     *
+     * @param host             主机名
+     * @param permitsPerSecond 每秒请求数,0为不限速
+     * @return 此限流器，用于链接
+     */
+    public RateLimiter host(@NotNull String host, double permitsPerSecond) {
+        hostPermits.put(host, Math.max(permitsPerSecond, 0));
+        buckets.remove(host);
+        return this;
+    }
+
+    /**
+     * 获取请求许可,阻塞直至满足速率和并发限制,请求结束后必须调用 {@link #release(String)}
+     *
+     * @param host 主机名
+     */
+    public void acquire(@Nullable String host) {
+        host = host == null ? "" : host;
+        var semaphore = semaphore(host);
+        if (semaphore != null) semaphore.acquireUninterruptibly();
+        var bucket = bucket(host);
+        if (bucket != null) {
+            long wait = bucket.reserve();
+            if (wait > 0) ThreadUtil.waitThread(TimeUnit.NANOSECONDS.toMillis(wait) + 1);
+        }
+    }
+
+    /**
+     * 尝试立即获取请求许可,不阻塞,用于异步调度
+     * <p>
+     * 获取成功后必须调用 {@link #release(String)}
+     *
+     * @param host 主机名
+     * @return 是否获取成功
+     */
+    public boolean tryAcquire(@Nullable String host) {
+        host = host == null ? "" : host;
+        var semaphore = semaphore(host);
+        if (semaphore != null && !semaphore.tryAcquire()) return false;
+        var bucket = bucket(host);
+        if (bucket == null || bucket.tryReserve()) return true;
+        if (semaphore != null) semaphore.release();
+        return false;
+    }
+
+    /**
+     * 释放请求许可
+     *
+     * @param host 主机名
+     */
+    public void release(@Nullable String host) {
+        var semaphore = semaphore(host == null ? "" : host);
+        if (semaphore != null) semaphore.release();
+    }
+
+    @Nullable
+    private Semaphore semaphore(@NotNull String host) {
+        return maxInFlight == 0 ? null : semaphores.computeIfAbsent(host, k -> new Semaphore(maxInFlight, true));
+    }
+
+    @Nullable
+    private Bucket bucket(@NotNull String host) {
+        double permits = hostPermits.getOrDefault(host, permitsPerSecond);
+        return permits == 0 ? null : buckets.computeIfAbsent(host, k -> new Bucket(permits, burst));
+    }
+
+    /**
+     * 令牌桶
+     */
+    private static class Bucket {
+
+        private final double nanosPerPermit;
+        private final int capacity;
+        private double tokens;
+        private long last = System.nanoTime();
+
+        private Bucket(double permitsPerSecond, int capacity) {
+            this.nanosPerPermit = TimeUnit.SECONDS.toNanos(1) / permitsPerSecond;
+            this.capacity = capacity;
+            this.tokens = capacity;
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - last) / nanosPerPermit);
+            last = now;
+        }
+
+        /**
+         * 预约一个令牌,令牌可以透支
+         *
+         * @return 需要等待的时间(纳秒)
+         */
+        private synchronized long reserve() {
+            refill();
+            tokens -= 1;
+            return tokens >= 0 ? 0 : (long) (-tokens * nanosPerPermit);
+        }
+
+        private synchronized boolean tryReserve() {
+            refill();
+            if (tokens < 1) return false;
+            tokens -= 1;
+            return true;
+        }
+
+    }
+
+}
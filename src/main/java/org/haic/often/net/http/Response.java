@@ -1,7 +1,7 @@
 package org.haic.often.net.http;
 
 import org.haic.often.exception.HttpException;
-import org.haic.often.net.URIUtil;
+import org.haic.often.net.CharsetDetector;
 import org.haic.often.parser.csv.CSV;
 import org.haic.often.parser.json.JSONArray;
 import org.haic.often.parser.json.JSONObject;
@@ -10,8 +10,10 @@ import org.haic.often.util.TypeUtil;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.ref.Cleaner;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
@@ -26,10 +28,15 @@ import java.util.Map;
  */
 public abstract class Response {
 
+    private static final Cleaner CLEANER = Cleaner.create(); // 响应未关闭即被回收时释放许可
+
     protected Map<String, String> headers = new HashMap<>();
     protected Map<String, String> cookies;
     protected Charset charset;
     protected ByteArrayOutputStream body;
+    protected ConnectionListener listener; // 事件监听器
+    protected long startNanos; // 本次请求开始时间
+    private Cleaner.Cleanable permit; // 限流器的并发许可
 
     /**
      * 返回此页面的 URL
@@ -122,26 +129,18 @@ public abstract class Response {
 
     /**
      * 获取当前Response字符集编码<br/>
+     * 优先使用 Content-Type 中的字符集;网页和文本按照 BOM, 开头的 meta 声明, 字节统计 的顺序检测,只读取正文开头,不解析文档
      *
      * @return 字符集编码
      */
     public Charset charset() {
         if (charset == null) {
-            if (headers().containsKey("content-type")) {
-                var type = headers().get("content-type");
-                if (type.contains(";")) {
-                    var charset = type.substring(type.lastIndexOf("=") + 1);
-                    return this.charset = Charset.forName(charset.endsWith(";") ? charset.substring(0, charset.length() - 1) : charset);
-                } else if (type.contains("html")) { // 网页为html且未在连接类型中获取字符集编码格式
-                    if (bodyAsByteArray() == null) throw new HttpException("解析字符集编码时出错,未能获取网页数据");
-                    var metas = Document.parse(body.toString(StandardCharsets.UTF_8)).select("@head @meta");
-                    var meta = metas.stream().filter(e -> e.containsAttr("charset")).findFirst().orElse(null);
-                    if (meta != null) return charset = Charset.forName(meta.attr("charset")); // 判断方式 meta[charset]
-                    meta = metas.stream().filter(e -> e.containsAttrValue("http-equiv", "Content-Type")).findFirst().orElse(null);
-                    if (meta == null) return charset = URIUtil.encoding(bodyAsBytes()); // meta未成功获取,则在本地判断UTF8或GBK
-                    var content = meta.attr("content"); // 判断方式 meta[http-equiv=Content-Type]
-                    return charset = Charset.forName(content.substring(content.lastIndexOf("=") + 1));
-                }
+            var type = headers().get("content-type");
+            var declared = CharsetDetector.fromContentType(type);
+            if (declared != null) return charset = declared;
+            if (type != null && (type.contains("html") || type.contains("xml") || type.startsWith("text/"))) { // 未在连接类型中获取字符集编码格式
+                if (bodyAsByteArray() == null) throw new HttpException("解析字符集编码时出错,未能获取网页数据");
+                return charset = CharsetDetector.detect(bodyAsBytes());
             }
             charset = StandardCharsets.UTF_8;
         }
@@ -238,8 +237,83 @@ public abstract class Response {
      */
     protected abstract ByteArrayOutputStream bodyAsByteArray();
 
+    /**
+     * 设置事件监听器,用于统计正文读取
+     *
+     * @param listener   监听器
+     * @param startNanos 本次请求开始时间
+     * @return this
+     */
+    protected Response listener(ConnectionListener listener, long startNanos) {
+        this.listener = listener;
+        this.startNanos = startNanos;
+        return this;
+    }
+
+    /**
+     * 设置限流器的并发许可,在正文读取结束、关闭正文输入流或关闭响应时释放
+     * <p>
+     * 响应未被读取或关闭即被回收时同样释放,但释放时间不确定,只读取响应头时应调用 {@link #close()}
+     *
+     * @param release 释放许可的程序,不能引用响应本身
+     */
+    void permit(@NotNull Runnable release) {
+        permit = CLEANER.register(this, release);
+    }
+
+    /**
+     * 释放限流器的并发许可,多次调用只释放一次
+     */
+    protected void releasePermit() {
+        var permit = this.permit;
+        if (permit != null) permit.clean();
+    }
+
+    /**
+     * 包装正文输入流,在读取结束或关闭时触发 {@link ConnectionListener#bodyEnd} 并释放限流器的并发许可
+     *
+     * @param in 正文输入流
+     * @return 包装后的输入流,未设置监听器和许可时返回原输入流
+     */
+    protected InputStream listen(InputStream in) {
+        if (in == null) releasePermit(); // 没有正文
+        if (in == null || listener == null && permit == null) return in;
+        return new FilterInputStream(in) {
+            private long bytes;
+            private boolean ended;
+
+            public int read() throws IOException {
+                int b = super.read();
+                if (b == -1) end();
+                else bytes++;
+                return b;
+            }
+
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n == -1) end();
+                else bytes += n;
+                return n;
+            }
+
+            public void close() throws IOException {
+                end();
+                super.close();
+            }
+
+            private void end() {
+                if (ended) return;
+                ended = true;
+                releasePermit();
+                if (listener != null) listener.bodyEnd(url(), bytes, System.nanoTime() - startNanos);
+            }
+        };
+    }
+
     /**
      * 关闭当前会话,如果不获取返回数据,例:{@link #body()},则会导致socket通信堆积,对于一些服务器可能导致429错误
+     * <p>
+     * 实现类关闭时必须调用 {@link #releasePermit()}
      */
     public abstract void close();
 
@@ -0,0 +1,246 @@
+package org.haic.often.net.http;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 重试策略
+ * <p>
+ * 用于计算请求失败后的等待时间,支持指数退避、随机抖动、Retry-After 响应头以及按主机熔断
+ * <p>
+ * 策略对象是线程安全的,可以在 {@link Connection}、SionConnection 和 HLSConnection 之间共享,共享时熔断状态同步共享
+ *
+ * @author haicdust
+ * @version 1.0
+ * @since 2026/10/19 10:12
+ */
+public class RetryPolicy {
+
+    private final long baseMillis; // 初始等待时间
+    private final long maxMillis; // 最大等待时间
+    private double multiplier = 1; // 退避倍数
+    private boolean jitter; // 随机抖动
+    private boolean retryAfter = true; // 遵守 Retry-After
+    private List<Integer> retryStatusCodes = List.of();
+    private int failureThreshold; // 熔断阈值,0为不启用
+    private long openMillis; // 熔断时长
+    private final Map<String, Breaker> breakers = new ConcurrentHashMap<>();
+
+    private RetryPolicy(long baseMillis, long maxMillis) {
+        this.baseMillis = Math.max(baseMillis, 0);
+        this.maxMillis = Math.max(maxMillis, this.baseMillis);
+    }
+
+    /**
+     * 固定等待时间的重试策略,与 {@link Connection#retry(int, int)} 原有行为一致,不遵守 Retry-After 响应头
+     *
+     * @param millis 重试等待时间(毫秒)
+     * @return 重试策略
+     */
+    public static RetryPolicy fixed(long millis) {
+        return new RetryPolicy(millis, millis).retryAfter(false);
+    }
+
+    /**
+     * 指数退避重试策略,默认开启随机抖动,并对 429 和 503 状态码进行重试
+     * <p>
+     * 第 n 次重试等待时间为 min(baseMillis * 2^n, maxMillis)
+     *
+     * @param baseMillis 初始等待时间(毫秒)
+     * @param maxMillis  最大等待时间(毫秒)
+     * @return 重试策略
+     */
+    public static RetryPolicy exponential(long baseMillis, long maxMillis) {
+        return new RetryPolicy(baseMillis, maxMillis).multiplier(2).jitter(true).retryStatusCodes(HttpStatus.SC_TOO_MANY_REQUESTS, HttpStatus.SC_SERVICE_UNAVAILABLE);
+    }
+
+    /**
+     * 设置退避倍数,不小于1
+     *
+     * @param multiplier 退避倍数
+     * @return 此策略，用于链接
+     */
+    public RetryPolicy multiplier(double multiplier) {
+        this.multiplier = Math.max(multiplier, 1);
+        return this;
+    }
+
+    /**
+     * 启用随机抖动,等待时间将在计算值的一半到全部之间随机,防止多个线程同步重试
+     *
+     * @param jitter 启用随机抖动
+     * @return 此策略，用于链接
+     */
+    public RetryPolicy jitter(boolean jitter) {
+        this.jitter = jitter;
+        return this;
+    }
+
+    /**
+     * 是否遵守服务器返回的 Retry-After 响应头,默认为true,{@link #fixed(long)} 策略默认为false
+     * <p>
+     * 服务器指定的等待时间同样不超过最大等待时间
+     *
+     * @param retryAfter 遵守 Retry-After
+     * @return 此策略，用于链接
+     */
+    public RetryPolicy retryAfter(boolean retryAfter) {
+        this.retryAfter = retryAfter;
+        return this;
+    }
+
+    /**
+     * 指定策略额外重试的状态码,与连接中设置的状态码共同生效
+     *
+     * @param statusCode 状态码
+     * @return 此策略，用于链接
+     */
+    public RetryPolicy retryStatusCodes(int... statusCode) {
+        this.retryStatusCodes = Arrays.stream(statusCode).boxed().toList();
+        return this;
+    }
+
+    /**
+     * 启用按主机熔断,同一主机连续失败达到阈值后,在熔断时长内新的请求将直接失败,已在重试的请求将等待熔断结束
+     * <p>
+     * 熔断结束后进入半开状态,失败计数清零,重新累计连续失败
+     *
+     * @param failureThreshold 连续失败阈值,0为不启用
+     * @param openMillis       熔断时长(毫秒)
+     * @return 此策略，用于链接
+     */
+    public RetryPolicy circuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        return this;
+    }
+
+    /**
+     * 判断状态码是否需要重试
+     *
+     * @param statusCode 状态码
+     * @return 是否重试
+     */
+    public boolean isRetry(int statusCode) {
+        return retryStatusCodes.contains(statusCode);
+    }
+
+    /**
+     * 获取重试前的等待时间
+     *
+     * @param host       主机名
+     * @param attempt    已重试次数,从0开始
+     * @param retryAfter Retry-After 响应头的值,可以为null
+     * @return 等待时间(毫秒)
+     */
+    public long delay(@Nullable String host, int attempt, @Nullable String retryAfter) {
+        double backoff = baseMillis * Math.pow(multiplier, Math.min(attempt, 62));
+        long delay = (long) Math.min(backoff, maxMillis);
+        if (jitter && delay > 1) {
+            delay = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        }
+        if (this.retryAfter && retryAfter != null) {
+            long after = parseRetryAfter(retryAfter);
+            if (after > 0) { // 服务器指定时间,加入少量抖动防止同时恢复,不超过最大等待时间
+                delay = Math.min(after + (jitter && baseMillis > 0 ? ThreadLocalRandom.current().nextLong(baseMillis) : 0), maxMillis);
+            }
+        }
+        return Math.max(delay, remaining(host));
+    }
+
+    /**
+     * 判断主机当前是否允许发起请求,熔断期间返回false
+     *
+     * @param host 主机名
+     * @return 是否允许请求
+     */
+    public boolean allow(@Nullable String host) {
+        return remaining(host) == 0;
+    }
+
+    /**
+     * 记录主机请求成功,重置熔断计数
+     *
+     * @param host 主机名
+     */
+    public void success(@Nullable String host) {
+        if (failureThreshold > 0 && host != null) breakers.remove(host);
+    }
+
+    /**
+     * 记录主机请求失败,连续失败达到阈值后开启熔断
+     *
+     * @param host 主机名
+     */
+    public void failure(@Nullable String host) {
+        if (failureThreshold < 1 || host == null) return;
+        breakers.computeIfAbsent(host, k -> new Breaker()).failure(failureThreshold, openMillis);
+    }
+
+    /**
+     * 获取主机剩余的熔断时长
+     *
+     * @param host 主机名
+     * @return 剩余熔断时长(毫秒),未熔断返回0
+     */
+    long remaining(@Nullable String host) {
+        if (failureThreshold < 1 || host == null) return 0;
+        var breaker = breakers.get(host);
+        return breaker == null ? 0 : breaker.remaining();
+    }
+
+    /**
+     * 解析 Retry-After 响应头,支持秒数和 HTTP 日期两种格式
+     *
+     * @param value 响应头的值
+     * @return 等待时间(毫秒),无法解析返回0
+     */
+    public static long parseRetryAfter(@NotNull String value) {
+        value = value.strip();
+        try {
+            return Long.parseLong(value) * 1000;
+        } catch (NumberFormatException e) {
+            try {
+                return Math.max(Duration.between(ZonedDateTime.now(), ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME)).toMillis(), 0);
+            } catch (Exception ex) {
+                return 0;
+            }
+        }
+    }
+
+    private static class Breaker {
+
+        private int failures;
+        private long openUntil;
+
+        private synchronized void failure(int threshold, long openMillis) {
+            remaining();
+            if (++failures >= threshold) {
+                openUntil = System.currentTimeMillis() + openMillis;
+            }
+        }
+
+        /**
+         * 获取剩余熔断时长,熔断结束时进入半开状态并清零失败计数
+         */
+        private synchronized long remaining() {
+            if (openUntil == 0) return 0;
+            long remaining = openUntil - System.currentTimeMillis();
+            if (remaining > 0) return remaining;
+            failures = 0;
+            openUntil = 0;
+            return 0;
+        }
+
+    }
+
+}
@@ -1,14 +1,31 @@
 package org.haic.often.util;
 
+import org.haic.often.exception.AESException;
+import org.jetbrains.annotations.NotNull;
+
 import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
+import javax.crypto.CipherOutputStream;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.security.GeneralSecurityException;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.Arrays;
+import java.util.stream.IntStream;
 
 public class AESUtil {
 
     private static final String AES = "AES";
     private static final String AES_CBC = "AES/CBC/PKCS5Padding";
+    private static final String AES_CBC_NOPADDING = "AES/CBC/NoPadding";
+    private static final int BLOCK_SIZE = 16;
+    private static final int CHUNK_SIZE = 1024 * 1024; // 并行处理的分块大小,必须为块大小的整数倍
+    private static final ThreadLocal<Cipher> CBC = ThreadLocal.withInitial(() -> instance(AES_CBC)); // 每个线程只查找一次加密提供者
 
     /**
      * 加密
@@ -58,6 +75,40 @@ public class AESUtil {
         return aes(data, decodeHex(key), decodeHex(iv), Cipher.DECRYPT_MODE);
     }
 
+    /**
+     * 创建AES/CBC/PKCS5Padding加解密上下文
+     *
+     * @param key 十六进制密钥
+     * @param iv  十六进制偏移量
+     * @return 加解密上下文
+     */
+    public static Context context(@NotNull String key, @NotNull String iv) {
+        return context(Mode.CBC, decodeHex(key), decodeHex(iv));
+    }
+
+    /**
+     * 创建AES/CBC/PKCS5Padding加解密上下文
+     *
+     * @param key 密钥
+     * @param iv  偏移量
+     * @return 加解密上下文
+     */
+    public static Context context(byte[] key, byte[] iv) {
+        return context(Mode.CBC, key, iv);
+    }
+
+    /**
+     * 创建加解密上下文,密钥和偏移量只解析一次,初始化后的加解密器按线程缓存
+     *
+     * @param mode 加密模式
+     * @param key  密钥
+     * @param iv   偏移量,CBC和CTR为16字节,GCM推荐12字节
+     * @return 加解密上下文
+     */
+    public static Context context(@NotNull Mode mode, byte[] key, byte[] iv) {
+        return new Context(mode, key, iv);
+    }
+
     /**
      * 使用AES加密或解密无编码的原始字节数组, 返回无编码的字节数组结果.
      *
@@ -68,16 +119,22 @@ public class AESUtil {
      */
     private static byte[] aes(byte[] input, byte[] key, byte[] iv, int mode) {
         try {
-            var secretKey = new SecretKeySpec(key, AES);
-            var ivSpec = new IvParameterSpec(iv);
-            var cipher = Cipher.getInstance(AES_CBC);
-            cipher.init(mode, secretKey, ivSpec);
+            var cipher = CBC.get();
+            cipher.init(mode, new SecretKeySpec(key, AES), new IvParameterSpec(iv));
             return cipher.doFinal(input);
         } catch (GeneralSecurityException e) {
             throw new RuntimeException(e);
         }
     }
 
+    private static Cipher instance(String transformation) {
+        try {
+            return Cipher.getInstance(transformation);
+        } catch (GeneralSecurityException e) {
+            throw new AESException(e);
+        }
+    }
+
     public static byte[] decodeHex(final char[] data) throws Exception {
 
         final int len = data.length;
@@ -119,4 +176,313 @@ public class AESUtil {
         return digit;
     }
 
+    /**
+     * AES加密模式
+     */
+    public enum Mode {
+        /**
+         * AES/CBC/PKCS5Padding,兼容PKCS7Padding;加密只能顺序进行,解密可以并行
+         */
+        CBC("AES/CBC/PKCS5Padding"),
+        /**
+         * AES/CTR/NoPadding,加密和解密相同,可以从任意位置开始并行处理
+         */
+        CTR("AES/CTR/NoPadding"),
+        /**
+         * AES/GCM/NoPadding,密文末尾附带16字节认证标签;同一密钥每次加密必须使用不同的偏移量
+         */
+        GCM("AES/GCM/NoPadding");
+
+        private final String transformation;
+
+        Mode(String transformation) {
+            this.transformation = transformation;
+        }
+
+        public String getTransformation() {
+            return transformation;
+        }
+    }
+
+    /**
+     * AES加解密上下文
+     * <p>
+     * 密钥和偏移量只解析一次,每个线程缓存各自的加解密器,偏移量不变时直接复用已初始化的加解密器,不再查找加密提供者和重复初始化;可以在多个线程中同时使用
+     */
+    public static class Context {
+
+        private static final int ENCRYPT = 0;
+        private static final int DECRYPT = 1;
+        private static final int RAW = 2; // 无填充CBC解密,用于并行解密
+
+        private final Mode mode;
+        private final SecretKeySpec key;
+        private final byte[] iv;
+        private final ThreadLocal<State[]> states = ThreadLocal.withInitial(() -> new State[3]);
+
+        private Context(Mode mode, byte[] key, byte[] iv) {
+            if (key.length != 16 && key.length != 24 && key.length != 32) throw new AESException("密钥长度应为16,24或32字节: " + key.length);
+            if (mode != Mode.GCM && iv.length != BLOCK_SIZE) throw new AESException("偏移量IV长度不为16");
+            this.mode = mode;
+            this.key = new SecretKeySpec(key, AES);
+            this.iv = iv.clone();
+        }
+
+        /**
+         * 获取加密模式
+         *
+         * @return 加密模式
+         */
+        public Mode mode() {
+            return mode;
+        }
+
+        /**
+         * 加密
+         *
+         * @param data 明文数据
+         * @return 密文
+         */
+        public byte[] encrypt(byte[] data) {
+            return encrypt(data, iv);
+        }
+
+        /**
+         * 使用指定的偏移量加密
+         *
+         * @param data 明文数据
+         * @param iv   偏移量
+         * @return 密文
+         */
+        public byte[] encrypt(byte[] data, byte[] iv) {
+            return doFinal(ENCRYPT, iv, data);
+        }
+
+        /**
+         * 解密
+         *
+         * @param data 密文
+         * @return 明文数据
+         */
+        public byte[] decrypt(byte[] data) {
+            return decrypt(data, iv);
+        }
+
+        /**
+         * 使用指定的偏移量解密
+         *
+         * @param data 密文
+         * @param iv   偏移量
+         * @return 明文数据
+         */
+        public byte[] decrypt(byte[] data, byte[] iv) {
+            return doFinal(DECRYPT, iv, data);
+        }
+
+        /**
+         * 在原数组中解密指定范围的数据,不分配新的数组
+         *
+         * @param data 数据
+         * @param off  起始位置
+         * @param len  密文长度
+         * @param iv   偏移量
+         * @return 明文长度,明文从起始位置开始写入
+         */
+        public int decrypt(byte[] data, int off, int len, byte[] iv) {
+            var state = state(DECRYPT, iv);
+            try {
+                return state.cipher.doFinal(data, off, len, data, off);
+            } catch (GeneralSecurityException e) {
+                state.iv = null;
+                throw new AESException(e);
+            }
+        }
+
+        /**
+         * 加密缓冲区剩余的数据,直接缓冲区不经过数组复制
+         *
+         * @param input  明文缓冲区
+         * @param output 密文缓冲区,剩余空间必须足够
+         * @return 写入的字节数
+         */
+        public int encrypt(@NotNull ByteBuffer input, @NotNull ByteBuffer output) {
+            return doFinal(ENCRYPT, iv, input, output);
+        }
+
+        /**
+         * 解密缓冲区剩余的数据,直接缓冲区不经过数组复制
+         *
+         * @param input  密文缓冲区
+         * @param output 明文缓冲区,剩余空间必须足够
+         * @return 写入的字节数
+         */
+        public int decrypt(@NotNull ByteBuffer input, @NotNull ByteBuffer output) {
+            return doFinal(DECRYPT, iv, input, output);
+        }
+
+        /**
+         * 包装输出流,写入的数据加密后写入原输出流,关闭时写入剩余的数据并关闭原输出流
+         *
+         * @param out 输出流
+         * @return 加密输出流
+         */
+        @NotNull
+        public OutputStream encrypt(@NotNull OutputStream out) {
+            return new CipherOutputStream(out, init(Cipher.ENCRYPT_MODE, mode.transformation, iv));
+        }
+
+        /**
+         * 包装输入流,读取时将原输入流的数据解密
+         *
+         * @param in 密文输入流
+         * @return 解密输入流
+         */
+        @NotNull
+        public InputStream decrypt(@NotNull InputStream in) {
+            return new CipherInputStream(in, init(Cipher.DECRYPT_MODE, mode.transformation, iv));
+        }
+
+        /**
+         * CTR模式从数据流的指定位置开始原地加密或解密,用于分块并行处理和随机访问
+         *
+         * @param position 数据在整个数据流中的位置
+         * @param data     数据
+         * @param off      起始位置
+         * @param len      数据长度
+         */
+        public void crypt(long position, byte[] data, int off, int len) {
+            crypt(position, data, off, len, data, off);
+        }
+
+        /**
+         * 并行加密,仅CTR模式分块并行处理,其它模式无法并行,与 {@link #encrypt(byte[])} 相同
+         *
+         * @param data 明文数据
+         * @return 密文
+         */
+        public byte[] encryptParallel(byte[] data) {
+            if (mode != Mode.CTR) return encrypt(data);
+            var result = new byte[data.length];
+            chunks(data.length).forEach(i -> crypt((long) i * CHUNK_SIZE, data, i * CHUNK_SIZE, Math.min(CHUNK_SIZE, data.length - i * CHUNK_SIZE), result, i * CHUNK_SIZE));
+            return result;
+        }
+
+        /**
+         * 并行解密,CTR模式和CBC模式分块并行处理,GCM模式需要整体认证,与 {@link #decrypt(byte[])} 相同
+         * <p>
+         * CBC模式中每个分块使用上一个分块的最后一个密文块作为偏移量,因此各分块可以独立解密
+         *
+         * @param data 密文
+         * @return 明文数据
+         */
+        public byte[] decryptParallel(byte[] data) {
+            if (mode == Mode.CTR) return encryptParallel(data);
+            if (mode != Mode.CBC || data.length <= CHUNK_SIZE) return decrypt(data);
+            if (data.length % BLOCK_SIZE != 0) throw new AESException("密文长度不是" + BLOCK_SIZE + "的整数倍");
+            var result = new byte[data.length];
+            chunks(data.length).forEach(i -> {
+                int from = i * CHUNK_SIZE, len = Math.min(CHUNK_SIZE, data.length - from);
+                var chunkIv = from == 0 ? iv : Arrays.copyOfRange(data, from - BLOCK_SIZE, from);
+                var state = state(RAW, chunkIv);
+                try {
+                    state.cipher.doFinal(data, from, len, result, from);
+                } catch (GeneralSecurityException e) {
+                    state.iv = null;
+                    throw new AESException(e);
+                }
+            });
+            int padding = result[result.length - 1] & 0xff; // 去除PKCS5填充
+            if (padding < 1 || padding > BLOCK_SIZE) throw new AESException("填充错误");
+            for (int i = result.length - padding; i < result.length; i++) {
+                if (result[i] != padding) throw new AESException("填充错误");
+            }
+            return Arrays.copyOf(result, result.length - padding);
+        }
+
+        private static IntStream chunks(int length) {
+            return IntStream.range(0, (length + CHUNK_SIZE - 1) / CHUNK_SIZE).parallel();
+        }
+
+        private void crypt(long position, byte[] input, int off, int len, byte[] output, int outOff) {
+            if (mode != Mode.CTR) throw new AESException("仅CTR模式支持从任意位置加解密");
+            var counter = new BigInteger(1, iv).add(BigInteger.valueOf(position / BLOCK_SIZE)).toByteArray(); // 计数器按块递增,溢出时回绕
+            var block = new byte[BLOCK_SIZE];
+            System.arraycopy(counter, Math.max(counter.length - BLOCK_SIZE, 0), block, Math.max(BLOCK_SIZE - counter.length, 0), Math.min(counter.length, BLOCK_SIZE));
+            var state = state(ENCRYPT, block);
+            state.iv = null; // 计数器已处于数据流中间,不能直接复用
+            int skip = (int) (position % BLOCK_SIZE);
+            if (skip > 0) state.cipher.update(new byte[skip]);
+            try {
+                state.cipher.update(input, off, len, output, outOff);
+            } catch (GeneralSecurityException e) {
+                throw new AESException(e);
+            }
+        }
+
+        private byte[] doFinal(int slot, byte[] iv, byte[] data) {
+            var state = state(slot, iv);
+            try {
+                return state.cipher.doFinal(data);
+            } catch (GeneralSecurityException e) {
+                state.iv = null; // 失败后加解密器状态未知,下次重新初始化
+                throw new AESException(e);
+            }
+        }
+
+        private int doFinal(int slot, byte[] iv, ByteBuffer input, ByteBuffer output) {
+            var state = state(slot, iv);
+            try {
+                return state.cipher.doFinal(input, output);
+            } catch (GeneralSecurityException e) {
+                state.iv = null;
+                throw new AESException(e);
+            }
+        }
+
+        /**
+         * 获取当前线程的加解密器,偏移量与上次相同时直接复用;GCM加密每次重新初始化,使用相同的偏移量将抛出异常
+         */
+        private State state(int slot, byte[] iv) {
+            var states = this.states.get();
+            var state = states[slot];
+            if (state == null) states[slot] = state = new State(instance(slot == RAW ? AES_CBC_NOPADDING : mode.transformation));
+            if (state.iv == null || !Arrays.equals(state.iv, iv) || mode == Mode.GCM && slot == ENCRYPT) {
+                try {
+                    state.iv = null;
+                    state.cipher.init(slot == ENCRYPT ? Cipher.ENCRYPT_MODE : Cipher.DECRYPT_MODE, key, spec(iv));
+                    state.iv = iv.clone();
+                } catch (GeneralSecurityException e) {
+                    throw new AESException(e);
+                }
+            }
+            return state;
+        }
+
+        private Cipher init(int opmode, String transformation, byte[] iv) {
+            var cipher = instance(transformation);
+            try {
+                cipher.init(opmode, key, spec(iv));
+            } catch (GeneralSecurityException e) {
+                throw new AESException(e);
+            }
+            return cipher;
+        }
+
+        private AlgorithmParameterSpec spec(byte[] iv) {
+            return mode == Mode.GCM ? new GCMParameterSpec(128, iv) : new IvParameterSpec(iv);
+        }
+
+        private static class State {
+
+            private final Cipher cipher;
+            private byte[] iv; // 已初始化的偏移量,为null时需要重新初始化
+
+            private State(Cipher cipher) {
+                this.cipher = cipher;
+            }
+
+        }
+
+    }
+
 }
@@ -2,11 +2,16 @@ package org.haic.often.util;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 /**
  * Base16编码器,用于Base16的编码和解码
+ * <p>
+ * 编码结果为大写十六进制,解码时不区分大小写;按照字节查表转换,字节数组和 {@link ByteBuffer} 接口不产生中间字符串,大数据可以使用 {@link #wrap(OutputStream)}, {@link #wrap(InputStream)} 流式处理
  *
  * @author haicdust
  * @version 1.0
@@ -14,6 +19,19 @@ import java.nio.charset.StandardCharsets;
  */
 public class Base16Util {
 
+	private static final byte[] DIGITS = "0123456789ABCDEF".getBytes(StandardCharsets.ISO_8859_1);
+	private static final short[] ENCODE = new short[256]; // 字节对应的两个字符,高位在前
+	private static final byte[] DECODE = new byte[256]; // 字符对应的值,-1为非法字符
+
+	static {
+		for (int i = 0; i < 256; i++) ENCODE[i] = (short) (DIGITS[i >>> 4] << 8 | DIGITS[i & 15]);
+		Arrays.fill(DECODE, (byte) -1);
+		for (int i = 0; i < 16; i++) {
+			DECODE[DIGITS[i]] = (byte) i;
+			DECODE[Character.toLowerCase(DIGITS[i])] = (byte) i;
+		}
+	}
+
 	/**
 	 * 将字节数组数据编码为 base16 十六进制字符串
 	 *
@@ -21,15 +39,39 @@ public class Base16Util {
 	 * @return base16 十六进制字符串
 	 */
 	public static String encode(@NotNull String data) {
-		StringBuilder sb = new StringBuilder(data.length() * 2);
-		for (byte b : data.getBytes()) {
-			int i = b & 0xff;
-			if (i < 0x10) {
-				sb.append("0");
-			}
-			sb.append(Integer.toHexString(i));
+		return new String(encode(data.getBytes()), StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * 将字节数组编码为 base16 字节数组
+	 *
+	 * @param data 待编码的数据
+	 * @return base16 编码数组
+	 */
+	public static byte[] encode(byte[] data) {
+		var result = new byte[data.length * 2];
+		encode(data, 0, data.length, result, 0);
+		return result;
+	}
+
+	/**
+	 * 将缓冲区剩余的数据编码为 base16,编码后缓冲区位置移动到末尾
+	 *
+	 * @param data 待编码的数据
+	 * @return base16 编码缓冲区
+	 */
+	public static ByteBuffer encode(@NotNull ByteBuffer data) {
+		int len = data.remaining();
+		var result = new byte[len * 2];
+		if (data.hasArray()) {
+			encode(data.array(), data.arrayOffset() + data.position(), len, result, 0);
+			data.position(data.limit());
+		} else {
+			var src = new byte[len];
+			data.get(src);
+			encode(src, 0, len, result, 0);
 		}
-		return sb.toString().toUpperCase();
+		return ByteBuffer.wrap(result);
 	}
 
 	/**
@@ -64,11 +106,205 @@ public class Base16Util {
 	 */
 	@NotNull
 	public static String decode(@NotNull String data, Charset charset) {
-		byte[] bts = new byte[data.length() / 2];
-		for (int i = 0; i < bts.length; i++) {
-			bts[i] = (byte) Integer.parseInt(data.substring(2 * i, 2 * i + 2), 16);
+		return new String(decode(data.getBytes(StandardCharsets.ISO_8859_1)), charset);
+	}
+
+	/**
+	 * 解码 base16 编码数组,长度为奇数时忽略最后一个字符
+	 *
+	 * @param data base16 编码数组
+	 * @return 解码后的数组
+	 */
+	public static byte[] decode(byte[] data) {
+		var result = new byte[data.length / 2];
+		decode(data, 0, result.length * 2, result, 0);
+		return result;
+	}
+
+	/**
+	 * 解码缓冲区剩余的 base16 数据,解码后缓冲区位置移动到末尾
+	 *
+	 * @param data base16 编码缓冲区
+	 * @return 解码后的缓冲区
+	 */
+	public static ByteBuffer decode(@NotNull ByteBuffer data) {
+		int len = data.remaining();
+		var result = new byte[len / 2];
+		if (data.hasArray()) {
+			decode(data.array(), data.arrayOffset() + data.position(), result.length * 2, result, 0);
+			data.position(data.limit());
+		} else {
+			var src = new byte[len];
+			data.get(src);
+			decode(src, 0, result.length * 2, result, 0);
 		}
-		return new String(bts, charset);
+		return ByteBuffer.wrap(result);
+	}
+
+	/**
+	 * 包装输出流,写入的数据编码为 base16 后写入原输出流
+	 *
+	 * @param out 输出流
+	 * @return 编码输出流
+	 */
+	@NotNull
+	public static OutputStream wrap(@NotNull OutputStream out) {
+		return new EncodeOutputStream(out);
+	}
+
+	/**
+	 * 包装输入流,读取时将原输入流的 base16 数据解码,忽略换行
+	 *
+	 * @param in base16 数据输入流
+	 * @return 解码输入流
+	 */
+	@NotNull
+	public static InputStream wrap(@NotNull InputStream in) {
+		return new DecodeInputStream(in);
+	}
+
+	/**
+	 * 判断字符串是否为Base16编码
+	 *
+	 * @param str 需要判断的字符串
+	 * @return 判断结果
+	 */
+	public static boolean isBase16(@NotNull String str) {
+		if (str.isEmpty() || str.length() % 2 != 0) return false;
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			if (c > 0xff || DECODE[c] < 0) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * 编码数据
+	 *
+	 * @return 写入的字节数
+	 */
+	private static int encode(byte[] src, int off, int len, byte[] dst, int dp) {
+		for (int i = off, end = off + len; i < end; i++) {
+			int pair = ENCODE[src[i] & 0xff];
+			dst[dp++] = (byte) (pair >>> 8);
+			dst[dp++] = (byte) pair;
+		}
+		return len * 2;
+	}
+
+	/**
+	 * 解码数据,长度必须为偶数
+	 *
+	 * @return 写入的字节数
+	 */
+	private static int decode(byte[] src, int off, int len, byte[] dst, int dp) {
+		for (int i = off, end = off + len; i < end; i += 2) {
+			int hi = DECODE[src[i] & 0xff], lo = DECODE[src[i + 1] & 0xff];
+			if ((hi | lo) < 0) throw new IllegalArgumentException("Illegal base16 character " + (char) (src[hi < 0 ? i : i + 1] & 0xff));
+			dst[dp++] = (byte) (hi << 4 | lo);
+		}
+		return len / 2;
+	}
+
+	/**
+	 * 编码输出流
+	 */
+	private static class EncodeOutputStream extends FilterOutputStream {
+
+		private final byte[] buffer = new byte[8192];
+
+		private EncodeOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			int pair = ENCODE[b & 0xff];
+			out.write(pair >>> 8);
+			out.write(pair & 0xff);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				int n = Math.min(len, buffer.length / 2);
+				out.write(buffer, 0, encode(b, off, n, buffer, 0));
+				off += n;
+				len -= n;
+			}
+		}
+
+	}
+
+	/**
+	 * 解码输入流
+	 */
+	private static class DecodeInputStream extends FilterInputStream {
+
+		private final byte[] chars = new byte[8192];
+		private final byte[] bytes = new byte[chars.length / 2];
+		private int carried; // 上次读取剩余的半个字节
+		private int pos;
+		private int limit;
+		private boolean eof;
+
+		private DecodeInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			var b = new byte[1];
+			return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) return 0;
+			while (pos == limit) {
+				if (eof) return -1;
+				fill();
+			}
+			int n = Math.min(len, limit - pos);
+			System.arraycopy(bytes, pos, b, off, n);
+			pos += n;
+			return n;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return limit - pos;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			return n <= 0 ? 0 : read(new byte[(int) Math.min(n, bytes.length)]);
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+
+		private void fill() throws IOException {
+			pos = limit = 0;
+			int n = in.read(chars, carried, chars.length - carried);
+			if (n == -1) {
+				eof = true;
+				return;
+			}
+			int count = carried;
+			for (int i = carried, end = carried + n; i < end; i++) {
+				byte c = chars[i];
+				if (c == '\r' || c == '\n') continue;
+				chars[count++] = c;
+			}
+			int full = count & ~1;
+			limit = decode(chars, 0, full, bytes, 0);
+			carried = count - full;
+			if (carried > 0) chars[0] = chars[full];
+		}
+
 	}
 
 }
@@ -2,13 +2,18 @@ package org.haic.often.util;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
-import java.util.function.Function;
 
 /**
  * Base32编码器,用于Base32的编码和解码
+ * <p>
+ * 使用 RFC 4648 字母表,编码结果不带填充;解码时忽略填充字符'=',字母不区分大小写
+ * <p>
+ * 编码和解码均按照 5 字节/8 字符的块查表转换,字节数组和 {@link ByteBuffer} 接口不产生中间字符串,大数据可以使用 {@link #wrap(OutputStream)}, {@link #wrap(InputStream)} 流式处理
  *
  * @author haicdust
  * @version 1.0
@@ -16,6 +21,17 @@ import java.util.function.Function;
  */
 public class Base32Util {
 
+	private static final byte[] ENCODE = "ABCDEFGHIJKLMNOPQRSTUVWXYZ234567".getBytes(StandardCharsets.ISO_8859_1);
+	private static final byte[] DECODE = new byte[256]; // 字符对应的值,-1为非法字符
+
+	static {
+		Arrays.fill(DECODE, (byte) -1);
+		for (int i = 0; i < ENCODE.length; i++) {
+			DECODE[ENCODE[i]] = (byte) i;
+			DECODE[Character.toLowerCase(ENCODE[i])] = (byte) i;
+		}
+	}
+
 	/**
 	 * 将字节数组数据编码为 base32 字符串
 	 *
@@ -23,26 +39,39 @@ public class Base32Util {
 	 * @return base32 编码字符串
 	 */
 	public static String encode(@NotNull String data) {
-		Function<Integer, Byte> idx = c -> c < 26 ? (byte) (c + 'A') : (byte) (c - 26 + '2');
-		byte[] bts = data.getBytes(), ans = new byte[(bts.length + 4) / 5 * 8];
-		int i = 0, num = 0, pos = -1, in = 0;
-		while (i < bts.length) {
-			int val = 0, cnt = 5;
-			while (cnt-- > 0) {
-				if (pos == -1) {
-					pos = 7;
-					num = bts[i++];
-				}
-				val |= (num >> pos-- & 1) << cnt;
-			}
-			ans[in++] = idx.apply(val);
-		}
-		while (~pos != 0) {
-			int val = 0, cnt = 5;
-			while (cnt-- > 0 && ~pos != 0) val |= (num >> pos-- & 1) << cnt;
-			ans[in++] = idx.apply(val);
+		return new String(encode(data.getBytes()), StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * 将字节数组编码为 base32 字节数组
+	 *
+	 * @param data 待编码的数据
+	 * @return base32 编码数组
+	 */
+	public static byte[] encode(byte[] data) {
+		var result = new byte[encodedLength(data.length)];
+		encode(data, 0, data.length, result, 0);
+		return result;
+	}
+
+	/**
+	 * 将缓冲区剩余的数据编码为 base32,编码后缓冲区位置移动到末尾
+	 *
+	 * @param data 待编码的数据
+	 * @return base32 编码缓冲区
+	 */
+	public static ByteBuffer encode(@NotNull ByteBuffer data) {
+		int len = data.remaining();
+		var result = new byte[encodedLength(len)];
+		if (data.hasArray()) {
+			encode(data.array(), data.arrayOffset() + data.position(), len, result, 0);
+			data.position(data.limit());
+		} else {
+			var src = new byte[len];
+			data.get(src);
+			encode(src, 0, len, result, 0);
 		}
-		return new String(ans, 0, in);
+		return ByteBuffer.wrap(result);
 	}
 
 	/**
@@ -77,29 +106,295 @@ public class Base32Util {
 	 */
 	@NotNull
 	public static String decode(@NotNull String data, Charset charset) {
-		Function<Byte, Integer> idx = c -> Character.isLetter(c) ? c - 'A' : c - '2' + 26;
-		byte[] bts = data.getBytes(), ans = new byte[bts.length * 5 / 8];
-		int i = 0, cnt = 0, num = 0, pos = -1, in = 0;
-		while (i < bts.length) {
-			cnt = 8;
-			int val = 0;
-			while (i < bts.length && cnt-- > 0) {
-				if (pos == -1) {
-					pos = 4;
-					num = idx.apply(bts[i++]);
-				}
-				val |= (num >> pos-- & 1) << cnt;
+		return new String(decode(data.getBytes(StandardCharsets.ISO_8859_1)), charset);
+	}
+
+	/**
+	 * 解码 base32 编码数组
+	 *
+	 * @param data base32 编码数组
+	 * @return 解码后的数组
+	 */
+	public static byte[] decode(byte[] data) {
+		int len = data.length;
+		while (len > 0 && data[len - 1] == '=') len--;
+		var result = new byte[decodedLength(len)];
+		decode(data, 0, len, result, 0);
+		return result;
+	}
+
+	/**
+	 * 解码缓冲区剩余的 base32 数据,解码后缓冲区位置移动到末尾
+	 *
+	 * @param data base32 编码缓冲区
+	 * @return 解码后的缓冲区
+	 */
+	public static ByteBuffer decode(@NotNull ByteBuffer data) {
+		int off = 0, len = data.remaining();
+		byte[] src;
+		if (data.hasArray()) {
+			src = data.array();
+			off = data.arrayOffset() + data.position();
+			data.position(data.limit());
+		} else {
+			src = new byte[len];
+			data.get(src);
+		}
+		while (len > 0 && src[off + len - 1] == '=') len--;
+		var result = new byte[decodedLength(len)];
+		decode(src, off, len, result, 0);
+		return ByteBuffer.wrap(result);
+	}
+
+	/**
+	 * 包装输出流,写入的数据编码为 base32 后写入原输出流,关闭时写入剩余的数据并关闭原输出流
+	 *
+	 * @param out 输出流
+	 * @return 编码输出流
+	 */
+	@NotNull
+	public static OutputStream wrap(@NotNull OutputStream out) {
+		return new EncodeOutputStream(out);
+	}
+
+	/**
+	 * 包装输入流,读取时将原输入流的 base32 数据解码
+	 *
+	 * @param in base32 数据输入流
+	 * @return 解码输入流
+	 */
+	@NotNull
+	public static InputStream wrap(@NotNull InputStream in) {
+		return new DecodeInputStream(in);
+	}
+
+	/**
+	 * 判断字符串是否为Base32编码
+	 *
+	 * @param str 需要判断的字符串
+	 * @return 判断结果
+	 */
+	public static boolean isBase32(@NotNull String str) {
+		int len = str.length();
+		while (len > 0 && str.charAt(len - 1) == '=') len--;
+		if (len == 0 || !validLength(len)) return false;
+		for (int i = 0; i < len; i++) {
+			char c = str.charAt(i);
+			if (c > 0xff || DECODE[c] < 0) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * 获取编码后的长度,不带填充
+	 *
+	 * @param len 数据长度
+	 * @return 编码后的长度
+	 */
+	private static int encodedLength(int len) {
+		return len / 5 * 8 + (len % 5 * 8 + 4) / 5;
+	}
+
+	/**
+	 * 获取解码后的长度,多余的位将被舍弃
+	 *
+	 * @param len 编码长度,不包括填充
+	 * @return 解码后的长度
+	 */
+	private static int decodedLength(int len) {
+		return len / 8 * 5 + len % 8 * 5 / 8;
+	}
+
+	private static boolean validLength(int len) {
+		int rem = len % 8;
+		return rem != 1 && rem != 3 && rem != 6;
+	}
+
+	/**
+	 * 编码数据,每 5 字节组成 40 位整数后按照 5 位查表
+	 *
+	 * @return 写入的字节数
+	 */
+	private static int encode(byte[] src, int off, int len, byte[] dst, int dp) {
+		int start = dp, end = off + len - len % 5;
+		while (off < end) {
+			long bits = (src[off] & 0xffL) << 32 | (src[off + 1] & 0xffL) << 24 | (src[off + 2] & 0xffL) << 16 | (src[off + 3] & 0xffL) << 8 | src[off + 4] & 0xffL;
+			dst[dp] = ENCODE[(int) (bits >>> 35) & 31];
+			dst[dp + 1] = ENCODE[(int) (bits >>> 30) & 31];
+			dst[dp + 2] = ENCODE[(int) (bits >>> 25) & 31];
+			dst[dp + 3] = ENCODE[(int) (bits >>> 20) & 31];
+			dst[dp + 4] = ENCODE[(int) (bits >>> 15) & 31];
+			dst[dp + 5] = ENCODE[(int) (bits >>> 10) & 31];
+			dst[dp + 6] = ENCODE[(int) (bits >>> 5) & 31];
+			dst[dp + 7] = ENCODE[(int) bits & 31];
+			off += 5;
+			dp += 8;
+		}
+		int rem = len % 5;
+		if (rem > 0) { // 剩余字节左对齐至 40 位
+			long bits = 0;
+			for (int i = 0; i < rem; i++) bits |= (src[off + i] & 0xffL) << 32 - i * 8;
+			for (int i = 0, chars = (rem * 8 + 4) / 5; i < chars; i++) dst[dp++] = ENCODE[(int) (bits >>> 35 - i * 5) & 31];
+		}
+		return dp - start;
+	}
+
+	/**
+	 * 解码数据,每 8 字符组成 40 位整数后拆分为 5 字节;数据中不能包含填充字符
+	 *
+	 * @return 写入的字节数
+	 */
+	private static int decode(byte[] src, int off, int len, byte[] dst, int dp) {
+		int start = dp, end = off + len - len % 8;
+		while (off < end) {
+			long bits = 0;
+			for (int i = 0; i < 8; i++) bits = bits << 5 | value(src[off + i]);
+			dst[dp] = (byte) (bits >>> 32);
+			dst[dp + 1] = (byte) (bits >>> 24);
+			dst[dp + 2] = (byte) (bits >>> 16);
+			dst[dp + 3] = (byte) (bits >>> 8);
+			dst[dp + 4] = (byte) bits;
+			off += 8;
+			dp += 5;
+		}
+		int rem = len % 8;
+		if (rem > 0) {
+			long bits = 0;
+			for (int i = 0; i < rem; i++) bits |= (long) value(src[off + i]) << 35 - i * 5;
+			for (int i = 0, bytes = rem * 5 / 8; i < bytes; i++) dst[dp++] = (byte) (bits >>> 32 - i * 8);
+		}
+		return dp - start;
+	}
+
+	private static int value(byte c) {
+		int v = DECODE[c & 0xff];
+		if (v < 0) throw new IllegalArgumentException("Illegal base32 character " + (char) (c & 0xff));
+		return v;
+	}
+
+	/**
+	 * 编码输出流,不足一个块的数据保留到下次写入或关闭时
+	 */
+	private static class EncodeOutputStream extends FilterOutputStream {
+
+		private final byte[] block = new byte[5];
+		private final byte[] buffer = new byte[8192];
+		private int size;
+		private boolean closed;
+
+		private EncodeOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[]{(byte) b}, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (closed) throw new IOException("Stream is closed");
+			if (size > 0) { // 补全上次剩余的块
+				int n = Math.min(5 - size, len);
+				System.arraycopy(b, off, block, size, n);
+				size += n;
+				off += n;
+				len -= n;
+				if (size < 5) return;
+				out.write(buffer, 0, encode(block, 0, 5, buffer, 0));
+				size = 0;
+			}
+			while (len >= 5) {
+				int n = Math.min(len / 5, buffer.length / 8) * 5;
+				out.write(buffer, 0, encode(b, off, n, buffer, 0));
+				off += n;
+				len -= n;
+			}
+			System.arraycopy(b, off, block, 0, len);
+			size = len;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (closed) return;
+			closed = true;
+			if (size > 0) out.write(buffer, 0, encode(block, 0, size, buffer, 0));
+			out.close();
+		}
+
+	}
+
+	/**
+	 * 解码输入流,忽略填充字符和换行
+	 */
+	private static class DecodeInputStream extends FilterInputStream {
+
+		private final byte[] chars = new byte[8192];
+		private final byte[] bytes = new byte[chars.length / 8 * 5 + 5];
+		private int carried; // 上次读取剩余不足一个块的字符数
+		private int pos;
+		private int limit;
+		private boolean eof;
+
+		private DecodeInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			var b = new byte[1];
+			return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) return 0;
+			while (pos == limit) {
+				if (eof) return -1;
+				fill();
 			}
-			ans[in++] = (byte) val;
+			int n = Math.min(len, limit - pos);
+			System.arraycopy(bytes, pos, b, off, n);
+			pos += n;
+			return n;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return limit - pos;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			return n <= 0 ? 0 : read(new byte[(int) Math.min(n, bytes.length)]);
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
 		}
-		if (cnt <= pos + 1) {
-			while (cnt-- > 0) {
-				ans[ans.length - 1] |= (num >> pos-- & 1) << cnt;
+
+		private void fill() throws IOException {
+			pos = limit = 0;
+			int n = in.read(chars, carried, chars.length - carried);
+			if (n == -1) {
+				eof = true;
+				limit = decode(chars, 0, carried, bytes, 0);
+				carried = 0;
+				return;
 			}
-		} else {
-			ans = Arrays.copyOf(ans, ans.length - 1);
+			int count = carried;
+			for (int i = carried, end = carried + n; i < end; i++) {
+				byte c = chars[i];
+				if (c == '=' || c == '\r' || c == '\n') continue;
+				chars[count++] = c;
+			}
+			int full = count - count % 8;
+			limit = decode(chars, 0, full, bytes, 0);
+			carried = count - full;
+			System.arraycopy(chars, full, chars, 0, carried);
 		}
-		return new String(ans, charset);
+
 	}
 
 }
@@ -2,6 +2,9 @@ package org.haic.often.util;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
@@ -9,6 +12,8 @@ import java.util.regex.Pattern;
 
 /**
  * Base64编码器,用于Base64的编码和解码
+ * <p>
+ * 基于 {@link Base64} 实现,其编码和解码循环由JVM内联优化,无需另外查表实现;字节数组和 {@link ByteBuffer} 接口不产生中间字符串,大数据可以使用 {@link #wrap(OutputStream)}, {@link #wrap(InputStream)} 流式处理
  *
  * @author haicdust
  * @version 1.0
@@ -37,6 +42,16 @@ public class Base64Util {
 		return Base64.getEncoder().encode(data);
 	}
 
+	/**
+	 * 将缓冲区剩余的数据编码为Base64,编码后缓冲区位置移动到末尾
+	 *
+	 * @param data 待编码的数据
+	 * @return base64编码格式缓冲区
+	 */
+	public static ByteBuffer encode(@NotNull ByteBuffer data) {
+		return Base64.getEncoder().encode(data);
+	}
+
 	/**
 	 * Base64编码的字符串转普通字符串
 	 *
@@ -82,6 +97,38 @@ public class Base64Util {
 		return Base64.getDecoder().decode(data);
 	}
 
+	/**
+	 * 解码缓冲区剩余的Base64数据,解码后缓冲区位置移动到末尾
+	 *
+	 * @param data base64编码格式缓冲区
+	 * @return 解码后的缓冲区
+	 */
+	public static ByteBuffer decode(@NotNull ByteBuffer data) {
+		return Base64.getDecoder().decode(data);
+	}
+
+	/**
+	 * 包装输出流,写入的数据编码为Base64后写入原输出流,关闭时写入剩余的数据和填充并关闭原输出流
+	 *
+	 * @param out 输出流
+	 * @return 编码输出流
+	 */
+	@NotNull
+	public static OutputStream wrap(@NotNull OutputStream out) {
+		return Base64.getEncoder().wrap(out);
+	}
+
+	/**
+	 * 包装输入流,读取时将原输入流的Base64数据解码,忽略换行
+	 *
+	 * @param in base64数据输入流
+	 * @return 解码输入流
+	 */
+	@NotNull
+	public static InputStream wrap(@NotNull InputStream in) {
+		return Base64.getMimeDecoder().wrap(in);
+	}
+
 	/**
 	 * 判断字符串是否为Base64编码
 	 *
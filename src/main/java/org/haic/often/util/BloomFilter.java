@@ -0,0 +1,233 @@
+package org.haic.often.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 可扩展布隆过滤器,用于大量元素的去重
+ * <p>
+ * 元素按照64位指纹保存,每个元素只占用固定的位数,与元素长度无关;已添加的元素一定判断为存在,未添加的元素有小概率误判为存在
+ * <p>
+ * 当前分层达到容量后追加一个容量翻倍, 误判率减半的新分层,总误判率不超过指定值,不需要预先知道元素总数
+ *
+ * @author haicdust
+ * @version 1.0
+ * @since 2026/10/19 23:59
+ */
+public class BloomFilter {
+
+	private static final double LN2 = Math.log(2);
+	private static final int GROWTH = 2; // 新分层的容量倍数
+	private static final double TIGHTENING = 0.5; // 新分层的误判率倍数
+
+	private final long capacity;
+	private final double fpp;
+	private final List<Layer> layers = new ArrayList<>();
+	private long count;
+
+	/**
+	 * 调用构造实例对象
+	 *
+	 * @param capacity 第一个分层的容量
+	 * @param fpp      总误判率,例: 0.01
+	 */
+	public BloomFilter(long capacity, double fpp) {
+		if (capacity <= 0) throw new IllegalArgumentException("容量必须大于0: " + capacity);
+		if (fpp <= 0 || fpp >= 1) throw new IllegalArgumentException("误判率必须在0和1之间: " + fpp);
+		this.capacity = capacity;
+		this.fpp = fpp;
+		layers.add(new Layer(capacity, fpp * (1 - TIGHTENING)));
+	}
+
+	/**
+	 * 添加元素
+	 *
+	 * @param element 元素
+	 * @return 添加前不存在返回true,可能已存在返回false
+	 */
+	public boolean add(@NotNull CharSequence element) {
+		return add(fingerprint(element));
+	}
+
+	/**
+	 * 添加元素指纹
+	 *
+	 * @param fingerprint 64位指纹
+	 * @return 添加前不存在返回true,可能已存在返回false
+	 */
+	public synchronized boolean add(long fingerprint) {
+		if (contains(fingerprint)) return false;
+		var layer = layers.get(layers.size() - 1);
+		if (layer.count >= layer.capacity) layers.add(layer = new Layer(layer.capacity * GROWTH, layer.fpp * TIGHTENING));
+		layer.put(fingerprint);
+		count++;
+		return true;
+	}
+
+	/**
+	 * 判断元素是否可能存在
+	 *
+	 * @param element 元素
+	 * @return 不存在返回false
+	 */
+	public boolean mightContain(@NotNull CharSequence element) {
+		return mightContain(fingerprint(element));
+	}
+
+	/**
+	 * 判断元素指纹是否可能存在
+	 *
+	 * @param fingerprint 64位指纹
+	 * @return 不存在返回false
+	 */
+	public synchronized boolean mightContain(long fingerprint) {
+		return contains(fingerprint);
+	}
+
+	/**
+	 * 获取已添加的元素数量,不包括判断为已存在的元素
+	 *
+	 * @return 元素数量
+	 */
+	public synchronized long size() {
+		return count;
+	}
+
+	/**
+	 * 获取占用的内存大小
+	 *
+	 * @return 位数组的字节数
+	 */
+	public synchronized long memory() {
+		return layers.stream().mapToLong(l -> l.bits.length * 8L).sum();
+	}
+
+	/**
+	 * 清空所有元素,只保留第一个分层
+	 */
+	public synchronized void clear() {
+		layers.clear();
+		layers.add(new Layer(capacity, fpp * (1 - TIGHTENING)));
+		count = 0;
+	}
+
+	/**
+	 * 保存到输出流,不关闭流
+	 *
+	 * @param out 输出流
+	 * @throws IOException 写入异常
+	 */
+	public synchronized void writeTo(@NotNull OutputStream out) throws IOException {
+		var data = new DataOutputStream(new BufferedOutputStream(out));
+		data.writeLong(capacity);
+		data.writeDouble(fpp);
+		data.writeLong(count);
+		data.writeInt(layers.size());
+		for (var layer : layers) {
+			data.writeLong(layer.capacity);
+			data.writeDouble(layer.fpp);
+			data.writeLong(layer.count);
+			for (var word : layer.bits) data.writeLong(word);
+		}
+		data.flush();
+	}
+
+	/**
+	 * 从输入流读取 {@link #writeTo(OutputStream)} 保存的过滤器,不关闭流
+	 *
+	 * @param in 输入流
+	 * @return 布隆过滤器
+	 * @throws IOException 读取异常
+	 */
+	@NotNull
+	public static BloomFilter readFrom(@NotNull InputStream in) throws IOException {
+		var data = new DataInputStream(new BufferedInputStream(in));
+		var filter = new BloomFilter(data.readLong(), data.readDouble());
+		filter.count = data.readLong();
+		filter.layers.clear();
+		for (int i = data.readInt(); i > 0; i--) {
+			var layer = new Layer(data.readLong(), data.readDouble());
+			layer.count = data.readLong();
+			for (int k = 0; k < layer.bits.length; k++) layer.bits[k] = data.readLong();
+			filter.layers.add(layer);
+		}
+		return filter;
+	}
+
+	/**
+	 * 计算字符序列的64位指纹,相同内容的字符序列指纹相同
+	 *
+	 * @param s 字符序列
+	 * @return 64位指纹
+	 */
+	public static long fingerprint(@NotNull CharSequence s) {
+		long h = 0xcbf29ce484222325L ^ s.length(); // FNV-1a
+		for (int i = 0, len = s.length(); i < len; i++) {
+			h = (h ^ s.charAt(i)) * 0x100000001b3L;
+		}
+		return mix(h);
+	}
+
+	private boolean contains(long fingerprint) {
+		for (int i = layers.size() - 1; i >= 0; i--) { // 新分层元素更多,优先判断
+			if (layers.get(i).get(fingerprint)) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * 打散指纹的各个位,与SplitMix64相同
+	 */
+	private static long mix(long h) {
+		h = (h ^ h >>> 30) * 0xbf58476d1ce4e5b9L;
+		h = (h ^ h >>> 27) * 0x94d049bb133111ebL;
+		return h ^ h >>> 31;
+	}
+
+	/**
+	 * 固定容量的分层,由指纹和交换高低32位的指纹通过双重散列得到k个位置
+	 */
+	private static class Layer {
+
+		private final long capacity;
+		private final double fpp;
+		private final long[] bits;
+		private final long size;
+		private final int hashes;
+		private long count;
+
+		private Layer(long capacity, double fpp) {
+			this.capacity = capacity;
+			this.fpp = fpp;
+			long m = (long) Math.ceil(-capacity * Math.log(fpp) / (LN2 * LN2));
+			long words = Math.max(1, (m + 63) >>> 6);
+			if (words > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("容量过大: " + capacity);
+			this.bits = new long[(int) words];
+			this.size = words << 6;
+			this.hashes = Math.max(1, (int) Math.round((double) size / capacity * LN2));
+		}
+
+		private void put(long fingerprint) {
+			long h2 = Long.rotateLeft(fingerprint, 32) | 1;
+			for (int i = 0; i < hashes; i++) {
+				long index = Long.remainderUnsigned(fingerprint + i * h2, size);
+				bits[(int) (index >>> 6)] |= 1L << index;
+			}
+			count++;
+		}
+
+		private boolean get(long fingerprint) {
+			long h2 = Long.rotateLeft(fingerprint, 32) | 1;
+			for (int i = 0; i < hashes; i++) {
+				long index = Long.remainderUnsigned(fingerprint + i * h2, size);
+				if ((bits[(int) (index >>> 6)] & 1L << index) == 0) return false;
+			}
+			return true;
+		}
+
+	}
+
+}
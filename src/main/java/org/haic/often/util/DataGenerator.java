@@ -0,0 +1,551 @@
+package org.haic.often.util;
+
+import org.haic.often.net.UserAgent;
+import org.haic.often.parser.csv.CSVNode;
+import org.haic.often.parser.json.JSONObject;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.random.RandomGenerator;
+
+/**
+ * 测试数据生成器,按照字段定义批量生成记录并输出为 JSON 或 CSV
+ * <p>
+ * 每条记录的随机数由种子和记录序号决定,与线程数和分块无关,相同的种子和字段定义总是生成相同的数据;生成记录时 {@link RandomUtil}, {@link StringUtil#randomEmail()}, {@link UserAgent#random()} 等方法也使用记录的随机数
+ * <p>
+ * 输出时按照固定数量分块,多个线程并行生成并编码为字节,再按照顺序写入输出流;JSON 为每行一条记录的 JSON Lines 格式,转义规则与 {@link StringUtil#toEscape(String)} 相同,CSV 第一行为字段名,引号规则与 {@link CSVNode} 相同
+ *
+ * @author haicdust
+ * @version 1.0
+ * @since 2026/10/20 00:40
+ */
+public class DataGenerator {
+
+	private static final int CHUNK = 4096; // 每个任务生成的记录数量
+	private static final long GOLDEN = 0x9e3779b97f4a7c15L;
+	private static final char[] BASE62 = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+
+	private final List<String> names = new ArrayList<>();
+	private final List<Field> fields = new ArrayList<>();
+	private long seed = RandomUtil.current().nextLong();
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * 创建新的字段定义
+	 *
+	 * @return 数据生成器
+	 */
+	@NotNull
+	public static DataGenerator schema() {
+		return new DataGenerator();
+	}
+
+	/**
+	 * 设置种子,默认随机
+	 *
+	 * @param seed 种子
+	 * @return 此连接，用于链接
+	 */
+	public DataGenerator seed(long seed) {
+		this.seed = seed;
+		return this;
+	}
+
+	/**
+	 * 设置生成数据的线程数,默认为处理器数量
+	 *
+	 * @param threads 线程数
+	 * @return 此连接，用于链接
+	 */
+	public DataGenerator threads(int threads) {
+		if (threads < 1) throw new IllegalArgumentException("线程数必须大于0");
+		this.threads = threads;
+		return this;
+	}
+
+	/**
+	 * 添加自定义字段
+	 *
+	 * @param name  字段名
+	 * @param field 字段值生成方法
+	 * @return 此连接，用于链接
+	 */
+	public DataGenerator field(@NotNull String name, @NotNull Field field) {
+		if (names.contains(name)) throw new IllegalArgumentException("字段名重复: " + name);
+		names.add(name);
+		fields.add(field);
+		return this;
+	}
+
+	/**
+	 * 添加自增序号字段,从1开始,值唯一
+	 *
+	 * @param name 字段名
+	 * @return 此连接，用于链接
+	 */
+	public DataGenerator sequence(@NotNull String name) {
+		return sequence(name, 1);
+	}
+
+	/**
+	 * 添加自增序号字段,值唯一
+	 *
+	 * @param name  字段名
+	 * @param start 第一条记录的序号
+	 * @return 此连接，用于链接
+	 */
+	public DataGenerator sequence(@NotNull String name, long start) {
+		return field(name, (random, index) -> start + index);
+	}
+
+	/**
+	 * 添加均匀分布的整数字段
+	 *
+	 * @param name           字段名
+	 * @param startInclusive 最小值
+	 * @param endExclusive   最大值,不包括
+	 * @return 此连接，用于链接
+	 */
+	public DataGenerator integer(@NotNull String name, long startInclusive, long endExclusive) {
+		if (endExclusive <= startInclusive) throw new IllegalArgumentException("最大值必须大于最小值");
+		return field(name, (random, index) -> random.nextLong(startInclusive, endExclusive));
+	}
+
+	/**
+	 * 添加均匀分布的小数字段
+	 *
+	 * @param name           字段名
+	 * @param startInclusive 最小值
+	 * @param endExclusive   最大值,不包括
+	 * @param scale          保留的小数位数
+	 * @return 此连接，用于链接
+	 */
+	public DataGenerator number(@NotNull String name, double startInclusive, double endExclusive, int scale) {
+		if (endExclusive <= startInclusive) throw new IllegalArgumentException("最大值必须大于最小值");
+		double factor = Math.pow(10, scale);
+		return field(name, (random, index) -> Math.round(random.nextDouble(startInclusive, endExclusive) * factor) / factor);
+	}
+
+	/**
+	 * 添加正态分布的小数字段
+	 *
+	 * @param name   字段名
+	 * @param mean   平均值
+	 * @param stddev 标准差
+	 * @param scale  保留的小数位数
+	 * @return 此连接，用于链接
+	 */
+	public DataGenerator gaussian(@NotNull String name, double mean, double stddev, int scale) {
+		double factor = Math.pow(10, scale);
+		return field(name, (random, index) -> Math.round(random.nextGaussian(mean, stddev) * factor) / factor);
+	}
+
+	/**
+	 * 添加布尔字段
+	 *
+	 * @param name        字段名
+	 * @param probability 值为true的概率
+	 * @return 此连接，用于链接
+	 */
+	public DataGenerator bool(@NotNull String name, double probability) {
+		return field(name, (random, index) -> random.nextDouble() < probability);
+	}
+
+	/**
+	 * 添加从指定值中等概率选择的字段
+	 *
+	 * @param name   字段名
+	 * @param values 可选值
+	 * @return 此连接，用于链接
+	 */
+	public DataGenerator choice(@NotNull String name, @NotNull String... values) {
+		if (values.length == 0) throw new IllegalArgumentException("可选值不能为空");
+		var copy = values.clone();
+		return field(name, (random, index) -> copy[random.nextInt(copy.length)]);
+	}
+
+	/**
+	 * 添加按照权重从指定值中选择的字段
+	 *
+	 * @param name    字段名
+	 * @param values  可选值
+	 * @param weights 权重,与可选值一一对应
+	 * @return 此连接，用于链接
+	 */
+	public DataGenerator weighted(@NotNull String name, @NotNull String[] values, double[] weights) {
+		if (values.length == 0 || values.length != weights.length) throw new IllegalArgumentException("可选值和权重的数量必须相同且不为空");
+		var copy = values.clone();
+		var cumulative = new double[weights.length];
+		double sum = 0;
+		for (int i = 0; i < weights.length; i++) {
+			if (weights[i] < 0) throw new IllegalArgumentException("权重不能为负数: " + weights[i]);
+			cumulative[i] = sum += weights[i];
+		}
+		if (sum <= 0) throw new IllegalArgumentException("权重之和必须大于0");
+		double total = sum;
+		return field(name, (random, index) -> {
+			int i = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+			return copy[Math.min(i < 0 ? -i - 1 : i + 1, copy.length - 1)];
+		});
+	}
+
+	/**
+	 * 添加按照齐夫分布从指定值中选择的字段,排在前面的值出现的次数更多,例如热门分类或热门网址
+	 *
+	 * @param name     字段名
+	 * @param values   可选值,按照热度从高到低排列
+	 * @param exponent 指数,越大越集中在前面的值,通常为1
+	 * @return 此连接，用于链接
+	 */
+	public DataGenerator zipf(@NotNull String name, @NotNull String[] values, double exponent) {
+		var weights = new double[values.length];
+		for (int i = 0; i < weights.length; i++) weights[i] = 1 / Math.pow(i + 1, exponent);
+		return weighted(name, values, weights);
+	}
+
+	/**
+	 * 添加字母和数字组成的随机字符串字段
+	 *
+	 * @param name               字段名
+	 * @param minLengthInclusive 最小长度
+	 * @param maxLengthExclusive 最大长度,不包括
+	 * @return 此连接，用于链接
+	 */
+	public DataGenerator string(@NotNull String name, int minLengthInclusive, int maxLengthExclusive) {
+		return field(name, (random, index) -> RandomUtil.randomAlphanumeric(minLengthInclusive, maxLengthExclusive));
+	}
+
+	/**
+	 * 添加唯一的字母和数字组成的字符串字段,前11位由记录序号一一映射得到,其余为随机字符
+	 *
+	 * @param name   字段名
+	 * @param length 长度,不能小于11
+	 * @return 此连接，用于链接
+	 */
+	public DataGenerator token(@NotNull String name, int length) {
+		if (length < 11) throw new IllegalArgumentException("唯一字符串长度不能小于11: " + length);
+		return field(name, (random, index) -> {
+			var chars = new char[length];
+			long unique = unique(index);
+			for (int i = 10; i >= 0; i--) {
+				chars[i] = BASE62[(int) Long.remainderUnsigned(unique, 62)];
+				unique = Long.divideUnsigned(unique, 62);
+			}
+			return new String(RandomUtil.fill(chars, 11, length - 11, BASE62, random));
+		});
+	}
+
+	/**
+	 * 添加随机UUID字段
+	 *
+	 * @param name 字段名
+	 * @return 此连接，用于链接
+	 */
+	public DataGenerator uuid(@NotNull String name) {
+		return field(name, (random, index) -> new UUID(random.nextLong() & ~0xf000L | 0x4000L, random.nextLong() & 0x3fffffffffffffffL | 0x8000000000000000L).toString());
+	}
+
+	/**
+	 * 添加随机邮箱字段
+	 *
+	 * @param name   字段名
+	 * @param unique 是否唯一,唯一时用户名由记录序号一一映射得到
+	 * @return 此连接，用于链接
+	 */
+	public DataGenerator email(@NotNull String name, boolean unique) {
+		return field(name, (random, index) -> {
+			var email = StringUtil.randomEmail();
+			return unique ? Long.toUnsignedString(unique(index), 36) + email.substring(email.indexOf('@')) : email;
+		});
+	}
+
+	/**
+	 * 添加随机手机号字段
+	 *
+	 * @param name 字段名
+	 * @return 此连接，用于链接
+	 */
+	public DataGenerator phone(@NotNull String name) {
+		return field(name, (random, index) -> StringUtil.randomPhoneNumber());
+	}
+
+	/**
+	 * 添加随机浏览器 UserAgent 字段
+	 *
+	 * @param name 字段名
+	 * @return 此连接，用于链接
+	 */
+	public DataGenerator userAgent(@NotNull String name) {
+		return field(name, (random, index) -> UserAgent.random());
+	}
+
+	/**
+	 * 添加均匀分布的时间戳字段
+	 *
+	 * @param name           字段名
+	 * @param startInclusive 最早时间,单位毫秒
+	 * @param endExclusive   最晚时间,不包括,单位毫秒
+	 * @return 此连接，用于链接
+	 */
+	public DataGenerator timestamp(@NotNull String name, long startInclusive, long endExclusive) {
+		return integer(name, startInclusive, endExclusive);
+	}
+
+	/**
+	 * 获取字段名
+	 *
+	 * @return CSV 表头
+	 */
+	@NotNull
+	public CSVNode header() {
+		var header = new CSVNode();
+		header.addAll(names);
+		return header;
+	}
+
+	/**
+	 * 生成指定序号的记录
+	 *
+	 * @param index 记录序号,从0开始
+	 * @return JSON 记录
+	 */
+	@NotNull
+	public JSONObject record(long index) {
+		var values = values(index);
+		var record = new JSONObject();
+		for (int i = 0; i < values.length; i++) record.put(names.get(i), values[i]);
+		return record;
+	}
+
+	/**
+	 * 生成指定序号的记录
+	 *
+	 * @param index 记录序号,从0开始
+	 * @return CSV 行
+	 */
+	@NotNull
+	public CSVNode row(long index) {
+		var row = new CSVNode();
+		for (var value : values(index)) row.add(value == null ? "" : String.valueOf(value));
+		return row;
+	}
+
+	/**
+	 * 生成指定数量的记录,以 JSON Lines 格式写入输出流,不关闭流
+	 *
+	 * @param out   输出流
+	 * @param count 记录数量
+	 * @throws IOException 写入异常
+	 */
+	public void writeJSON(@NotNull OutputStream out, long count) throws IOException {
+		write(out, count, true);
+	}
+
+	/**
+	 * 生成指定数量的记录,以 CSV 格式写入输出流,不关闭流
+	 *
+	 * @param out   输出流
+	 * @param count 记录数量
+	 * @throws IOException 写入异常
+	 */
+	public void writeCSV(@NotNull OutputStream out, long count) throws IOException {
+		write(out, count, false);
+	}
+
+	/**
+	 * 生成指定数量的记录,以 JSON Lines 格式写入文件,文件已存在时覆盖
+	 *
+	 * @param file  文件
+	 * @param count 记录数量
+	 * @return 写入是否成功
+	 */
+	public boolean writeJSON(@NotNull File file, long count) {
+		return write(file, count, true);
+	}
+
+	/**
+	 * 生成指定数量的记录,以 CSV 格式写入文件,文件已存在时覆盖
+	 *
+	 * @param file  文件
+	 * @param count 记录数量
+	 * @return 写入是否成功
+	 */
+	public boolean writeCSV(@NotNull File file, long count) {
+		return write(file, count, false);
+	}
+
+	private boolean write(File file, long count, boolean json) {
+		FileUtil.createFolder(file.getAbsoluteFile().getParent());
+		try (var out = new FileOutputStream(file)) {
+			write(out, count, json);
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	private void write(OutputStream out, long count, boolean json) throws IOException {
+		if (count < 0) throw new IllegalArgumentException("记录数量不能为负数: " + count);
+		if (fields.isEmpty()) throw new IllegalStateException("未定义字段");
+		if (!json) out.write((header() + "\n").getBytes(StandardCharsets.UTF_8));
+		long chunks = (count + CHUNK - 1) / CHUNK;
+		if (threads == 1 || chunks <= 1) {
+			for (long c = 0; c < chunks; c++) out.write(chunk(c * CHUNK, Math.min(count, (c + 1) * CHUNK), json));
+			return;
+		}
+		var executor = Executors.newFixedThreadPool(threads);
+		var pending = new ArrayDeque<Future<byte[]>>(); // 按照顺序等待各个分块,限制内存中的分块数量
+		try {
+			for (long next = 0, written = 0; written < chunks; written++) {
+				for (; next < chunks && pending.size() < threads * 2; next++) {
+					long from = next * CHUNK, to = Math.min(count, from + CHUNK);
+					pending.add(executor.submit(() -> chunk(from, to, json)));
+				}
+				out.write(pending.poll().get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("生成数据时被中断");
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("生成数据失败", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * 生成一个分块的记录并编码为UTF-8
+	 */
+	private byte[] chunk(long from, long to, boolean json) {
+		var keys = new String[names.size()];
+		for (int i = 0; i < keys.length; i++) keys[i] = quote(new StringBuilder(), names.get(i)).append(':').toString();
+		var random = new Mix();
+		var previous = RandomUtil.seed(random); // 结束后恢复调用者设置的生成器
+		try {
+			var sb = new StringBuilder((int) (to - from) * 32 * fields.size());
+			for (long index = from; index < to; index++) {
+				random.reset(index);
+				if (json) sb.append('{');
+				for (int i = 0; i < fields.size(); i++) {
+					if (i > 0) sb.append(',');
+					if (json) sb.append(keys[i]);
+					var value = fields.get(i).next(random, index);
+					if (json) appendJSON(sb, value);
+					else appendCSV(sb, value);
+				}
+				sb.append(json ? "}\n" : "\n");
+			}
+			return sb.toString().getBytes(StandardCharsets.UTF_8);
+		} finally {
+			RandomUtil.restore(previous);
+		}
+	}
+
+	private Object[] values(long index) {
+		var random = new Mix();
+		random.reset(index);
+		var previous = RandomUtil.seed(random);
+		try {
+			var values = new Object[fields.size()];
+			for (int i = 0; i < values.length; i++) values[i] = fields.get(i).next(random, index);
+			return values;
+		} finally {
+			RandomUtil.restore(previous);
+		}
+	}
+
+	/**
+	 * 记录序号一一映射为64位整数,不同序号的结果一定不同
+	 */
+	private long unique(long index) {
+		return mix(index ^ seed);
+	}
+
+	private static void appendJSON(StringBuilder sb, @Nullable Object value) {
+		if (value == null) sb.append("null");
+		else if (value instanceof Number || value instanceof Boolean) sb.append(value);
+		else quote(sb, value.toString());
+	}
+
+	private static void appendCSV(StringBuilder sb, @Nullable Object value) {
+		if (value == null) return;
+		var s = value.toString();
+		if (s.indexOf(',') == -1 && s.indexOf('"') == -1) {
+			sb.append(s);
+			return;
+		}
+		sb.append('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '"') sb.append('"');
+			sb.append(c);
+		}
+		sb.append('"');
+	}
+
+	private static StringBuilder quote(StringBuilder sb, String s) {
+		sb.append('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+				case '\\' -> sb.append("\\\\");
+				case '"' -> sb.append("\\\"");
+				case '\t' -> sb.append("\\t");
+				case '\r' -> sb.append("\\r");
+				case '\n' -> sb.append("\\n");
+				default -> sb.append(c);
+			}
+		}
+		return sb.append('"');
+	}
+
+	private static long mix(long h) {
+		h = (h ^ h >>> 30) * 0xbf58476d1ce4e5b9L;
+		h = (h ^ h >>> 27) * 0x94d049bb133111ebL;
+		return h ^ h >>> 31;
+	}
+
+	/**
+	 * 字段值生成方法
+	 */
+	@FunctionalInterface
+	public interface Field {
+
+		/**
+		 * 生成字段值
+		 *
+		 * @param random 当前记录的随机数生成器
+		 * @param index  记录序号,从0开始
+		 * @return 字段值,数字和布尔值按照原样输出,其他类型按照字符串输出,null在 CSV 中为空
+		 */
+		@Nullable
+		Object next(@NotNull RandomGenerator random, long index);
+
+	}
+
+	/**
+	 * SplitMix64随机数生成器,每条记录开始时按照种子和序号重置,不创建新的对象
+	 */
+	private class Mix implements RandomGenerator {
+
+		private long state;
+
+		private void reset(long index) {
+			state = mix(seed + index * GOLDEN);
+		}
+
+		@Override
+		public long nextLong() {
+			return mix(state += GOLDEN);
+		}
+
+	}
+
+}
@@ -1,17 +1,30 @@
 package org.haic.often.util;
 
-import org.apache.commons.codec.digest.DigestUtils;
 import org.haic.often.Judge;
 import org.jetbrains.annotations.NotNull;
 import org.haic.often.exception.StringException;
 
 import javax.swing.filechooser.FileSystemView;
-import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -24,6 +37,9 @@ import java.util.stream.Stream;
  */
 public class FileUtil {
 
+	private static final int HASH_BUFFER_SIZE = 1048576; // 摘要计算缓冲区大小,1M
+	private static final int DEFAULT_FILE_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors()); // 文件复制和删除的默认线程数
+
 	/**
 	 * 获取文件名的字符长度
 	 *
@@ -202,7 +218,44 @@ public class FileUtil {
 	 * @return 删除文件夹是否成功
 	 */
 	public static boolean deleteDirectory(@NotNull File folder) {
-		return folder.exists() && !Arrays.stream(Objects.requireNonNull(folder.listFiles())).parallel().map(file -> file.isDirectory() ? deleteDirectory(file) : file.delete()).toList().contains(false) && folder.delete();
+		return deleteDirectory(folder, DEFAULT_FILE_THREADS);
+	}
+
+	/**
+	 * 并行删除文件夹
+	 * <p>
+	 * 先由固定数量的线程并行删除遍历到的文件,再按照子文件夹先于父文件夹的顺序删除文件夹;不跟随符号链接
+	 *
+	 * @param folder   文件夹
+	 * @param nThreads 线程数
+	 * @return 删除文件夹是否成功
+	 */
+	public static boolean deleteDirectory(@NotNull File folder, int nThreads) {
+		if (!folder.exists()) return false;
+		boolean success = parallel(walk(folder), nThreads, path -> {
+			try {
+				Files.delete(path);
+				return true;
+			} catch (IOException e) {
+				return false;
+			}
+		});
+		try {
+			Files.walkFileTree(folder.toPath(), new SimpleFileVisitor<>() {
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+					Files.delete(file); // 符号链接等非常规文件
+					return FileVisitResult.CONTINUE;
+				}
+
+				public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+					Files.delete(dir);
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException e) {
+			return false;
+		}
+		return success;
 	}
 
 	/**
@@ -342,7 +395,82 @@ public class FileUtil {
 	 */
 	@NotNull
 	public static List<File> iterateFiles(@NotNull File file) {
-		return file.exists() ? file.isFile() ? Collections.singletonList(file) : Arrays.stream(Objects.requireNonNull(file.listFiles())).parallel().flatMap(f -> iterateFiles(f).stream()).collect(Collectors.toList()) : new ArrayList<>();
+		try (var stream = walk(file)) {
+			return stream.map(Path::toFile).collect(Collectors.toList());
+		}
+	}
+
+	/**
+	 * 惰性遍历文件夹内的所有文件,不包括文件夹
+	 * <p>
+	 * 返回的流持有打开的目录,使用后需要关闭
+	 *
+	 * @param folder 文件夹或文件
+	 * @return 文件路径流,文件夹不存在时为空流
+	 */
+	@NotNull
+	public static Stream<Path> walk(@NotNull File folder) {
+		return walk(folder, (path, attrs) -> true);
+	}
+
+	/**
+	 * 惰性遍历文件夹内符合条件的文件,不包括文件夹
+	 * <p>
+	 * 基于 {@link Files#find} 按需读取目录,过滤条件使用遍历时已读取的文件属性,不额外访问文件系统,也不会生成完整的文件列表
+	 * <p>
+	 * 返回的流持有打开的目录,使用后需要关闭
+	 *
+	 * @param folder 文件夹或文件
+	 * @param filter 过滤条件,可以使用 {@link #suffixFilter(String)}, {@link #sizeFilter(long, long)}, {@link #modifiedFilter(long, long)} 组合
+	 * @return 文件路径流,文件夹不存在时为空流
+	 */
+	@NotNull
+	public static Stream<Path> walk(@NotNull File folder, @NotNull BiPredicate<Path, BasicFileAttributes> filter) {
+		if (!folder.exists()) return Stream.empty();
+		try {
+			return Files.find(folder.toPath(), Integer.MAX_VALUE, (path, attrs) -> attrs.isRegularFile() && filter.test(path, attrs));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * 后缀过滤条件,用于 {@link #walk(File, BiPredicate)}
+	 *
+	 * @param suffix 文件后缀名
+	 * @return 过滤条件
+	 */
+	@NotNull
+	public static BiPredicate<Path, BasicFileAttributes> suffixFilter(@NotNull String suffix) {
+		var end = (char) 46 + suffix;
+		return (path, attrs) -> path.getFileName().toString().endsWith(end);
+	}
+
+	/**
+	 * 文件大小过滤条件,用于 {@link #walk(File, BiPredicate)}
+	 *
+	 * @param min 最小文件大小(包含)
+	 * @param max 最大文件大小(包含)
+	 * @return 过滤条件
+	 */
+	@NotNull
+	public static BiPredicate<Path, BasicFileAttributes> sizeFilter(long min, long max) {
+		return (path, attrs) -> attrs.size() >= min && attrs.size() <= max;
+	}
+
+	/**
+	 * 修改时间过滤条件,用于 {@link #walk(File, BiPredicate)}
+	 *
+	 * @param from 起始时间戳(毫秒,包含)
+	 * @param to   结束时间戳(毫秒,包含)
+	 * @return 过滤条件
+	 */
+	@NotNull
+	public static BiPredicate<Path, BasicFileAttributes> modifiedFilter(long from, long to) {
+		return (path, attrs) -> {
+			long modified = attrs.lastModifiedTime().toMillis();
+			return modified >= from && modified <= to;
+		};
 	}
 
 	/**
@@ -366,7 +494,9 @@ public class FileUtil {
 	 */
 	@NotNull
 	public static List<File> iterateFilesAsSuffix(@NotNull File file, @NotNull String suffix) {
-		return iterateFiles(file).parallelStream().filter(f -> f.getName().endsWith((char) 46 + suffix)).collect(Collectors.toList());
+		try (var stream = walk(file, suffixFilter(suffix))) {
+			return stream.map(Path::toFile).collect(Collectors.toList());
+		}
 	}
 
 	/**
@@ -529,13 +659,7 @@ public class FileUtil {
 	 */
 	@NotNull
 	public static String getMD5(@NotNull File file) {
-		String result = "";
-		try (BufferedInputStream inputStream = new BufferedInputStream(new FileInputStream(file))) {
-			result = DigestUtils.md5Hex(inputStream);
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-		return result;
+		return hashes(file, "MD5").getOrDefault("MD5", "");
 	}
 
 	/**
@@ -557,13 +681,7 @@ public class FileUtil {
 	 */
 	@NotNull
 	public static String getSHA1(@NotNull File file) {
-		String result = "";
-		try (BufferedInputStream inputStream = new BufferedInputStream(new FileInputStream(file))) {
-			result = DigestUtils.sha1Hex(inputStream);
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-		return result;
+		return hashes(file, "SHA-1").getOrDefault("SHA-1", "");
 	}
 
 	/**
@@ -585,13 +703,7 @@ public class FileUtil {
 	 */
 	@NotNull
 	public static String getSHA256(@NotNull File file) {
-		String result = "";
-		try (BufferedInputStream inputStream = new BufferedInputStream(new FileInputStream(file))) {
-			result = DigestUtils.sha256Hex(inputStream);
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-		return result;
+		return hashes(file, "SHA-256").getOrDefault("SHA-256", "");
 	}
 
 	/**
@@ -613,13 +725,7 @@ public class FileUtil {
 	 */
 	@NotNull
 	public static String getSHA384(@NotNull File file) {
-		String result = "";
-		try (BufferedInputStream inputStream = new BufferedInputStream(new FileInputStream(file))) {
-			result = DigestUtils.sha384Hex(inputStream);
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-		return result;
+		return hashes(file, "SHA-384").getOrDefault("SHA-384", "");
 	}
 
 	/**
@@ -641,15 +747,136 @@ public class FileUtil {
 	 */
 	@NotNull
 	public static String getSHA512(@NotNull File file) {
-		String result = "";
-		try (BufferedInputStream inputStream = new BufferedInputStream(new FileInputStream(file))) {
-			result = DigestUtils.sha512Hex(inputStream);
+		return hashes(file, "SHA-512").getOrDefault("SHA-512", "");
+	}
+
+	/**
+	 * 单次读取文件,同时计算多种摘要
+	 * <p>
+	 * 使用 FileChannel 和 1M 直接缓冲区读取,每个缓冲区依次交给所有摘要,计算多种摘要时文件只读取一次
+	 *
+	 * @param file       文件
+	 * @param algorithms 摘要算法,例如 MD5, SHA-1, SHA-256, 也支持 SHA1, SHA256 写法
+	 * @return 算法名(与参数一致)和小写十六进制摘要,读取失败返回空Map
+	 */
+	@NotNull
+	public static Map<String, String> hashes(@NotNull File file, @NotNull String... algorithms) {
+		var digests = new MessageDigest[algorithms.length];
+		for (int i = 0; i < algorithms.length; i++) digests[i] = digest(algorithms[i]);
+		var result = new LinkedHashMap<String, String>();
+		try (var channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			var buffer = ByteBuffer.allocateDirect(HASH_BUFFER_SIZE);
+			while (channel.read(buffer) != -1) {
+				buffer.flip();
+				for (var digest : digests) {
+					digest.update(buffer);
+					buffer.rewind();
+				}
+				buffer.clear();
+			}
 		} catch (IOException e) {
 			e.printStackTrace();
+			return result;
 		}
+		for (int i = 0; i < algorithms.length; i++) result.put(algorithms[i], HexFormat.of().formatHex(digests[i].digest()));
 		return result;
 	}
 
+	/**
+	 * 并行计算文件每个分块的摘要,用于分块去重和增量校验
+	 * <p>
+	 * 各分块由独立线程池中的多个线程通过 FileChannel 按位置并行读取,总耗时受限于磁盘而不是单个CPU核心
+	 *
+	 * @param file      文件
+	 * @param algorithm 摘要算法
+	 * @param chunkSize 分块大小(字节)
+	 * @return 按顺序排列的分块小写十六进制摘要,读取失败返回空列表
+	 */
+	@NotNull
+	public static List<String> chunkHashes(@NotNull File file, @NotNull String algorithm, int chunkSize) {
+		return chunkDigests(file, algorithm, chunkSize).stream().map(l -> HexFormat.of().formatHex(l)).toList();
+	}
+
+	/**
+	 * 并行计算文件的树形摘要
+	 * <p>
+	 * 先并行计算每个分块的摘要,再按顺序对所有分块摘要计算一次摘要作为根摘要;结果与分块大小有关,与整个文件直接计算的摘要不同,只能与使用相同算法和分块大小的树形摘要比较
+	 *
+	 * @param file      文件
+	 * @param algorithm 摘要算法
+	 * @param chunkSize 分块大小(字节)
+	 * @return 小写十六进制根摘要,读取失败返回空字符串
+	 */
+	@NotNull
+	public static String treeHash(@NotNull File file, @NotNull String algorithm, int chunkSize) {
+		var chunks = chunkDigests(file, algorithm, chunkSize);
+		if (chunks.isEmpty() && file.length() > 0) return "";
+		var root = digest(algorithm);
+		chunks.forEach(root::update);
+		return HexFormat.of().formatHex(root.digest());
+	}
+
+	private static List<byte[]> chunkDigests(File file, String algorithm, int chunkSize) {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("分块大小必须大于0");
+		}
+		digest(algorithm); // 提前校验算法
+		try (var channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			long count = (size + chunkSize - 1) / chunkSize;
+			if (count > Integer.MAX_VALUE - 8) {
+				throw new IllegalArgumentException("分块数量过多: " + count);
+			}
+			if (count == 0) return List.of();
+			var digests = new byte[(int) count][];
+			var next = new AtomicInteger();
+			int nThreads = (int) Math.min(Runtime.getRuntime().availableProcessors(), count);
+			var executor = Executors.newFixedThreadPool(nThreads); // 读取阻塞在磁盘上,不占用公共的 ForkJoinPool
+			try {
+				var workers = new ArrayList<Future<?>>(nThreads);
+				for (int t = 0; t < nThreads; t++) {
+					workers.add(executor.submit(() -> {
+						var digest = digest(algorithm);
+						var buffer = ByteBuffer.allocate(Math.min(HASH_BUFFER_SIZE, chunkSize));
+						for (int i; (i = next.getAndIncrement()) < digests.length; ) {
+							long position = (long) i * chunkSize, end = Math.min(position + chunkSize, size);
+							while (position < end) {
+								buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+								int len = channel.read(buffer, position);
+								if (len == -1) break;
+								digest.update(buffer.array(), 0, len);
+								position += len;
+							}
+							digests[i] = digest.digest();
+						}
+						return null;
+					}));
+				}
+				for (var worker : workers) worker.get();
+			} catch (ExecutionException e) {
+				throw e.getCause() instanceof IOException ex ? ex : new IOException(e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("计算摘要被中断: " + file);
+			} finally {
+				executor.shutdownNow();
+			}
+			return List.of(digests);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return List.of();
+		}
+	}
+
+	private static MessageDigest digest(String algorithm) {
+		var name = algorithm.toUpperCase().matches("SHA\\d+") ? "SHA-" + algorithm.substring(3) : algorithm;
+		try {
+			return MessageDigest.getInstance(name);
+		} catch (NoSuchAlgorithmException e) {
+			throw new StringException("不支持的摘要算法: " + algorithm);
+		}
+	}
+
 	/**
 	 * 复制文件
 	 *
@@ -658,7 +885,9 @@ public class FileUtil {
 	 * @return 复制是否成功
 	 */
 	public static boolean copyFile(@NotNull File input, @NotNull File output) {
-		return ReadWriteUtil.orgin(input).channelCopy(output);
+		var parent = output.getParentFile();
+		if (parent != null) createFolder(parent);
+		return transfer(input.toPath(), output.toPath());
 	}
 
 	/**
@@ -669,17 +898,90 @@ public class FileUtil {
 	 * @return 复制是否成功
 	 */
 	public static boolean copyDirectory(@NotNull File input, @NotNull File output) {
+		return copyDirectory(input, output, DEFAULT_FILE_THREADS);
+	}
+
+	/**
+	 * 并行复制文件夹
+	 * <p>
+	 * 惰性遍历来源文件夹,由固定数量的线程使用 {@link FileChannel#transferTo} 复制文件,排队的任务数量受限,不会生成完整的文件列表
+	 *
+	 * @param input    来源文件夹
+	 * @param output   输出目录
+	 * @param nThreads 线程数
+	 * @return 复制是否成功
+	 */
+	public static boolean copyDirectory(@NotNull File input, @NotNull File output, int nThreads) {
 		if (output.equals(input.getParentFile())) {
 			return false;
 		}
-		for (File file : iterateFiles(input)) {
-			String filePath = file.getAbsolutePath();
-			File newFile = new File(output + filePath.substring(input.getAbsolutePath().length()));
-			if (!copyFile(file, newFile)) {
+		var source = input.toPath();
+		var target = output.toPath();
+		return parallel(walk(input), nThreads, path -> {
+			var out = target.resolve(source.relativize(path).toString());
+			try {
+				Files.createDirectories(out.getParent());
+			} catch (IOException e) {
+				e.printStackTrace();
 				return false;
 			}
+			return transfer(path, out);
+		});
+	}
+
+	/**
+	 * 使用固定数量的线程对流中的文件执行操作,排队的任务数量受限,流按需读取
+	 *
+	 * @param paths    文件路径流,执行结束后关闭
+	 * @param nThreads 线程数
+	 * @param action   操作,返回是否成功
+	 * @return 是否全部成功
+	 */
+	private static boolean parallel(Stream<Path> paths, int nThreads, Predicate<Path> action) {
+		if (nThreads < 1) {
+			throw new IllegalArgumentException("线程数必须大于0");
+		}
+		var executor = Executors.newFixedThreadPool(nThreads);
+		var permits = new Semaphore(nThreads * 4); // 限制排队任务数量
+		var success = new AtomicBoolean(true);
+		try (paths) {
+			paths.forEach(path -> {
+				permits.acquireUninterruptibly();
+				executor.execute(() -> {
+					try {
+						if (!action.test(path)) success.set(false);
+					} finally {
+						permits.release();
+					}
+				});
+			});
+		} catch (UncheckedIOException e) {
+			e.printStackTrace();
+			success.set(false);
+		} finally {
+			ThreadUtil.waitEnd(executor);
+		}
+		return success.get();
+	}
+
+	/**
+	 * 使用 {@link FileChannel#transferTo} 复制文件,支持2G以上文件
+	 *
+	 * @param input  来源文件
+	 * @param output 输出文件
+	 * @return 复制是否成功
+	 */
+	private static boolean transfer(Path input, Path output) {
+		try (var in = FileChannel.open(input, StandardOpenOption.READ); var out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			long size = in.size();
+			for (long position = 0; position < size; ) {
+				position += in.transferTo(position, size - position, out);
+			}
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
 		}
-		return true;
 	}
 
 }
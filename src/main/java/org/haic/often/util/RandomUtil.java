@@ -1,9 +1,21 @@
 package org.haic.often.util;
 
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
 
 /**
  * 随机工具类
+ * <p>
+ * 默认使用 {@link ThreadLocalRandom},各线程之间不竞争同一个种子;调用 {@link #seed(long)} 后当前线程改用指定种子的 L64X128MixRandom,生成可重复的序列
+ * <p>
+ * 字母, 数字等固定字符集的随机字符串按照字符表生成,每个 {@code long} 随机数生成两个字符,大量数据可以使用 {@link #fill(char[], char[])}, {@link #fill(byte[], byte[])} 填充已有数组
  *
  * @author haicdust
  * @version 1.0
@@ -11,7 +23,175 @@ import java.util.Random;
  */
 public class RandomUtil {
 
-	private static final Random RANDOM = new Random();
+	private static final String ALGORITHM = "L64X128MixRandom";
+	private static final ThreadLocal<RandomGenerator> SEEDED = new ThreadLocal<>(); // 当前线程指定种子的随机数生成器
+
+	private static final char[] NUMERIC = range('0', '9' + 1);
+	private static final char[] ALPHABETIC = concat(range('A', 'Z' + 1), range('a', 'z' + 1));
+	private static final char[] ALPHANUMERIC = concat(NUMERIC, ALPHABETIC);
+	private static final char[] ASCII = range(32, 127);
+	private static final char[] GRAPH = range(33, 126);
+	private static final char[] PRINT = range(32, 126);
+
+	/**
+	 * 获取当前线程使用的随机数生成器
+	 *
+	 * @return 指定种子时为可重复的生成器,否则为 {@link ThreadLocalRandom#current()}
+	 */
+	@NotNull
+	public static RandomGenerator current() {
+		var seeded = SEEDED.get();
+		return seeded != null ? seeded : ThreadLocalRandom.current();
+	}
+
+	/**
+	 * 当前线程使用指定种子生成随机数,之后当前线程的随机结果可以重复
+	 *
+	 * @param seed 种子
+	 */
+	public static void seed(long seed) {
+		SEEDED.set(generator(seed));
+	}
+
+	/**
+	 * 当前线程使用指定的随机数生成器,例如由 {@link #split(long, int)} 拆分得到的生成器
+	 * <p>
+	 * 临时替换时应在结束后将返回值交给 {@link #restore(RandomGenerator)},以免丢失调用者设置的种子
+	 *
+	 * @param generator 随机数生成器
+	 * @return 之前使用的生成器,未指定种子时为null
+	 */
+	@Nullable
+	public static RandomGenerator seed(@NotNull RandomGenerator generator) {
+		var previous = SEEDED.get();
+		SEEDED.set(generator);
+		return previous;
+	}
+
+	/**
+	 * 当前线程恢复使用之前的随机数生成器
+	 *
+	 * @param previous {@link #seed(RandomGenerator)} 返回的生成器,为null时恢复使用 {@link ThreadLocalRandom}
+	 */
+	public static void restore(@Nullable RandomGenerator previous) {
+		if (previous == null) SEEDED.remove();
+		else SEEDED.set(previous);
+	}
+
+	/**
+	 * 当前线程恢复使用 {@link ThreadLocalRandom}
+	 */
+	public static void unseed() {
+		SEEDED.remove();
+	}
+
+	/**
+	 * 创建指定种子的可拆分随机数生成器,相同种子生成相同的序列
+	 *
+	 * @param seed 种子
+	 * @return 随机数生成器
+	 */
+	@NotNull
+	public static RandomGenerator.SplittableGenerator generator(long seed) {
+		return (RandomGenerator.SplittableGenerator) RandomGeneratorFactory.of(ALGORITHM).create(seed);
+	}
+
+	/**
+	 * 由同一个种子拆分出多个互相独立的随机数生成器,分配给多个线程使用,每个线程的结果都可以重复
+	 *
+	 * @param seed  种子
+	 * @param count 数量
+	 * @return 随机数生成器
+	 */
+	@NotNull
+	public static List<RandomGenerator> split(long seed, int count) {
+		Validate.isTrue(count >= 0, "Count cannot be negative.");
+		var root = generator(seed);
+		var result = new ArrayList<RandomGenerator>(count);
+		for (int i = 0; i < count; i++) result.add(root.split());
+		return result;
+	}
+
+	/**
+	 * 使用字符表中的随机字符填充数组
+	 *
+	 * @param dest     目标数组
+	 * @param alphabet 字符表,不能为空
+	 * @return 目标数组
+	 */
+	public static char[] fill(char[] dest, char[] alphabet) {
+		return fill(dest, 0, dest.length, alphabet, current());
+	}
+
+	/**
+	 * 使用字符表中的随机字符填充数组的指定范围
+	 * <p>
+	 * 每个 {@code long} 随机数的高低32位各通过乘法映射为一个下标,字符表长度为n时每个字符的概率偏差不超过 n/2^32
+	 *
+	 * @param dest     目标数组
+	 * @param off      起始位置
+	 * @param len      长度
+	 * @param alphabet 字符表,不能为空
+	 * @param random   随机数生成器
+	 * @return 目标数组
+	 */
+	public static char[] fill(char[] dest, int off, int len, char[] alphabet, @NotNull RandomGenerator random) {
+		Validate.isTrue(alphabet.length > 0, "The chars array must not be empty");
+		long n = alphabet.length;
+		int i = off, end = off + len;
+		for (; i + 1 < end; i += 2) {
+			long r = random.nextLong();
+			dest[i] = alphabet[(int) ((r >>> 32) * n >>> 32)];
+			dest[i + 1] = alphabet[(int) ((r & 0xffffffffL) * n >>> 32)];
+		}
+		if (i < end) dest[i] = alphabet[(int) ((random.nextLong() >>> 32) * n >>> 32)];
+		return dest;
+	}
+
+	/**
+	 * 使用字节表中的随机字节填充数组,例如生成ASCII文本数据
+	 *
+	 * @param dest     目标数组
+	 * @param alphabet 字节表,不能为空
+	 * @return 目标数组
+	 */
+	public static byte[] fill(byte[] dest, byte[] alphabet) {
+		return fill(dest, 0, dest.length, alphabet, current());
+	}
+
+	/**
+	 * 使用字节表中的随机字节填充数组的指定范围
+	 *
+	 * @param dest     目标数组
+	 * @param off      起始位置
+	 * @param len      长度
+	 * @param alphabet 字节表,不能为空
+	 * @param random   随机数生成器
+	 * @return 目标数组
+	 */
+	public static byte[] fill(byte[] dest, int off, int len, byte[] alphabet, @NotNull RandomGenerator random) {
+		Validate.isTrue(alphabet.length > 0, "The bytes array must not be empty");
+		long n = alphabet.length;
+		int i = off, end = off + len;
+		for (; i + 1 < end; i += 2) {
+			long r = random.nextLong();
+			dest[i] = alphabet[(int) ((r >>> 32) * n >>> 32)];
+			dest[i + 1] = alphabet[(int) ((r & 0xffffffffL) * n >>> 32)];
+		}
+		if (i < end) dest[i] = alphabet[(int) ((random.nextLong() >>> 32) * n >>> 32)];
+		return dest;
+	}
+
+	/**
+	 * 使用随机字节填充数组
+	 *
+	 * @param dest 目标数组
+	 * @return 目标数组
+	 */
+	public static byte[] fill(byte[] dest) {
+		current().nextBytes(dest);
+		return dest;
+	}
 
 	/**
 	 * <p>
@@ -22,7 +202,7 @@ public class RandomUtil {
 	 * @since 3.5
 	 */
 	public static boolean nextBoolean() {
-		return RANDOM.nextBoolean();
+		return current().nextBoolean();
 	}
 
 	/**
@@ -37,9 +217,7 @@ public class RandomUtil {
 	public static byte[] nextBytes(final int count) {
 		Validate.isTrue(count >= 0, "Count cannot be negative.");
 
-		final byte[] result = new byte[count];
-		RANDOM.nextBytes(result);
-		return result;
+		return fill(new byte[count]);
 	}
 
 	/**
@@ -61,7 +239,7 @@ public class RandomUtil {
 			return startInclusive;
 		}
 
-		return startInclusive + RANDOM.nextInt(endExclusive - startInclusive);
+		return current().nextInt(startInclusive, endExclusive);
 	}
 
 	/**
@@ -94,7 +272,7 @@ public class RandomUtil {
 			return startInclusive;
 		}
 
-		return startInclusive + nextLong(endExclusive - startInclusive);
+		return current().nextLong(startInclusive, endExclusive);
 	}
 
 	/**
@@ -105,27 +283,7 @@ public class RandomUtil {
 	 * @since 3.5
 	 */
 	public static long nextLong() {
-		return nextLong(Long.MAX_VALUE);
-	}
-
-	/**
-	 * Generates a {@code long} value between 0 (inclusive) and the specified
-	 * value (exclusive).
-	 *
-	 * @param n Bound on the random number to be returned.  Must be positive.
-	 * @return a random {@code long} value between 0 (inclusive) and {@code n}
-	 * 		(exclusive).
-	 */
-	private static long nextLong(final long n) {
-		// Extracted from o.a.c.rng.core.BaseProvider.nextLong(long)
-		long bits;
-		long val;
-		do {
-			bits = RANDOM.nextLong() >>> 1;
-			val = bits % n;
-		} while (bits - val + (n - 1) < 0);
-
-		return val;
+		return nextLong(0, Long.MAX_VALUE);
 	}
 
 	/**
@@ -147,7 +305,7 @@ public class RandomUtil {
 			return startInclusive;
 		}
 
-		return startInclusive + ((endExclusive - startInclusive) * RANDOM.nextDouble());
+		return startInclusive + ((endExclusive - startInclusive) * current().nextDouble());
 	}
 
 	/**
@@ -180,7 +338,7 @@ public class RandomUtil {
 			return startInclusive;
 		}
 
-		return startInclusive + ((endExclusive - startInclusive) * RANDOM.nextFloat());
+		return startInclusive + ((endExclusive - startInclusive) * current().nextFloat());
 	}
 
 	/**
@@ -218,7 +376,7 @@ public class RandomUtil {
 	 * @return the random string
 	 */
 	public static String randomAscii(final int count) {
-		return random(count, 32, 127, false, false);
+		return random(count, ASCII);
 	}
 
 	/**
@@ -248,7 +406,7 @@ public class RandomUtil {
 	 * @return the random string
 	 */
 	public static String randomAlphabetic(final int count) {
-		return random(count, true, false);
+		return random(count, ALPHABETIC);
 	}
 
 	/**
@@ -277,7 +435,7 @@ public class RandomUtil {
 	 * @return the random string
 	 */
 	public static String randomAlphanumeric(final int count) {
-		return random(count, true, true);
+		return random(count, ALPHANUMERIC);
 	}
 
 	/**
@@ -308,7 +466,7 @@ public class RandomUtil {
 	 * @since 3.5
 	 */
 	public static String randomGraph(final int count) {
-		return random(count, 33, 126, false, false);
+		return random(count, GRAPH);
 	}
 
 	/**
@@ -337,7 +495,7 @@ public class RandomUtil {
 	 * @return the random string
 	 */
 	public static String randomNumeric(final int count) {
-		return random(count, false, true);
+		return random(count, NUMERIC);
 	}
 
 	/**
@@ -367,7 +525,7 @@ public class RandomUtil {
 	 * @since 3.5
 	 */
 	public static String randomPrint(final int count) {
-		return random(count, 32, 126, false, false);
+		return random(count, PRINT);
 	}
 
 	/**
@@ -420,7 +578,7 @@ public class RandomUtil {
 	 * @return the random string
 	 */
 	public static String random(final int count, final int start, final int end, final boolean letters, final boolean numbers) {
-		return random(count, start, end, letters, numbers, null, RANDOM);
+		return random(count, start, end, letters, numbers, null, current());
 	}
 
 	/**
@@ -428,9 +586,9 @@ public class RandomUtil {
 	 * default source of randomness.</p>
 	 *
 	 * <p>This method has exactly the same semantics as
-	 * {@link #random(int, int, int, boolean, boolean, char[], Random)}, but
+	 * {@link #random(int, int, int, boolean, boolean, char[], RandomGenerator)}, but
 	 * instead of using an externally supplied source of randomness, it uses
-	 * the internal static {@link Random} instance.</p>
+	 * the random generator of the current thread, see {@link #current()}.</p>
 	 *
 	 * @param count   the length of random string to create
 	 * @param start   the position in set of chars to start at
@@ -446,7 +604,7 @@ public class RandomUtil {
 	 *                                        {@code (end - start) + 1} characters in the set array.
 	 */
 	public static String random(final int count, final int start, final int end, final boolean letters, final boolean numbers, final char... chars) {
-		return random(count, start, end, letters, numbers, chars, RANDOM);
+		return random(count, start, end, letters, numbers, chars, current());
 	}
 
 	/**
@@ -464,7 +622,7 @@ public class RandomUtil {
 	 *
 	 * <p>This method accepts a user-supplied {@link Random}
 	 * instance to use as a source of randomness. By seeding a single
-	 * {@link Random} instance with a fixed seed and using it for each call,
+	 * instance with a fixed seed and using it for each call,
 	 * the same random sequence of strings can be generated repeatedly
 	 * and predictably.</p>
 	 *
@@ -485,6 +643,33 @@ public class RandomUtil {
 	 * @since 2.0
 	 */
 	public static String random(int count, int start, int end, final boolean letters, final boolean numbers, final char[] chars, final Random random) {
+		return random(count, start, end, letters, numbers, chars, (RandomGenerator) random);
+	}
+
+	/**
+	 * <p>Creates a random string based on a variety of options, using
+	 * supplied source of randomness.</p>
+	 *
+	 * <p>Same as {@link #random(int, int, int, boolean, boolean, char[], Random)},
+	 * but accepts any {@link RandomGenerator}, such as {@link #generator(long)}
+	 * or {@link #current()}.</p>
+	 *
+	 * @param count   the length of random string to create
+	 * @param start   the position in set of chars to start at (inclusive)
+	 * @param end     the position in set of chars to end before (exclusive)
+	 * @param letters if {@code true}, generated string may include
+	 *                alphabetic characters
+	 * @param numbers if {@code true}, generated string may include
+	 *                numeric characters
+	 * @param chars   the set of chars to choose randoms from, must not be empty.
+	 *                If {@code null}, then it will use the set of all chars.
+	 * @param random  a source of randomness.
+	 * @return the random string
+	 * @throws ArrayIndexOutOfBoundsException if there are not
+	 *                                        {@code (end - start) + 1} characters in the set array.
+	 * @throws IllegalArgumentException       if {@code count} &lt; 0 or the provided chars array is empty.
+	 */
+	public static String random(int count, int start, int end, final boolean letters, final boolean numbers, final char[] chars, final RandomGenerator random) {
 		if (count == 0) {
 			return "";
 		} else if (count < 0) {
@@ -567,7 +752,7 @@ public class RandomUtil {
 	 */
 	public static String random(final int count, final String chars) {
 		if (chars == null) {
-			return random(count, 0, 0, false, false, null, RANDOM);
+			return random(count, 0, 0, false, false, null, current());
 		}
 		return random(count, chars.toCharArray());
 	}
@@ -586,9 +771,24 @@ public class RandomUtil {
 	 */
 	public static String random(final int count, final char... chars) {
 		if (chars == null) {
-			return random(count, 0, 0, false, false, null, RANDOM);
+			return random(count, 0, 0, false, false, null, current());
 		}
-		return random(count, 0, chars.length, false, false, chars, RANDOM);
+		Validate.isTrue(count >= 0, "Requested random string length %d is less than 0.", count);
+		if (count == 0) return "";
+		return new String(fill(new char[count], 0, count, chars, current()));
+	}
+
+	private static char[] range(int start, int end) {
+		var chars = new char[end - start];
+		for (int i = 0; i < chars.length; i++) chars[i] = (char) (start + i);
+		return chars;
+	}
+
+	private static char[] concat(char[] a, char[] b) {
+		var chars = new char[a.length + b.length];
+		System.arraycopy(a, 0, chars, 0, a.length);
+		System.arraycopy(b, 0, chars, a.length, b.length);
+		return chars;
 	}
 
 }
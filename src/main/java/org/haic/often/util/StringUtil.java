@@ -542,7 +542,7 @@ public class StringUtil {
      */
     public static String randomPhoneNumber() {
         String[] identifier = { "134", "135", "136", "137", "138", "139", "150", "151", "152", "157", "158", "159", "182", "183", "184", "187", "188", "178", "147", "172", "198", "130", "131", "132", "145", "155", "156", "166", "171", "175", "176", "185", "186", "166", "133", "149", "153", "173", "177", "180", "181", "189", "199" };
-        return identifier[(int) (Math.random() * identifier.length)] + RandomUtil.randomNumeric(8);
+        return identifier[RandomUtil.nextInt(0, identifier.length)] + RandomUtil.randomNumeric(8);
     }
 
     /**
@@ -0,0 +1,63 @@
+package org.haic.often.net;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link ParsedURL} 测试,相对路径解析使用 RFC 3986 第5.4节的示例
+ *
+ * @author haicdust
+ * @version 1.0
+ * @since 2026/10/20 13:10
+ */
+class ParsedURLTest {
+
+	private final ParsedURL base = ParsedURL.parse("http://a/b/c/d;p?q");
+
+	@Test
+	void resolvesNormalExamples() {
+		var vectors = new String[][]{
+				{"g:h", "g:h"}, {"g", "http://a/b/c/g"}, {"./g", "http://a/b/c/g"}, {"g/", "http://a/b/c/g/"},
+				{"/g", "http://a/g"}, {"//g", "http://g"}, {"?y", "http://a/b/c/d;p?y"}, {"g?y", "http://a/b/c/g?y"},
+				{"#s", "http://a/b/c/d;p?q#s"}, {"g#s", "http://a/b/c/g#s"}, {"g?y#s", "http://a/b/c/g?y#s"}, {";x", "http://a/b/c/;x"},
+				{"g;x", "http://a/b/c/g;x"}, {"g;x?y#s", "http://a/b/c/g;x?y#s"}, {"", "http://a/b/c/d;p?q"}, {".", "http://a/b/c/"},
+				{"./", "http://a/b/c/"}, {"..", "http://a/b/"}, {"../", "http://a/b/"}, {"../g", "http://a/b/g"},
+				{"../..", "http://a/"}, {"../../", "http://a/"}, {"../../g", "http://a/g"}
+		};
+		for (var vector : vectors) assertEquals(vector[1], base.resolve(vector[0]).toString(), vector[0]);
+	}
+
+	@Test
+	void resolvesAbnormalExamples() {
+		var vectors = new String[][]{
+				{"../../../g", "http://a/g"}, {"../../../../g", "http://a/g"}, {"/./g", "http://a/g"}, {"/../g", "http://a/g"},
+				{"g.", "http://a/b/c/g."}, {".g", "http://a/b/c/.g"}, {"g..", "http://a/b/c/g.."}, {"..g", "http://a/b/c/..g"},
+				{"./../g", "http://a/b/g"}, {"./g/.", "http://a/b/c/g/"}, {"g/./h", "http://a/b/c/g/h"}, {"g/../h", "http://a/b/c/h"},
+				{"g;x=1/./y", "http://a/b/c/g;x=1/y"}, {"g;x=1/../y", "http://a/b/c/y"}, {"g?y/./x", "http://a/b/c/g?y/./x"},
+				{"g?y/../x", "http://a/b/c/g?y/../x"}, {"g#s/./x", "http://a/b/c/g#s/./x"}, {"g#s/../x", "http://a/b/c/g#s/../x"},
+				{"http:g", "http:g"}
+		};
+		for (var vector : vectors) assertEquals(vector[1], base.resolve(vector[0]).toString(), vector[0]);
+	}
+
+	@Test
+	void parsesComponents() {
+		var url = ParsedURL.parse("HTTPS://user@Example.COM:443/a/./b/../c?x=1&y=%20&x=2#top");
+		assertEquals("https", url.scheme());
+		assertEquals(443, url.effectivePort());
+		assertEquals("/a/./b/../c", url.path());
+		assertEquals("x=1&y=%20&x=2", url.query());
+		assertEquals("top", url.fragment());
+		assertEquals(2, url.queryParams().get("x").size());
+		assertEquals("https://user@example.com/a/c?x=1&y=%20&x=2", url.normalize().toString());
+	}
+
+	@Test
+	void normalizesEquivalentUrls() {
+		var url = ParsedURL.parse("http://example.com/");
+		assertSame(url, url.normalize());
+		assertEquals(url, ParsedURL.parse("HTTP://EXAMPLE.com:80").normalize());
+	}
+
+}
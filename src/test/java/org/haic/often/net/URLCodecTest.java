@@ -0,0 +1,54 @@
+package org.haic.often.net;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link URLCodec} 测试
+ *
+ * @author haicdust
+ * @version 1.0
+ * @since 2026/10/20 13:10
+ */
+class URLCodecTest {
+
+	@Test
+	void keepsInvalidEscapes() {
+		assertEquals("%zz", URLCodec.decode("%zz"));
+		assertEquals("a%2", URLCodec.decode("a%2"));
+		assertEquals("%", URLCodec.decode("%"));
+		assertEquals("%25zz%20", URLCodec.encode("%zz ")); // 无效的编码按普通字符处理
+		assertEquals("100% ok", URLCodec.decode("100%25%20ok"));
+	}
+
+	@Test
+	void decodesRepeatedEscapes() {
+		assertEquals("A", URLCodec.decode("%2541"));
+		assertEquals("A", URLCodec.decode("%252541"));
+		assertEquals("%", URLCodec.decode("%25"));
+		var data = "x%2541y".getBytes(StandardCharsets.ISO_8859_1);
+		assertEquals("xAy", new String(data, 0, URLCodec.decode(data, 0, data.length), StandardCharsets.ISO_8859_1));
+	}
+
+	@Test
+	void encodesSurrogatePairs() {
+		var emoji = "😀";
+		assertEquals("%F0%9F%98%80", URLCodec.encode(emoji));
+		assertEquals(emoji, URLCodec.decode("%F0%9F%98%80"));
+		assertEquals("a" + emoji + "b", URLCodec.decode("a" + emoji + "%62"));
+		assertEquals("?", URLCodec.decode("\uD83D%20").substring(0, 1)); // 孤立的代理字符
+	}
+
+	@Test
+	void encodesValues() {
+		var text = "a b&c=d/e?f#g中文~";
+		assertEquals("a%20b%26c=d%2Fe%3Ff%23g%E4%B8%AD%E6%96%87~", URLCodec.encodeValue(text));
+		assertEquals("a%20b%26c=d%2Fe%3Ff%23g%E4%B8%AD%E6%96%87~", URLCodec.encodeValue(URLCodec.encodeValue(text)));
+		assertEquals(text, URLCodec.decode(URLCodec.encodeValue(text)));
+		assertEquals("a%20b&c=d/e?f#g", URLCodec.encode("a b&c=d/e?f#g"));
+	}
+
+}
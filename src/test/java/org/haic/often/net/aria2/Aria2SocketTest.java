@@ -0,0 +1,189 @@
+package org.haic.often.net.aria2;
+
+import mockwebserver3.Dispatcher;
+import mockwebserver3.MockResponse;
+import mockwebserver3.MockWebServer;
+import mockwebserver3.RecordedRequest;
+import okhttp3.OkHttpClient;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import org.haic.often.exception.Aria2Exception;
+import org.haic.often.parser.json.JSONArray;
+import org.haic.often.parser.json.JSONObject;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 使用本地模拟的 aria2 WebSocket 接口测试 {@link Aria2Socket}
+ *
+ * @author haicdust
+ * @version 1.0
+ * @since 2026/10/20 10:30
+ */
+class Aria2SocketTest {
+
+	private final FakeAria2 aria2 = new FakeAria2();
+	private MockWebServer server;
+	private Aria2Socket socket;
+
+	@BeforeEach
+	void start() throws Exception {
+		server = new MockWebServer();
+		server.setDispatcher(new Dispatcher() {
+			public MockResponse dispatch(@NotNull RecordedRequest request) {
+				aria2.connections.incrementAndGet();
+				return new MockResponse.Builder().webSocketUpgrade(aria2).build();
+			}
+		});
+		server.start(0);
+		socket = new Aria2Socket("ws://" + server.getHostName() + ":" + server.getPort() + "/jsonrpc", new OkHttpClient());
+	}
+
+	@AfterEach
+	void stop() throws Exception {
+		socket.close();
+		aria2.disconnect();
+		server.close();
+	}
+
+	@Test
+	void batchesConcurrentCalls() throws Exception {
+		var futures = new ArrayList<CompletableFuture<Object>>();
+		for (int i = 0; i < 200; i++) futures.add(socket.call("test.echo", new JSONArray().fluentAdd(i)));
+		for (int i = 0; i < futures.size(); i++) assertEquals(i, ((Number) futures.get(i).get(5, TimeUnit.SECONDS)).intValue());
+		assertTrue(aria2.messages.get() < futures.size(), "调用未被合并: " + aria2.messages.get());
+		assertTrue(aria2.multicalls.get() > 0);
+	}
+
+	@Test
+	void failsOnlyTheFaultyCall() throws Exception {
+		aria2.status.put("2089b05ecca3d829", "active");
+		var futures = new ArrayList<CompletableFuture<JSONObject>>();
+		for (int i = 0; i < 50; i++) futures.add(socket.tellStatus(i == 25 ? "0000000000000000" : "2089b05ecca3d829"));
+		for (int i = 0; i < futures.size(); i++) {
+			if (i == 25) {
+				var e = assertThrows(ExecutionException.class, () -> futures.get(25).get(5, TimeUnit.SECONDS));
+				assertInstanceOf(Aria2Exception.class, e.getCause());
+				assertTrue(e.getCause().getMessage().contains("is not found"));
+			} else {
+				assertEquals("active", futures.get(i).get(5, TimeUnit.SECONDS).getString("status"));
+			}
+		}
+	}
+
+	@Test
+	void awaitCompletesOnNotification() throws Exception {
+		aria2.status.put("2089b05ecca3d829", "active");
+		var future = socket.await("2089b05ecca3d829");
+		aria2.statusChecked.await(5, TimeUnit.SECONDS);
+		assertFalse(future.isDone());
+		aria2.notify(Aria2Event.ON_DOWNLOAD_COMPLETE, "2089b05ecca3d829");
+		assertEquals("2089b05ecca3d829", future.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void awaitFailsOnErrorNotification() throws Exception {
+		aria2.status.put("2089b05ecca3d829", "active");
+		var future = socket.await("2089b05ecca3d829");
+		aria2.statusChecked.await(5, TimeUnit.SECONDS);
+		aria2.notify(Aria2Event.ON_DOWNLOAD_ERROR, "2089b05ecca3d829");
+		var e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+		assertInstanceOf(Aria2Exception.class, e.getCause());
+	}
+
+	@Test
+	void awaitRechecksStatusAfterReconnect() throws Exception {
+		aria2.status.put("2089b05ecca3d829", "active");
+		var future = socket.await("2089b05ecca3d829");
+		aria2.statusChecked.await(5, TimeUnit.SECONDS);
+		aria2.status.put("2089b05ecca3d829", "complete"); // 断开期间下载完成,通知丢失
+		aria2.disconnect();
+		assertEquals("2089b05ecca3d829", future.get(10, TimeUnit.SECONDS));
+		assertEquals(2, aria2.connections.get());
+	}
+
+	/**
+	 * 模拟的 aria2 接口,只实现测试需要的方法
+	 */
+	private static class FakeAria2 extends WebSocketListener {
+
+		private final Map<String, String> status = new ConcurrentHashMap<>();
+		private final AtomicInteger connections = new AtomicInteger();
+		private final AtomicInteger messages = new AtomicInteger();
+		private final AtomicInteger multicalls = new AtomicInteger();
+		private final CountDownLatch statusChecked = new CountDownLatch(1);
+		private final List<WebSocket> sockets = new CopyOnWriteArrayList<>();
+
+		public void onOpen(@NotNull WebSocket webSocket, @NotNull okhttp3.Response response) {
+			sockets.add(webSocket);
+		}
+
+		public void onMessage(@NotNull WebSocket webSocket, @NotNull String text) {
+			messages.incrementAndGet();
+			var request = JSONObject.parseObject(text);
+			var response = new JSONObject().fluentPut("id", request.getString("id")).fluentPut("jsonrpc", "2.0");
+			var method = request.getString("method");
+			var params = request.getJSONArray("params");
+			if (method.equals(Aria2Method.MULTICALL.getValue())) {
+				multicalls.incrementAndGet();
+				var calls = params.getJSONArray(0);
+				var results = new JSONArray();
+				for (int i = 0; i < calls.size(); i++) {
+					var call = calls.getJSONObject(i);
+					try {
+						results.add(new JSONArray().fluentAdd(invoke(call.getString("methodName"), call.getJSONArray("params"))));
+					} catch (IllegalArgumentException e) {
+						results.add(new JSONObject().fluentPut("faultCode", 1).fluentPut("faultString", e.getMessage()));
+					}
+				}
+				response.fluentPut("result", results);
+			} else {
+				try {
+					response.fluentPut("result", invoke(method, params));
+				} catch (IllegalArgumentException e) {
+					response.fluentPut("error", new JSONObject().fluentPut("code", 1).fluentPut("message", e.getMessage()));
+				}
+			}
+			webSocket.send(response.toString());
+			if (text.contains(Aria2Method.TELLSTATUS.getValue())) statusChecked.countDown(); // 响应先于后续的通知和关闭帧到达
+		}
+
+		public void onClosing(@NotNull WebSocket webSocket, int code, @NotNull String reason) {
+			webSocket.close(1000, null);
+			sockets.remove(webSocket);
+		}
+
+		private Object invoke(String method, JSONArray params) {
+			if (method.equals("test.echo")) return params.get(0);
+			if (method.equals(Aria2Method.TELLSTATUS.getValue())) {
+				var gid = params.getString(0);
+				var value = status.get(gid);
+				if (value == null) throw new IllegalArgumentException("GID " + gid + " is not found");
+				return new JSONObject().fluentPut("gid", gid).fluentPut("status", value);
+			}
+			throw new IllegalArgumentException("No such method: " + method);
+		}
+
+		private void notify(Aria2Event event, String gid) {
+			var message = new JSONObject().fluentPut("jsonrpc", "2.0").fluentPut("method", event.getValue()).fluentPut("params", new JSONArray().fluentAdd(new JSONObject().fluentPut("gid", gid)));
+			sockets.forEach(l -> l.send(message.toString()));
+		}
+
+		private void disconnect() {
+			sockets.forEach(l -> l.close(1001, "restart"));
+			sockets.clear();
+		}
+
+	}
+
+}
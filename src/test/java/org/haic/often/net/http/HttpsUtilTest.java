@@ -0,0 +1,104 @@
+package org.haic.often.net.http;
+
+import org.haic.often.net.DnsResolver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.net.ssl.*;
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 使用本地 TLS 服务器测试 {@link HttpsUtil} 经过全局解析器连接时发送的主机名
+ *
+ * @author haicdust
+ * @version 1.0
+ * @since 2026/10/20 14:30
+ */
+class HttpsUtilTest {
+
+    private final Queue<String> serverNames = new ConcurrentLinkedQueue<>();
+    private final Queue<String> hosts = new ConcurrentLinkedQueue<>();
+    private SSLServerSocket server;
+
+    @BeforeEach
+    void start(@TempDir Path dir) throws Exception {
+        var keystore = dir.resolve("server.p12");
+        var keytool = Path.of(System.getProperty("java.home"), "bin", "keytool").toString();
+        var process = new ProcessBuilder(keytool, "-genkeypair", "-alias", "server", "-keyalg", "EC", "-dname", "CN=localhost", "-validity", "1", "-storetype", "PKCS12", "-keystore", keystore.toString(), "-storepass", "changeit").inheritIO().start();
+        assertEquals(0, process.waitFor());
+        var store = KeyStore.getInstance("PKCS12");
+        try (var in = new FileInputStream(keystore.toFile())) {
+            store.load(in, "changeit".toCharArray());
+        }
+        var keyManager = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManager.init(store, "changeit".toCharArray());
+        var context = SSLContext.getInstance("TLS");
+        context.init(keyManager.getKeyManagers(), null, null);
+        server = (SSLServerSocket) context.getServerSocketFactory().createServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        var parameters = server.getSSLParameters();
+        parameters.setSNIMatchers(List.of(new SNIMatcher(StandardConstants.SNI_HOST_NAME) {
+            public boolean matches(SNIServerName serverName) {
+                serverNames.add(((SNIHostName) serverName).getAsciiName());
+                return true;
+            }
+        }));
+        server.setSSLParameters(parameters);
+        Thread.ofVirtual().start(this::serve);
+    }
+
+    @AfterEach
+    void stop() throws Exception {
+        DnsResolver.global().removeOverride("sni.example.com");
+        DnsResolver.global().removeOverride("fallback.example.com");
+        server.close();
+    }
+
+    @Test
+    void sendsHostNameAsServerName() {
+        DnsResolver.global().override("sni.example.com", "127.0.0.1");
+        var res = HttpsUtil.connect("https://sni.example.com:" + server.getLocalPort() + "/").execute();
+        assertEquals(200, res.statusCode());
+        assertEquals("ok", res.body());
+        assertEquals(List.of("sni.example.com"), List.copyOf(serverNames));
+        assertEquals(List.of("sni.example.com:" + server.getLocalPort()), List.copyOf(hosts));
+        assertEquals("https://sni.example.com:" + server.getLocalPort() + "/", res.url());
+    }
+
+    @Test
+    void fallsBackToNextAddress() {
+        DnsResolver.global().override("fallback.example.com", "127.0.0.2", "127.0.0.1"); // 服务器只监听 127.0.0.1
+        var res = HttpsUtil.connect("https://fallback.example.com:" + server.getLocalPort() + "/").execute();
+        assertEquals(200, res.statusCode());
+        assertEquals("ok", res.body());
+        assertEquals(List.of("fallback.example.com"), List.copyOf(serverNames));
+    }
+
+    private void serve() {
+        while (!server.isClosed()) {
+            try (var socket = server.accept()) {
+                var reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+                for (String line; (line = reader.readLine()) != null && !line.isEmpty(); ) {
+                    if (line.regionMatches(true, 0, "host:", 0, 5)) hosts.add(line.substring(5).strip());
+                }
+                var out = socket.getOutputStream();
+                out.write("HTTP/1.1 200 OK\r\nContent-Length: 2\r\nConnection: close\r\n\r\nok".getBytes(StandardCharsets.ISO_8859_1));
+                out.flush();
+            } catch (Exception ignored) {
+            }
+        }
+    }
+
+}
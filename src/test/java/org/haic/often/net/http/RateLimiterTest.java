@@ -0,0 +1,72 @@
+package org.haic.often.net.http;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link RateLimiter} 并发许可测试,许可应在正文读取结束或关闭响应后释放
+ *
+ * @author haicdust
+ * @version 1.0
+ * @since 2026/10/20 15:20
+ */
+class RateLimiterTest {
+
+    private HttpServer server;
+    private String url;
+
+    @BeforeEach
+    void start() throws Exception {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            var body = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (var out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+    }
+
+    @Test
+    void holdsPermitUntilBodyIsRead() throws Exception {
+        var limiter = RateLimiter.of(0).maxInFlight(1);
+        var first = HttpsUtil.connect(url).rateLimiter(limiter).execute();
+        assertEquals(200, first.statusCode());
+        var second = CompletableFuture.supplyAsync(() -> HttpsUtil.connect(url).rateLimiter(limiter).execute().body());
+        TimeUnit.MILLISECONDS.sleep(300);
+        assertFalse(second.isDone(), "正文未读取时许可已被释放");
+        assertEquals("ok", first.body());
+        assertEquals("ok", second.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void releasesPermitOnClose() throws Exception {
+        var limiter = RateLimiter.of(0).maxInFlight(1);
+        HttpsUtil.connect(url).rateLimiter(limiter).execute().close();
+        var res = CompletableFuture.supplyAsync(() -> HttpsUtil.connect(url).rateLimiter(limiter).execute());
+        assertEquals(200, res.get(5, TimeUnit.SECONDS).statusCode());
+        res.get().close();
+        assertTrue(limiter.tryAcquire("127.0.0.1"));
+        limiter.release("127.0.0.1");
+    }
+
+}
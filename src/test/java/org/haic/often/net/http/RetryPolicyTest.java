@@ -0,0 +1,46 @@
+package org.haic.often.net.http;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link RetryPolicy} 测试
+ *
+ * @author haicdust
+ * @version 1.0
+ * @since 2026/10/20 14:50
+ */
+class RetryPolicyTest {
+
+    @Test
+    void fixedIgnoresRetryAfter() {
+        var policy = RetryPolicy.fixed(1000);
+        assertEquals(1000, policy.delay("example.com", 0, "86400"));
+        assertEquals(1000, policy.delay("example.com", 5, null));
+    }
+
+    @Test
+    void retryAfterIsCappedAtMaxMillis() {
+        var policy = RetryPolicy.exponential(100, 5000);
+        assertEquals(5000, policy.delay("example.com", 0, "86400"));
+        assertTrue(policy.delay("example.com", 0, "2") >= 2000);
+        assertEquals(1000, RetryPolicy.fixed(1000).retryAfter(true).delay(null, 0, "3")); // 固定策略的最大等待时间即固定时间
+    }
+
+    @Test
+    void backsOffExponentially() {
+        var policy = RetryPolicy.exponential(100, 1000).jitter(false);
+        assertEquals(100, policy.delay(null, 0, null));
+        assertEquals(400, policy.delay(null, 2, null));
+        assertEquals(1000, policy.delay(null, 10, null));
+    }
+
+    @Test
+    void parsesRetryAfter() {
+        assertEquals(120000, RetryPolicy.parseRetryAfter(" 120 "));
+        assertEquals(0, RetryPolicy.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT"));
+        assertEquals(0, RetryPolicy.parseRetryAfter("soon"));
+    }
+
+}
@@ -0,0 +1,114 @@
+package org.haic.often.util;
+
+import org.apache.commons.codec.binary.Hex;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link Base16Util} 测试
+ *
+ * @author haicdust
+ * @version 1.0
+ * @since 2026/10/20 11:20
+ */
+class Base16UtilTest {
+
+	private final Random random = new Random(16);
+
+	@Test
+	void encodesUpperCaseAndDecodesAnyCase() {
+		assertEquals("666F6F626172", Base16Util.encode("foobar"));
+		assertEquals("foobar", Base16Util.decode("666f6F626172"));
+		assertTrue(Base16Util.isBase16("00ff"));
+		assertFalse(Base16Util.isBase16("0g"));
+		assertFalse(Base16Util.isBase16("abc"));
+	}
+
+	@Test
+	void matchesCommonsCodec() {
+		for (int len = 0; len < 300; len++) {
+			var data = bytes(len);
+			var expected = Hex.encodeHexString(data, false);
+			assertEquals(expected, new String(Base16Util.encode(data), StandardCharsets.ISO_8859_1));
+			assertArrayEquals(data, Base16Util.decode(expected.toLowerCase().getBytes(StandardCharsets.ISO_8859_1)));
+		}
+	}
+
+	@Test
+	void matchesLegacyEncoder() {
+		for (int len = 0; len < 200; len++) {
+			var text = RandomUtil.randomAlphanumeric(len) + "中文" + RandomUtil.randomPrint(len % 7);
+			var encoded = Base16Util.encode(text);
+			assertEquals(Legacy.encode(text), encoded);
+			assertEquals(Legacy.decode(encoded), Base16Util.decode(encoded));
+		}
+	}
+
+	@Test
+	void roundTripsByteBuffers() {
+		var data = bytes(1000);
+		var backing = new byte[data.length + 13];
+		System.arraycopy(data, 0, backing, 13, data.length);
+		var heap = ByteBuffer.wrap(backing).position(13).slice(); // 数组偏移不为0
+		assertEquals(ByteBuffer.wrap(Base16Util.encode(data)), Base16Util.encode(heap));
+		assertFalse(heap.hasRemaining());
+		var encoded = Base16Util.encode(ByteBuffer.allocateDirect(data.length).put(data).flip());
+		assertEquals(ByteBuffer.wrap(data), Base16Util.decode(ByteBuffer.allocateDirect(encoded.remaining()).put(encoded).flip()));
+	}
+
+	@Test
+	void roundTripsStreams() throws IOException {
+		for (int len : new int[]{0, 1, 2, 4099, 100003}) {
+			var data = bytes(len);
+			var sink = new ByteArrayOutputStream();
+			try (var out = Base16Util.wrap(sink)) {
+				for (int off = 0, step = 1; off < len; off += step, step = step * 3 % 1021 + 1) out.write(data, off, Math.min(step, len - off));
+			}
+			assertArrayEquals(Base16Util.encode(data), sink.toByteArray());
+			var result = new ByteArrayOutputStream();
+			try (var in = Base16Util.wrap(new ByteArrayInputStream(sink.toByteArray()))) {
+				var buffer = new byte[7];
+				for (int n; (n = in.read(buffer)) != -1; ) result.write(buffer, 0, n);
+			}
+			assertArrayEquals(data, result.toByteArray());
+		}
+	}
+
+	private byte[] bytes(int len) {
+		var data = new byte[len];
+		random.nextBytes(data);
+		return data;
+	}
+
+	/**
+	 * 改为查表实现前的编码器,用于检查兼容性
+	 */
+	private static class Legacy {
+
+		private static String encode(String data) {
+			var sb = new StringBuilder(data.length() * 2);
+			for (byte b : data.getBytes()) {
+				int i = b & 0xff;
+				if (i < 0x10) sb.append("0");
+				sb.append(Integer.toHexString(i));
+			}
+			return sb.toString().toUpperCase();
+		}
+
+		private static String decode(String data) {
+			var bts = new byte[data.length() / 2];
+			for (int i = 0; i < bts.length; i++) bts[i] = (byte) Integer.parseInt(data.substring(2 * i, 2 * i + 2), 16);
+			return new String(bts, StandardCharsets.UTF_8);
+		}
+
+	}
+
+}
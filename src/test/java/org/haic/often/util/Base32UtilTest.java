@@ -0,0 +1,158 @@
+package org.haic.often.util;
+
+import org.apache.commons.codec.binary.Base32;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link Base32Util} 测试
+ *
+ * @author haicdust
+ * @version 1.0
+ * @since 2026/10/20 11:20
+ */
+class Base32UtilTest {
+
+	private final Random random = new Random(32);
+
+	@Test
+	void encodesRfc4648Vectors() {
+		var vectors = new String[][]{{"", ""}, {"f", "MY"}, {"fo", "MZXQ"}, {"foo", "MZXW6"}, {"foob", "MZXW6YQ"}, {"fooba", "MZXW6YTB"}, {"foobar", "MZXW6YTBOI"}};
+		for (var vector : vectors) {
+			assertEquals(vector[1], Base32Util.encode(vector[0]));
+			assertEquals(vector[0], Base32Util.decode(vector[1]));
+		}
+	}
+
+	@Test
+	void decodesLowerCaseAndPadding() {
+		assertEquals("foobar", Base32Util.decode("mzxw6ytboi======"));
+		assertTrue(Base32Util.isBase32("MZXW6YTBOI======"));
+		assertFalse(Base32Util.isBase32("MZXW6YTB1"));
+	}
+
+	@Test
+	void matchesCommonsCodec() {
+		var codec = new Base32();
+		for (int len = 0; len < 300; len++) {
+			var data = bytes(len);
+			var expected = codec.encodeAsString(data).replace("=", "");
+			assertEquals(expected, new String(Base32Util.encode(data), StandardCharsets.ISO_8859_1));
+			assertArrayEquals(data, Base32Util.decode(expected.getBytes(StandardCharsets.ISO_8859_1)));
+		}
+	}
+
+	@Test
+	void matchesLegacyEncoder() {
+		for (int len = 0; len < 200; len++) {
+			var text = RandomUtil.randomAlphanumeric(len) + "中文" + RandomUtil.randomPrint(len % 7);
+			var encoded = Base32Util.encode(text);
+			assertEquals(Legacy.encode(text), encoded);
+			assertEquals(Legacy.decode(encoded), Base32Util.decode(encoded));
+		}
+	}
+
+	@Test
+	void roundTripsByteBuffers() {
+		var data = bytes(1000);
+		var backing = new byte[data.length + 13];
+		System.arraycopy(data, 0, backing, 13, data.length);
+		var heap = ByteBuffer.wrap(backing).position(13).slice(); // 数组偏移不为0
+		var direct = ByteBuffer.allocateDirect(data.length).put(data).flip();
+		assertEquals(ByteBuffer.wrap(Base32Util.encode(data)), Base32Util.encode(heap));
+		assertFalse(heap.hasRemaining());
+		var encoded = Base32Util.encode(direct);
+		assertFalse(direct.hasRemaining());
+		assertEquals(ByteBuffer.wrap(data), Base32Util.decode(ByteBuffer.allocateDirect(encoded.remaining()).put(encoded).flip()));
+	}
+
+	@Test
+	void roundTripsStreams() throws IOException {
+		for (int len : new int[]{0, 1, 4, 5, 6, 4099, 100003}) {
+			var data = bytes(len);
+			var sink = new ByteArrayOutputStream();
+			try (var out = Base32Util.wrap(sink)) {
+				for (int off = 0, step = 1; off < len; off += step, step = step * 3 % 1021 + 1) out.write(data, off, Math.min(step, len - off));
+			}
+			assertArrayEquals(Base32Util.encode(data), sink.toByteArray());
+			var result = new ByteArrayOutputStream();
+			try (var in = Base32Util.wrap(new ByteArrayInputStream(sink.toByteArray()))) {
+				var buffer = new byte[7];
+				for (int n; (n = in.read(buffer)) != -1; ) result.write(buffer, 0, n);
+			}
+			assertArrayEquals(data, result.toByteArray());
+		}
+	}
+
+	private byte[] bytes(int len) {
+		var data = new byte[len];
+		random.nextBytes(data);
+		return data;
+	}
+
+	/**
+	 * 改为查表实现前的编码器,用于检查兼容性
+	 */
+	private static class Legacy {
+
+		private static String encode(String data) {
+			byte[] bts = data.getBytes(), ans = new byte[(bts.length + 4) / 5 * 8];
+			int i = 0, num = 0, pos = -1, in = 0;
+			while (i < bts.length) {
+				int val = 0, cnt = 5;
+				while (cnt-- > 0) {
+					if (pos == -1) {
+						pos = 7;
+						num = bts[i++];
+					}
+					val |= (num >> pos-- & 1) << cnt;
+				}
+				ans[in++] = index(val);
+			}
+			while (~pos != 0) {
+				int val = 0, cnt = 5;
+				while (cnt-- > 0 && ~pos != 0) val |= (num >> pos-- & 1) << cnt;
+				ans[in++] = index(val);
+			}
+			return new String(ans, 0, in);
+		}
+
+		private static String decode(String data) {
+			byte[] bts = data.getBytes(), ans = new byte[bts.length * 5 / 8];
+			int i = 0, cnt = 0, num = 0, pos = -1, in = 0;
+			while (i < bts.length) {
+				cnt = 8;
+				int val = 0;
+				while (i < bts.length && cnt-- > 0) {
+					if (pos == -1) {
+						pos = 4;
+						num = Character.isLetter(bts[i]) ? bts[i++] - 'A' : bts[i++] - '2' + 26;
+					}
+					val |= (num >> pos-- & 1) << cnt;
+				}
+				ans[in++] = (byte) val;
+			}
+			if (cnt <= pos + 1) {
+				while (cnt-- > 0) ans[ans.length - 1] |= (num >> pos-- & 1) << cnt;
+			} else {
+				ans = Arrays.copyOf(ans, ans.length - 1);
+			}
+			return new String(ans, StandardCharsets.UTF_8);
+		}
+
+		private static byte index(int c) {
+			return c < 26 ? (byte) (c + 'A') : (byte) (c - 26 + '2');
+		}
+
+	}
+
+}
@@ -0,0 +1,77 @@
+package org.haic.often.util;
+
+import org.apache.commons.codec.binary.Base64;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link Base64Util} 测试
+ *
+ * @author haicdust
+ * @version 1.0
+ * @since 2026/10/20 11:20
+ */
+class Base64UtilTest {
+
+	private final Random random = new Random(64);
+
+	@Test
+	void encodesStrings() {
+		assertEquals("Zm9vYmFy", Base64Util.encode("foobar"));
+		assertEquals("foobar", Base64Util.decode("Zm9vYmFy"));
+		assertTrue(Base64Util.isBase64("Zm9vYg=="));
+		assertFalse(Base64Util.isBase64("Zm9vYg="));
+	}
+
+	@Test
+	void matchesJdkAndCommonsCodec() {
+		for (int len = 0; len < 300; len++) {
+			var data = bytes(len);
+			var encoded = Base64Util.encode(data);
+			assertArrayEquals(java.util.Base64.getEncoder().encode(data), encoded);
+			assertEquals(Base64.encodeBase64String(data), new String(encoded, StandardCharsets.ISO_8859_1));
+			assertArrayEquals(data, Base64Util.decode(encoded));
+		}
+	}
+
+	@Test
+	void roundTripsByteBuffers() {
+		var data = bytes(1000);
+		var encoded = Base64Util.encode(ByteBuffer.allocateDirect(data.length).put(data).flip());
+		assertEquals(ByteBuffer.wrap(Base64Util.encode(data)), encoded);
+		assertEquals(ByteBuffer.wrap(data), Base64Util.decode(ByteBuffer.allocateDirect(encoded.remaining()).put(encoded).flip()));
+	}
+
+	@Test
+	void roundTripsStreams() throws IOException {
+		for (int len : new int[]{0, 1, 2, 3, 4099, 100003}) {
+			var data = bytes(len);
+			var sink = new ByteArrayOutputStream();
+			try (var out = Base64Util.wrap(sink)) {
+				for (int off = 0, step = 1; off < len; off += step, step = step * 3 % 1021 + 1) out.write(data, off, Math.min(step, len - off));
+			}
+			assertArrayEquals(Base64Util.encode(data), sink.toByteArray());
+			var result = new ByteArrayOutputStream();
+			try (var in = Base64Util.wrap(new ByteArrayInputStream(sink.toByteArray()))) {
+				var buffer = new byte[7];
+				for (int n; (n = in.read(buffer)) != -1; ) result.write(buffer, 0, n);
+			}
+			assertArrayEquals(data, result.toByteArray());
+		}
+	}
+
+	private byte[] bytes(int len) {
+		var data = new byte[len];
+		random.nextBytes(data);
+		return data;
+	}
+
+}